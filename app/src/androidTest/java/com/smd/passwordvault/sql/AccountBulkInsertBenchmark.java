@@ -0,0 +1,103 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.VaultSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Inserting 10k accounts through AccountDataContentProvider: one insert() per
+ * account, each its own transaction and change notification, against one
+ * bulkInsert() of all of them. The vault stays locked, so both paths only
+ * differ in how they reach the database. The timings are logged under
+ * AccountBulkInsertBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AccountBulkInsertBenchmark {
+
+    private static final String TAG = "AccountBulkInsertBenchmark";
+
+    private static final int ACCOUNTS = 10000;
+    private static final int WARMUP = 500;
+    private static final String NAME_PREFIX = "bulk benchmark ";
+
+    // accounts inserted while the vault is locked have no user
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_USER_ID + " = 0 AND "
+            + DatabaseDescription.AccountData.COLUMN_NAME + " LIKE '" + NAME_PREFIX + "%'";
+
+    private DatabaseHelper dbHelper;
+    private ContentResolver resolver;
+    private ContentValues[] accounts;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbHelper = DatabaseHelper.getInstance(context);
+        resolver = context.getContentResolver();
+        VaultSession.lock();
+        deleteRows();
+
+        Random random = new Random(23);
+        accounts = new ContentValues[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            byte[] encrypted = new byte[48];
+            random.nextBytes(encrypted);
+            accounts[i] = new ContentValues();
+            accounts[i].put(DatabaseDescription.AccountData.COLUMN_NAME, NAME_PREFIX + i);
+            accounts[i].put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB, encrypted);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteRows();
+    }
+
+    @Test
+    public void bulkInsertBeatsInsertPerRow() {
+        for (int i = 0; i < WARMUP; i++) {
+            resolver.insert(DatabaseDescription.AccountData.CONTENT_URI, new ContentValues(accounts[i]));
+        }
+        deleteRows();
+
+        long started = SystemClock.elapsedRealtime();
+        for (ContentValues account : accounts) {
+            resolver.insert(DatabaseDescription.AccountData.CONTENT_URI, new ContentValues(account));
+        }
+        long perRowMillis = SystemClock.elapsedRealtime() - started;
+        assertEquals(ACCOUNTS, deleteRows());
+
+        ContentValues[] copies = new ContentValues[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            copies[i] = new ContentValues(accounts[i]);
+        }
+        started = SystemClock.elapsedRealtime();
+        int inserted = resolver.bulkInsert(DatabaseDescription.AccountData.CONTENT_URI, copies);
+        long batchedMillis = SystemClock.elapsedRealtime() - started;
+        assertEquals(ACCOUNTS, inserted);
+        assertEquals(ACCOUNTS, deleteRows());
+
+        Log.i(TAG, ACCOUNTS + " inserts, per row ms:" + perRowMillis + " bulk ms:" + batchedMillis);
+        assertTrue("bulk insert took " + batchedMillis + " ms, per row " + perRowMillis + " ms",
+                batchedMillis < perRowMillis);
+    }
+
+    private int deleteRows() {
+        return dbHelper.getWritableDatabase().delete(DatabaseDescription.AccountData.TABLE_NAME, SELECTION, null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.VaultSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Prefix searches of account names through AccountDataContentProvider over
+ * 100k accounts. Each name is two random words and a marker; each search
+ * types the start of a random word of an existing name. The median and the
+ * slowest search are logged under AccountSearchBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AccountSearchBenchmark {
+
+    private static final String TAG = "AccountSearchBenchmark";
+
+    private static final int ACCOUNTS = 100000;
+    private static final int SEARCHES = 200;
+    private static final long MAX_MEDIAN_MILLIS = 10;
+
+    // last word of every name, never searched for
+    private static final String MARKER = "searchbenchmark";
+
+    // accounts inserted while the vault is locked have no user
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_USER_ID + " = 0 AND "
+            + DatabaseDescription.AccountData.COLUMN_NAME + " LIKE '% " + MARKER + "'";
+
+    private DatabaseHelper dbHelper;
+    private ContentResolver resolver;
+    private String[] names;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbHelper = DatabaseHelper.getInstance(context);
+        resolver = context.getContentResolver();
+        VaultSession.lock();
+        deleteRows();
+
+        Random random = new Random(24);
+        names = new String[ACCOUNTS];
+        ContentValues[] accounts = new ContentValues[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            names[i] = word(random) + " " + word(random);
+            accounts[i] = new ContentValues();
+            accounts[i].put(DatabaseDescription.AccountData.COLUMN_NAME, names[i] + " " + MARKER);
+            accounts[i].put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB, new byte[48]);
+        }
+        assertEquals(ACCOUNTS, resolver.bulkInsert(DatabaseDescription.AccountData.CONTENT_URI, accounts));
+    }
+
+    @After
+    public void tearDown() {
+        deleteRows();
+    }
+
+    @Test
+    public void prefixSearchTakesMilliseconds() {
+        Random random = new Random(25);
+        long[] nanos = new long[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            String[] words = names[random.nextInt(ACCOUNTS)].split(" ");
+            String typed = words[random.nextInt(words.length)].substring(0, 3);
+
+            long started = SystemClock.elapsedRealtimeNanos();
+            Cursor cursor = resolver.query(DatabaseDescription.AccountData.buildSearchUri(typed), null, null, null,
+                    DatabaseDescription.AccountData.COLUMN_NAME + " COLLATE NOCASE ASC");
+            try {
+                // reads all the matching rows into the cursor window
+                assertTrue(cursor.getCount() > 0);
+            } finally {
+                cursor.close();
+            }
+            nanos[i] = SystemClock.elapsedRealtimeNanos() - started;
+        }
+
+        Arrays.sort(nanos);
+        long medianMillis = nanos[SEARCHES / 2] / 1000000;
+        Log.i(TAG, SEARCHES + " searches over " + ACCOUNTS + " accounts, median ms:" + medianMillis
+                + " slowest ms:" + nanos[SEARCHES - 1] / 1000000);
+        assertTrue("median search took " + medianMillis + " ms", medianMillis <= MAX_MEDIAN_MILLIS);
+    }
+
+    private static String word(Random random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        word[0] = Character.toUpperCase(word[0]);
+        return new String(word);
+    }
+
+    private int deleteRows() {
+        return dbHelper.getWritableDatabase().delete(DatabaseDescription.AccountData.TABLE_NAME, SELECTION, null);
+    }
+}
@@ -0,0 +1,185 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stresses the shared database of DatabaseHelper: readers, user lookups and a
+ * writer run at the same time on the one helper of the process. Readers must
+ * never fail, never wait for a write transaction and only ever see committed
+ * batches. The rows are written for a user id no registered user has, and
+ * deleted afterwards.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperConcurrencyTest {
+
+    private static final String USER_ID = "-4711";
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_USER_ID + " = ?";
+
+    private static final int READERS = 4;
+    private static final int BATCHES = 50;
+    private static final int BATCH_SIZE = 40;
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbHelper = DatabaseHelper.getInstance(context);
+        deleteRows();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRows();
+    }
+
+    @Test
+    public void oneHelperPerProcess() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        assertSame(dbHelper, DatabaseHelper.getInstance(context.getApplicationContext()));
+        assertTrue(dbHelper.getWritableDatabase().isWriteAheadLoggingEnabled());
+    }
+
+    @Test
+    public void readersSeeOnlyCommittedBatchesWhileWriting() throws Exception {
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            Future<Integer> writer = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    try {
+                        for (int batch = 0; batch < BATCHES; batch++) {
+                            insertBatch(batch);
+                        }
+                        return BATCHES * BATCH_SIZE;
+                    } finally {
+                        writing.set(false);
+                    }
+                }
+            });
+
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                final boolean lookUpUsers = r % 2 == 0;
+                readers.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int reads = 0;
+                        long last = 0;
+                        while (writing.get()) {
+                            long count = countRows();
+                            assertEquals("saw part of a batch", 0, count % BATCH_SIZE);
+                            assertTrue("went back in time", count >= last);
+                            last = count;
+                            if (lookUpUsers) {
+                                // used to close the database under the other threads
+                                dbHelper.checkUser("nobody@example.com");
+                            }
+                            reads++;
+                        }
+                        return reads;
+                    }
+                }));
+            }
+
+            assertEquals(BATCHES * BATCH_SIZE, (int) writer.get(60, TimeUnit.SECONDS));
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+            }
+            assertEquals(BATCHES * BATCH_SIZE, countRows());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readerDoesNotWaitForAnOpenTransaction() throws Exception {
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch read = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    SQLiteDatabase db = dbHelper.getWritableDatabase();
+                    db.beginTransaction();
+                    try {
+                        db.insert(DatabaseDescription.AccountData.TABLE_NAME, null, account(0));
+                        inserted.countDown();
+                        assertTrue(read.await(10, TimeUnit.SECONDS));
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    return null;
+                }
+            });
+
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            // the write transaction is still open
+            assertEquals(0, countRows());
+            read.countDown();
+
+            writer.get(10, TimeUnit.SECONDS);
+            assertEquals(1, countRows());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertBatch(int batch) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                db.insert(DatabaseDescription.AccountData.TABLE_NAME, null, account(batch * BATCH_SIZE + i));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static ContentValues account(int i) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseDescription.AccountData.COLUMN_USER_ID, USER_ID);
+        values.put(DatabaseDescription.AccountData.COLUMN_NAME, "stress " + i);
+        values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB, new byte[]{(byte) i});
+        return values;
+    }
+
+    private long countRows() {
+        return DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(),
+                DatabaseDescription.AccountData.TABLE_NAME, SELECTION, new String[]{USER_ID});
+    }
+
+    private void deleteRows() {
+        dbHelper.getWritableDatabase().delete(DatabaseDescription.AccountData.TABLE_NAME, SELECTION,
+                new String[]{USER_ID});
+    }
+}
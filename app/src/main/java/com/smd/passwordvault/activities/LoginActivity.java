@@ -1,5 +1,6 @@
 package com.smd.passwordvault.activities;
 
+import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -16,8 +17,8 @@ import android.view.View;
 
 import com.smd.passwordvault.R;
 import com.smd.passwordvault.helpers.Constants;
-import com.smd.passwordvault.helpers.EncryptionUtil;
 import com.smd.passwordvault.helpers.InputValidation;
+import com.smd.passwordvault.helpers.VaultSession;
 import com.smd.passwordvault.sql.DatabaseHelper;
 
 public class LoginActivity extends AppCompatActivity implements View.OnClickListener {
@@ -42,6 +43,9 @@ public class LoginActivity extends AppCompatActivity implements View.OnClickList
     private InputValidation inputValidation;
     private DatabaseHelper databaseHelper;
 
+    // shown while the vault is opened
+    private ProgressDialog progressDialog;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -87,7 +91,7 @@ public class LoginActivity extends AppCompatActivity implements View.OnClickList
      * This method is to initialize objects to be used
      */
     private void initObjects() {
-        databaseHelper = new DatabaseHelper(activity);
+        databaseHelper = DatabaseHelper.getInstance(activity);
         inputValidation = new InputValidation(activity);
 
     }
@@ -126,21 +130,53 @@ public class LoginActivity extends AppCompatActivity implements View.OnClickList
         }
 
         Log.v(TAG, "++++ 1 +++++++");
-        String origPwd = textInputEditTextPassword.getText().toString().trim();
-        String encPwd = origPwd;
-        try{
-            encPwd = EncryptionUtil.createPasswordHash(origPwd);
-        }
-        catch (Exception ex){
-            Log.e(TAG,"Error while calculating a oneway hash of the password for:" +
-                    textInputEditTextEmail.getText().toString().trim());
-        }
-        int loggedInUserId = databaseHelper.checkUser(textInputEditTextEmail.getText().toString().trim()
-                , encPwd);
-        Log.v(TAG, "++++ Logged In UserId:" + loggedInUserId);
+        final String email = textInputEditTextEmail.getText().toString().trim();
+        final String origPwd = textInputEditTextPassword.getText().toString().trim();
+
+        // the key derivation, and for outdated records the calibration, rehash
+        // and re-encryption of the vault, take seconds; they run on a thread
+        // while the user waits for the vault to open
+        progressDialog = new ProgressDialog(activity);
+        progressDialog.setMessage(getString(R.string.progress_login));
+        progressDialog.setIndeterminate(true);
+        progressDialog.setCancelable(false);
+        progressDialog.show();
+
+        Thread login = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // verifies with the user's stored KDF parameters and unlocks the vault
+                final int loggedInUserId = databaseHelper.checkUser(email, origPwd);
+                Log.v(TAG, "++++ Logged In UserId:" + loggedInUserId);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        dismissProgressDialog();
+                        if (isFinishing() || isDestroyed()) {
+                            // nothing goes on to the vault this opened
+                            if (loggedInUserId > 0) {
+                                VaultSession.lock();
+                            }
+                            return;
+                        }
+                        onLoginChecked(email, loggedInUserId);
+                    }
+                });
+            }
+        }, "Login");
+        login.start();
+    }
+
+    /**
+     * This method is to open the vault of the user, or tell that the credentials are wrong
+     *
+     * @param email          the email the user logged in with
+     * @param loggedInUserId the id of the user, or 0 if the email and password do not match
+     */
+    private void onLoginChecked(String email, int loggedInUserId) {
         if (loggedInUserId > 0) {
             Intent accountsIntent = new Intent(activity, MainActivity.class); // TODO: change this
-            accountsIntent.putExtra("EMAIL", textInputEditTextEmail.getText().toString().trim());
+            accountsIntent.putExtra("EMAIL", email);
             emptyInputEditText();
 
             SharedPreferences.Editor editor = sharedpreferences.edit();
@@ -156,6 +192,22 @@ public class LoginActivity extends AppCompatActivity implements View.OnClickList
         }
     }
 
+    /**
+     * This method is to dismiss the progress dialog, if it is shown
+     */
+    private void dismissProgressDialog() {
+        if (progressDialog != null) {
+            progressDialog.dismiss();
+            progressDialog = null;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        dismissProgressDialog();
+        super.onDestroy();
+    }
+
     /**
      * This method is to empty all input edit text
      */
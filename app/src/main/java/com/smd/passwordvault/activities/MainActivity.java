@@ -1,5 +1,6 @@
 package com.smd.passwordvault.activities;
 
+import android.content.Intent;
 import android.net.Uri;
 import android.support.v4.app.FragmentTransaction;
 import android.support.v7.app.AppCompatActivity;
@@ -12,6 +13,7 @@ import com.smd.passwordvault.R;
 import com.smd.passwordvault.fragments.AccountsFragment;
 import com.smd.passwordvault.fragments.AddEditFragment;
 import com.smd.passwordvault.fragments.DetailFragment;
+import com.smd.passwordvault.helpers.VaultSession;
 
 public class MainActivity extends AppCompatActivity
         implements AccountsFragment.AccountsFragmentListener,
@@ -29,6 +31,15 @@ public class MainActivity extends AppCompatActivity
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // the vault key only lives in memory, so after a process restart
+        // the user has to log in again before the accounts can be read
+        if (!VaultSession.isUnlocked()) {
+            startActivity(new Intent(this, LoginActivity.class));
+            finish();
+            return;
+        }
+
         setContentView(R.layout.activity_main);
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
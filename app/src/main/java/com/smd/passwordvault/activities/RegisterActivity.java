@@ -1,5 +1,6 @@
 package com.smd.passwordvault.activities;
 
+import android.app.ProgressDialog;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.design.widget.Snackbar;
@@ -13,11 +14,16 @@ import android.util.Log;
 import android.view.View;
 
 import com.smd.passwordvault.R;
-import com.smd.passwordvault.helpers.EncryptionUtil;
 import com.smd.passwordvault.helpers.InputValidation;
+import com.smd.passwordvault.helpers.KdfCalibrator;
+import com.smd.passwordvault.helpers.PasswordHash;
+import com.smd.passwordvault.helpers.PasswordStrengthWatcher;
+import com.smd.passwordvault.helpers.VaultKeys;
 import com.smd.passwordvault.model.User;
 import com.smd.passwordvault.sql.DatabaseHelper;
 
+import java.util.Map;
+
 
 public class RegisterActivity extends AppCompatActivity implements View.OnClickListener {
 
@@ -38,10 +44,14 @@ public class RegisterActivity extends AppCompatActivity implements View.OnClickL
 
     private AppCompatButton appCompatButtonRegister;
     private AppCompatTextView appCompatTextViewLoginLink;
+    private AppCompatTextView appCompatTextViewPasswordStrength;
 
     private InputValidation inputValidation;
+    private PasswordStrengthWatcher passwordStrengthWatcher;
     private DatabaseHelper databaseHelper;
-    private User user;
+
+    // shown while the KDF is calibrated and the user saved
+    private ProgressDialog progressDialog;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -73,6 +83,7 @@ public class RegisterActivity extends AppCompatActivity implements View.OnClickL
         appCompatButtonRegister = (AppCompatButton) findViewById(R.id.appCompatButtonRegister);
 
         appCompatTextViewLoginLink = (AppCompatTextView) findViewById(R.id.appCompatTextViewLoginLink);
+        appCompatTextViewPasswordStrength = (AppCompatTextView) findViewById(R.id.appCompatTextViewPasswordStrength);
 
     }
 
@@ -82,6 +93,8 @@ public class RegisterActivity extends AppCompatActivity implements View.OnClickL
     private void initListeners() {
         appCompatButtonRegister.setOnClickListener(this);
         appCompatTextViewLoginLink.setOnClickListener(this);
+        passwordStrengthWatcher = new PasswordStrengthWatcher(appCompatTextViewPasswordStrength);
+        textInputEditTextPassword.addTextChangedListener(passwordStrengthWatcher);
 
     }
 
@@ -90,12 +103,19 @@ public class RegisterActivity extends AppCompatActivity implements View.OnClickL
      */
     private void initObjects() {
         inputValidation = new InputValidation(activity);
-        databaseHelper = new DatabaseHelper(activity);
-        user = new User();
+        databaseHelper = DatabaseHelper.getInstance(activity);
 
     }
 
 
+    @Override
+    protected void onDestroy() {
+        dismissProgressDialog();
+        super.onDestroy();
+        // wipe the copy of the master password kept for the strength meter
+        passwordStrengthWatcher.clear();
+    }
+
     /**
      * This implemented method is to listen the click on view
      *
@@ -136,34 +156,104 @@ public class RegisterActivity extends AppCompatActivity implements View.OnClickL
                 textInputLayoutConfirmPassword, getString(R.string.error_password_match))) {
             return;
         }
+        // the master password must not be one attackers try first
+        if (!inputValidation.isInputEditTextNotBreached(textInputEditTextPassword, textInputLayoutPassword, getString(R.string.error_password_breached))) {
+            return;
+        }
 
-        if (!databaseHelper.checkUser(textInputEditTextEmail.getText().toString().trim())) {
-
-            user.setName(textInputEditTextName.getText().toString().trim());
-            user.setEmail(textInputEditTextEmail.getText().toString().trim());
-            String origPwd = textInputEditTextPassword.getText().toString().trim();
-            String encPwd = origPwd;
-            try{
-                encPwd = EncryptionUtil.createPasswordHash(origPwd);
-            }
-            catch (Exception ex){
-                Log.e(TAG,"Error while calculating a oneway hash of the password for:" + user.getEmail());
+        // the register thread fills in the rest, and hands it back to the UI thread
+        final User user = new User();
+        user.setName(textInputEditTextName.getText().toString().trim());
+        user.setEmail(textInputEditTextEmail.getText().toString().trim());
+        final String origPwd = textInputEditTextPassword.getText().toString().trim();
+
+        // calibrating the KDF runs it several times; it and the hash run on a
+        // thread while the user waits
+        progressDialog = new ProgressDialog(activity);
+        progressDialog.setMessage(getString(R.string.progress_register));
+        progressDialog.setIndeterminate(true);
+        progressDialog.setCancelable(false);
+        progressDialog.show();
+
+        Thread register = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final int message = registerUser(user, origPwd);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        dismissProgressDialog();
+                        if (isFinishing() || isDestroyed()) {
+                            return;
+                        }
+                        onRegistered(user, message);
+                    }
+                });
             }
-            user.setPassword(encPwd);
-
-            databaseHelper.addUser(user);
+        }, "Register");
+        register.start();
+    }
 
-            // Snack Bar to show success message that record saved successfully
-            Snackbar.make(nestedScrollView, getString(R.string.success_message), Snackbar.LENGTH_LONG).show();
+    /**
+     * This method is to tell the user how the registration went
+     *
+     * @param user    the user registered
+     * @param message the message registerUser() returned
+     */
+    private void onRegistered(User user, int message) {
+        if (message == R.string.success_message) {
+            Log.v(TAG, "++++ Registered:" + user.getEmail());
             emptyInputEditText();
+        }
+        Snackbar.make(nestedScrollView, getString(message), Snackbar.LENGTH_LONG).show();
+    }
 
+    /**
+     * This method is to dismiss the progress dialog, if it is shown
+     */
+    private void dismissProgressDialog() {
+        if (progressDialog != null) {
+            progressDialog.dismiss();
+            progressDialog = null;
+        }
+    }
 
-        } else {
-            // Snack Bar to show error message that record already exists
-            Snackbar.make(nestedScrollView, getString(R.string.error_email_exists), Snackbar.LENGTH_LONG).show();
+    /**
+     * This method is to hash the master password and save the user, off the UI thread
+     *
+     * @param user    the user to save, with its name and email
+     * @param origPwd the plain text master password
+     * @return the message to show: registered, email taken, or failed
+     */
+    private int registerUser(User user, String origPwd) {
+        if (databaseHelper.checkUser(user.getEmail())) {
+            // record already exists
+            return R.string.error_email_exists;
+        }
+
+        String verifier = null;
+        try{
+            // the highest cost this device runs within the target unlock time
+            Map<String, Integer> params = KdfCalibrator.calibrateParameters(
+                    PasswordHash.CURRENT_ALGORITHM, KdfCalibrator.TARGET_UNLOCK_MILLIS);
+            user.setKdfTargetMillis(KdfCalibrator.TARGET_UNLOCK_MILLIS);
+
+            // self describing hash with a random salt
+            VaultKeys vaultKeys = PasswordHash.create(origPwd, PasswordHash.CURRENT_ALGORITHM, params);
+            verifier = vaultKeys.getVerifier();
+            // the vault key is derived again at login, it is never stored
+            vaultKeys.destroy();
+        }
+        catch (Exception ex){
+            Log.e(TAG,"Error while deriving the password verifier for:" + user.getEmail());
+            return R.string.error_register_failed;
         }
+        user.setPassword(verifier);
 
+        databaseHelper.addUser(user);
 
+        // record saved successfully
+        return R.string.success_message;
     }
 
     /**
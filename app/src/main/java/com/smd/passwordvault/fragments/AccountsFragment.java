@@ -2,19 +2,24 @@
 // Fragment subclass that displays the alphabetical list of contact names
 package com.smd.passwordvault.fragments;
 
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v4.app.Fragment;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
-import android.support.v4.content.Loader;
+import android.support.v4.view.MenuItemCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -24,12 +29,25 @@ import android.view.ViewGroup;
 
 import com.smd.passwordvault.R;
 import com.smd.passwordvault.activities.LoginActivity;
+import com.smd.passwordvault.helpers.BreachedPasswordsLoader;
+import com.smd.passwordvault.helpers.CipherEngine;
 import com.smd.passwordvault.helpers.Constants;
+import com.smd.passwordvault.helpers.PagedList;
+import com.smd.passwordvault.helpers.PasswordFingerprinter;
+import com.smd.passwordvault.helpers.VaultAudit;
+import com.smd.passwordvault.helpers.VaultSession;
+import com.smd.passwordvault.sql.AccountPageLoader;
 import com.smd.passwordvault.sql.AccountsAdapter;
 import com.smd.passwordvault.sql.DatabaseDescription;
+import com.smd.passwordvault.sql.DatabaseHelper;
+import com.smd.passwordvault.sql.VaultAuditor;
 
-public class AccountsFragment extends Fragment
-   implements LoaderManager.LoaderCallbacks<Cursor> {
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AccountsFragment extends Fragment {
 
    // callback method implemented by MainActivity
    public interface AccountsFragmentListener {
@@ -40,14 +58,38 @@ public class AccountsFragment extends Fragment
       void onAddAccount();
    }
 
+   private static final String TAG = "AccountsFragment";
+
    private SharedPreferences sharedpreferences;
-   private static final int ACCOUNTS_LOADER = 0; // identifies Loader
+
+   // the list holds at most MAX_PAGES pages of PAGE_SIZE accounts around
+   // the scroll position, and loads PREFETCH_PAGES pages ahead of it
+   private static final int PAGE_SIZE = 50;
+   private static final int PREFETCH_PAGES = 2;
+   private static final int MAX_PAGES = 7;
 
    // used to inform the MainActivity when a contact is selected
    private AccountsFragmentListener listener;
 
    private AccountsAdapter accountsAdapter; // adapter for recyclerView
 
+   // text of the search box, or null to list all accounts
+   private String searchText;
+
+   // the accounts shown, read page by page as the list scrolls, and the
+   // accounts of a new search until their first pages are read
+   private PagedList<AccountPageLoader.Account> shownAccounts;
+   private PagedList<AccountPageLoader.Account> accounts;
+
+   // reads the pages of the list, one at a time
+   private ExecutorService pageExecutor;
+
+   // runs the callbacks of the list on the main thread
+   private Executor mainExecutor;
+
+   // reads the list again when an account changes
+   private ContentObserver accountsObserver;
+
    // configures this fragment's GUI
    @Override
    public View onCreateView(
@@ -116,11 +158,54 @@ public class AccountsFragment extends Fragment
       listener = null;
    }
 
-   // initialize a Loader when this fragment's activity is created
+   // start reading the accounts when this fragment's activity is created
    @Override
    public void onActivityCreated(Bundle savedInstanceState) {
       super.onActivityCreated(savedInstanceState);
-      getLoaderManager().initLoader(ACCOUNTS_LOADER, null, this);
+      pageExecutor = Executors.newSingleThreadExecutor();
+      final Handler handler = new Handler();
+      mainExecutor = new Executor() {
+         @Override
+         public void execute(Runnable command) {
+            handler.post(command);
+         }
+      };
+
+      // the provider notifies the accounts Uri or the Uri of one account
+      accountsObserver = new ContentObserver(handler) {
+         @Override
+         public void onChange(boolean selfChange) {
+            if (accounts != null)
+               accounts.reset();
+         }
+      };
+      getContext().getContentResolver().registerContentObserver(
+         DatabaseDescription.AccountData.CONTENT_URI, true, accountsObserver);
+
+      loadAccounts();
+   }
+
+   // stop reading the accounts when the list is gone
+   @Override
+   public void onDestroyView() {
+      super.onDestroyView();
+      if (accountsObserver != null) {
+         getContext().getContentResolver().unregisterContentObserver(
+            accountsObserver);
+         accountsObserver = null;
+      }
+      if (shownAccounts != null) {
+         shownAccounts.close();
+         shownAccounts = null;
+      }
+      if (accounts != null) {
+         accounts.close();
+         accounts = null;
+      }
+      if (pageExecutor != null) {
+         pageExecutor.shutdown();
+         pageExecutor = null;
+      }
    }
 
    // called from MainActivity when other Fragment's update database
@@ -128,34 +213,52 @@ public class AccountsFragment extends Fragment
       accountsAdapter.notifyDataSetChanged();
    }
 
-   // called by LoaderManager to create a Loader
-   @Override
-   public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-      // create an appropriate CursorLoader based on the id argument;
-      // only one Loader in this fragment, so the switch is unnecessary
-      switch (id) {
-         case ACCOUNTS_LOADER:
-            return new CursorLoader(getActivity(),
-               DatabaseDescription.AccountData.CONTENT_URI, // Uri of contacts table
-               null, // null projection returns all columns
-               null, // null selection returns all rows
-               null, // no selection arguments
-               DatabaseDescription.AccountData.COLUMN_NAME + " COLLATE NOCASE ASC"); // sort order
-         default:
-            return null;
-      }
-   }
+   // replaces the list with all accounts, or those matching the search
+   // box, sorted by name; only the pages around the scroll position are
+   // held, however many accounts there are
+   private void loadAccounts() {
+      Uri accountsUri = searchText == null ?
+         DatabaseDescription.AccountData.CONTENT_URI :
+         DatabaseDescription.AccountData.buildSearchUri(searchText);
 
-   // called by LoaderManager when loading completes
-   @Override
-   public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-      accountsAdapter.swapCursor(data);
+      // a list still reading its first pages is replaced right away
+      if (accounts != null && accounts != shownAccounts)
+         accounts.close();
+
+      AccountsListener accountsListener = new AccountsListener();
+      accounts = new PagedList<>(
+         new AccountPageLoader(getContext().getContentResolver(), accountsUri),
+         PAGE_SIZE, PREFETCH_PAGES, MAX_PAGES, pageExecutor, mainExecutor,
+         accountsListener);
+      accountsListener.list = accounts;
+      accounts.reset(); // reads the first pages
    }
 
-   // called by LoaderManager when the Loader is being reset
-   @Override
-   public void onLoaderReset(Loader<Cursor> loader) {
-      accountsAdapter.swapCursor(null);
+   // updates the RecyclerView for one list of accounts
+   private class AccountsListener implements PagedList.Listener {
+      private PagedList<AccountPageLoader.Account> list;
+
+      // called when the list was read again
+      @Override
+      public void onReset(int size) {
+         if (list == shownAccounts) {
+            accountsAdapter.notifyDataSetChanged();
+            return;
+         }
+
+         // the first pages of a new list are read, it replaces the shown one
+         if (shownAccounts != null)
+            shownAccounts.close();
+         shownAccounts = list;
+         accountsAdapter.swapAccounts(list);
+      }
+
+      // called when the accounts of a page can be bound
+      @Override
+      public void onPageLoaded(int position, int count) {
+         if (list == shownAccounts)
+            accountsAdapter.notifyItemRangeChanged(position, count);
+      }
    }
 
    // display this fragment's menu items
@@ -163,6 +266,37 @@ public class AccountsFragment extends Fragment
    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
       super.onCreateOptionsMenu(menu, inflater);
       inflater.inflate(R.menu.fragment_accounts_menu, menu);
+
+      // search as the user types; the list is reloaded on every change
+      SearchView searchView = (SearchView) MenuItemCompat.getActionView(
+         menu.findItem(R.id.action_search));
+      searchView.setQueryHint(getString(R.string.hint_search));
+      searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+         @Override
+         public boolean onQueryTextSubmit(String query) {
+            search(query);
+            return false; // let the SearchView hide the keyboard
+         }
+
+         @Override
+         public boolean onQueryTextChange(String newText) {
+            search(newText);
+            return true;
+         }
+      });
+   }
+
+   // lists the accounts whose name has words starting with the typed ones,
+   // or all accounts when the search box is empty
+   private void search(String text) {
+      String trimmed = text.trim();
+      String newSearchText = trimmed.isEmpty() ? null : trimmed;
+      if (newSearchText == null ? searchText == null :
+         newSearchText.equals(searchText))
+         return;
+
+      searchText = newSearchText;
+      loadAccounts();
    }
 
    // handle menu item selections
@@ -176,15 +310,108 @@ public class AccountsFragment extends Fragment
             editor.putInt(Constants.USER_ID_KEY, 0);
             editor.clear();
             editor.apply();
+            // wipe the vault key
+            VaultSession.lock();
             // Navigate to LoginActivity
             Intent intentRegister = new Intent(getContext(), LoginActivity.class);
             startActivity(intentRegister);
             return true;
+         case R.id.action_audit:
+            auditVault();
+            return true;
       }
 
       return super.onOptionsItemSelected(item);
    }
 
+   // audits the passwords of the vault on a background thread, showing its
+   // progress and then its summary
+   private void auditVault() {
+      final int userId = VaultSession.getUserId();
+      final CipherEngine cipherEngine = VaultSession.getCipherEngine();
+      final PasswordFingerprinter fingerprinter =
+         VaultSession.getPasswordFingerprinter();
+      final Activity activity = getActivity();
+      final VaultAuditor auditor =
+         new VaultAuditor(DatabaseHelper.getInstance(activity));
+
+      final ProgressDialog progressDialog = new ProgressDialog(activity);
+      progressDialog.setTitle(R.string.audit_title);
+      progressDialog.setMessage(getString(R.string.audit_running));
+      progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+      progressDialog.setButton(DialogInterface.BUTTON_NEGATIVE,
+         getString(R.string.button_cancel),
+         new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+               dialog.cancel();
+            }
+         });
+      // back button and Cancel both stop the audit
+      progressDialog.setOnCancelListener(
+         new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+               auditor.cancel();
+            }
+         });
+      progressDialog.show();
+
+      Thread audit = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            String summary;
+            try {
+               VaultAudit.Report report = auditor.run(userId, cipherEngine,
+                  fingerprinter, BreachedPasswordsLoader.newBreachCheck(activity),
+                  new VaultAuditor.Listener() {
+                     @Override
+                     public void onProgress(final int analyzed, final int total) {
+                        activity.runOnUiThread(new Runnable() {
+                           @Override
+                           public void run() {
+                              progressDialog.setMax(total);
+                              progressDialog.setProgress(analyzed);
+                           }
+                        });
+                     }
+                  });
+               summary = activity.getString(R.string.audit_summary,
+                  report.getAccounts(), report.getWeak(), report.getBreached(),
+                  report.getReused(), report.getReusedPasswords(),
+                  report.getNearDuplicates());
+               if (report.getUnreadable() > 0)
+                  summary = activity.getString(R.string.audit_summary_unreadable,
+                     summary, report.getUnreadable());
+            }
+            catch (CancellationException ex) {
+               return; // the user cancelled, the dialog is already gone
+            }
+            catch (Exception ex) {
+               Log.e(TAG, "Error while auditing the vault", ex);
+               summary = activity.getString(R.string.audit_failed);
+            }
+
+            final String message = summary;
+            activity.runOnUiThread(new Runnable() {
+               @Override
+               public void run() {
+                  if (activity.isFinishing())
+                     return;
+                  progressDialog.dismiss();
+                  new AlertDialog.Builder(activity)
+                     .setTitle(R.string.audit_title)
+                     .setMessage(message)
+                     .setPositiveButton(R.string.button_ok, null)
+                     .show();
+               }
+            });
+         }
+      }, "VaultAudit");
+      audit.setPriority(Thread.NORM_PRIORITY - 1);
+      audit.start();
+   }
+
 }
 
 
@@ -6,7 +6,6 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.design.widget.FloatingActionButton;
@@ -27,14 +26,18 @@ import android.view.inputmethod.InputMethodManager;
 
 import com.smd.passwordvault.R;
 import com.smd.passwordvault.activities.MainActivity;
-import com.smd.passwordvault.helpers.EncryptionUtil;
+import com.smd.passwordvault.helpers.VaultSession;
+import com.smd.passwordvault.helpers.BreachLookup;
+import com.smd.passwordvault.helpers.BreachedPasswordsLoader;
 import com.smd.passwordvault.helpers.GeneratePassword;
+import com.smd.passwordvault.helpers.PassphraseGenerator;
+import com.smd.passwordvault.helpers.PasswordPolicy;
+import com.smd.passwordvault.helpers.PasswordStrengthWatcher;
+import com.smd.passwordvault.helpers.WordList;
+import com.smd.passwordvault.helpers.WordListLoader;
 import com.smd.passwordvault.sql.DatabaseDescription;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Scanner;
+import java.io.IOException;
 
 
 public class AddEditFragment extends Fragment
@@ -62,6 +65,10 @@ public class AddEditFragment extends Fragment
    private FloatingActionButton saveAccountFAB;
 
    private AppCompatTextView textViewLinkSuggestPassword;
+   private AppCompatTextView textViewLinkSuggestPassphrase;
+
+   // shows the strength of the password while it is typed
+   private PasswordStrengthWatcher passwordStrengthWatcher;
 
    private CoordinatorLayout coordinatorLayout; // used with SnackBars
 
@@ -97,6 +104,10 @@ public class AddEditFragment extends Fragment
 
       passwordTextInputLayout =
          (TextInputLayout) view.findViewById(R.id.passwordTextInputLayout);
+      passwordStrengthWatcher = new PasswordStrengthWatcher(
+         (AppCompatTextView) view.findViewById(R.id.textViewPasswordStrength));
+      passwordTextInputLayout.getEditText().addTextChangedListener(
+         passwordStrengthWatcher);
 
       suggestPasswordTextInputLayout =
               (TextInputLayout) view.findViewById(R.id.suggestPasswordTextInputLayout);
@@ -105,6 +116,14 @@ public class AddEditFragment extends Fragment
 
       textViewLinkSuggestPassword.setOnClickListener(this);
 
+      textViewLinkSuggestPassphrase = (AppCompatTextView) view.findViewById(R.id.textViewLinkSuggestPassphrase);
+
+      textViewLinkSuggestPassphrase.setOnClickListener(this);
+
+      // builds without the word list asset do not offer passphrases
+      if (!WordListLoader.isAvailable(getContext()))
+         textViewLinkSuggestPassphrase.setVisibility(View.GONE);
+
       // set FloatingActionButton's event listener
       saveAccountFAB = (FloatingActionButton) view.findViewById(
          R.id.saveFloatingActionButton);
@@ -129,6 +148,13 @@ public class AddEditFragment extends Fragment
       return view;
    }
 
+   // wipe the copy of the password kept for the strength meter
+   @Override
+   public void onDestroyView() {
+      super.onDestroyView();
+      passwordStrengthWatcher.clear();
+   }
+
    // detects when the text in the nameTextInputLayout's EditText changes
    // to hide or show saveButtonFAB
    private final TextWatcher nameChangedListener = new TextWatcher() {
@@ -181,14 +207,28 @@ public class AddEditFragment extends Fragment
 
       // encrypt the password before saving it to the database
       String origPwd =passwordTextInputLayout.getEditText().getText().toString();
-      String encPwd = origPwd;
+      byte[] encPwd = null;
       try{
-         encPwd = EncryptionUtil.encryptPassword(origPwd);
+         encPwd = VaultSession.getCipherEngine().encryptToBytes(origPwd);
       }
       catch (Exception ex){
          Log.e(TAG,"Error while encrypting password for:" + nameTextInputLayout.getEditText().getText().toString());
       }
-      contentValues.put(DatabaseDescription.AccountData.COLUMN_PASSWORD, encPwd);
+
+      // saving without it would erase the stored password of the account
+      if (encPwd == null) {
+         Snackbar.make(coordinatorLayout,
+            R.string.account_password_not_encrypted, Snackbar.LENGTH_LONG).show();
+         return;
+      }
+      contentValues.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB, encPwd);
+
+      // the account is saved anyway, the password may not be the user's to change
+      int breach = BreachedPasswordsLoader.check(getContext(), origPwd);
+      int savedMessage = breach == BreachLookup.BREACHED ?
+         R.string.account_saved_password_breached :
+         breach == BreachLookup.PROBABLY_BREACHED ?
+            R.string.account_saved_password_probably_breached : 0;
 
       if (addingNewAccount) {
          // use Activity's ContentResolver to invoke
@@ -198,7 +238,8 @@ public class AddEditFragment extends Fragment
 
          if (newAccountUri != null) {
             Snackbar.make(coordinatorLayout,
-               R.string.account_added, Snackbar.LENGTH_LONG).show();
+               savedMessage != 0 ? savedMessage : R.string.account_added,
+               Snackbar.LENGTH_LONG).show();
             listener.onAddEditCompleted(newAccountUri);
          }
          else {
@@ -215,7 +256,8 @@ public class AddEditFragment extends Fragment
          if (updatedRows > 0) {
             listener.onAddEditCompleted(accountUri);
             Snackbar.make(coordinatorLayout,
-               R.string.account_updated, Snackbar.LENGTH_LONG).show();
+               savedMessage != 0 ? savedMessage : R.string.account_updated,
+               Snackbar.LENGTH_LONG).show();
          }
          else {
             Snackbar.make(coordinatorLayout,
@@ -249,17 +291,16 @@ public class AddEditFragment extends Fragment
       if (data != null && data.moveToFirst()) {
          // get the column index for each data item
          int nameIndex = data.getColumnIndex(DatabaseDescription.AccountData.COLUMN_NAME);
-         int passwordIndex = data.getColumnIndex(DatabaseDescription.AccountData.COLUMN_PASSWORD);
 
          // fill EditTexts with the retrieved data
          nameTextInputLayout.getEditText().setText(
             data.getString(nameIndex));
 
          // decrypt the password to show it in plain text to the user
-         String encPwd = data.getString(passwordIndex);
-         String plainPwd = encPwd;
+         byte[] encPwd = DatabaseDescription.AccountData.getEncryptedPassword(data);
+         String plainPwd = null;
          try{
-            plainPwd = EncryptionUtil.decryptPassword(encPwd);
+            plainPwd = VaultSession.getCipherEngine().decrypt(encPwd);
          }
          catch (Exception ex){
             Log.e(TAG,"Error while decrypting the password for:" + nameTextInputLayout.getEditText().getText());
@@ -285,75 +326,23 @@ public class AddEditFragment extends Fragment
    public void onClick(View v) {
       switch (v.getId()) {
          case R.id.textViewLinkSuggestPassword:
-            //suggestPasswordTextInputLayout.getEditText().setText(GeneratePassword.newPassword());
-            //suggestPasswordTextInputLayout.getEditText().setText(EncryptionUtil.generateRandomPassword(10));
-            URL url = createURL();
-            if (url != null) {
-               GetRandomPasswordTask getRandomPasswordTask = new GetRandomPasswordTask();
-               getRandomPasswordTask.execute(url);
-            }
-            else {
-//               Snackbar.make(findViewById(R.id.coordinatorLayout),
-//                       R.string.invalid_url, Snackbar.LENGTH_LONG).show();
-            }
-
+            // generated on the device, no network round trip
+            suggestPasswordTextInputLayout.getEditText().setText(
+               GeneratePassword.newPassword(PasswordPolicy.DEFAULT));
             break;
-      }
-   }
-
-   private URL createURL() {
-      String apiURL = "https://randommer.io/api/Text/Password?length=12&hasDigits=true&hasUppercase=true&hasSpecial=true";
-
-      try {
-         return new URL(apiURL);
-      }
-      catch (Exception e) {
-         Log.e(TAG, "~Error while creating the URL");
-      }
-      return null; // URL was malformed
-   }
-
-
-   // makes the REST web service call to get weather data and
-   // saves the data to a local HTML file
-   private class GetRandomPasswordTask
-           extends AsyncTask<URL, Void, String> {
-
-      @Override
-      protected String doInBackground(URL... params) {
-         String apiKey = "34d00eae19e04f6eb2123cdf2a59e1e1";
-         String pwd = "<ERROR>";
-         HttpURLConnection con = null;
-         try {
-            con = (HttpURLConnection) params[0].openConnection();
-            con.setRequestMethod("GET");
-            con.setRequestProperty("X-Api-Key", apiKey);
-            con.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/65.0.3325.181 Safari/537.36");
-            int response = con.getResponseCode();
-            if (response == 200) {
-               InputStream is = con.getInputStream();
-               Scanner s = new Scanner(is);
-               pwd = s.hasNext() ? s.next() : "";
-            }
-            else {
-               // throw new RuntimeException("HttpResponseCode: " + response);
+         case R.id.textViewLinkSuggestPassphrase:
+            try {
+               // the word list is memory mapped on first use
+               WordList wordList = WordListLoader.load(getContext());
+               suggestPasswordTextInputLayout.getEditText().setText(
+                  GeneratePassword.newPassphrase(wordList, PassphraseGenerator.DEFAULT_WORDS));
             }
-         }
-         catch (Exception ex){
-            Log.e(TAG, "~Error while getting the connection and random password using REST API");
-         }
-         finally {
-            if(con != null){
-               con.disconnect(); // close the HttpURLConnection
+            catch (IOException ex) {
+               Log.e(TAG, "Error while loading the passphrase word list", ex);
+               Snackbar.make(coordinatorLayout,
+                  R.string.error_wordlist_missing, Snackbar.LENGTH_LONG).show();
             }
-         }
-         return pwd;
-      }
-
-      // process JSON response and update ListView
-      @Override
-      protected void onPostExecute(String randomPassword) {
-         suggestPasswordTextInputLayout.getEditText().setText(randomPassword);
+            break;
       }
    }
 
@@ -29,7 +29,7 @@ import com.smd.passwordvault.R;
 import com.smd.passwordvault.activities.LoginActivity;
 import com.smd.passwordvault.activities.MainActivity;
 import com.smd.passwordvault.helpers.Constants;
-import com.smd.passwordvault.helpers.EncryptionUtil;
+import com.smd.passwordvault.helpers.VaultSession;
 import com.smd.passwordvault.sql.DatabaseDescription;
 
 public class DetailFragment extends Fragment
@@ -122,6 +122,8 @@ public class DetailFragment extends Fragment
             editor.putInt(Constants.USER_ID_KEY, 0);
             editor.clear();
             editor.apply();
+            // wipe the vault key
+            VaultSession.lock();
             // Navigate to LoginActivity
             Intent intentRegister = new Intent(getContext(), LoginActivity.class);
             startActivity(intentRegister);
@@ -202,16 +204,15 @@ public class DetailFragment extends Fragment
       if (data != null && data.moveToFirst()) {
          // get the column index for each data item
          int nameIndex = data.getColumnIndex(DatabaseDescription.AccountData.COLUMN_NAME);
-         int passwordIndex = data.getColumnIndex(DatabaseDescription.AccountData.COLUMN_PASSWORD);
 
          // fill TextViews with the retrieved data
          nameTextView.setText(data.getString(nameIndex));
 
          // decrypt the password to show it in plain text to the user
-         String encPwd = data.getString(passwordIndex);
-         String plainPwd = encPwd;
+         byte[] encPwd = DatabaseDescription.AccountData.getEncryptedPassword(data);
+         String plainPwd = null;
          try{
-            plainPwd = EncryptionUtil.decryptPassword(encPwd);
+            plainPwd = VaultSession.getCipherEngine().decrypt(encPwd);
          }
          catch (Exception ex){
             Log.e(TAG,"Error while decrypting the password for:" + nameTextView.getText());
@@ -0,0 +1,453 @@
+package com.smd.passwordvault.helpers;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Argon2id (RFC 9106, version 0x13), in pure Java.
+ *
+ * The memory is split into p lanes of four segments each. Within one slice
+ * the segments of different lanes do not depend on each other, so each lane
+ * fills its segment on its own fork-join worker and the lanes only meet at
+ * the end of every slice.
+ *
+ * The block memory is one long[] kept behind a SoftReference between calls,
+ * so a login reuses the array of the previous one instead of allocating tens
+ * of megabytes again; the GC can still take it back under memory pressure.
+ * It is wiped before it is returned to the pool.
+ */
+public final class Argon2id {
+
+    public static final int VERSION = 0x13;
+
+    private static final int TYPE_ID = 2;
+    private static final int BLOCK_BYTES = 1024;
+    private static final int BLOCK_LONGS = BLOCK_BYTES / 8;
+    private static final int SYNC_POINTS = 4;
+    private static final int ADDRESSES_PER_BLOCK = BLOCK_LONGS;
+    private static final int MIN_SALT_BYTES = 8;
+    private static final int MIN_TAG_BYTES = 4;
+    private static final long LOW_32 = 0xffffffffL;
+
+    // shared by all calls; ForkJoinPool.commonPool() needs API 24
+    private static ForkJoinPool sharedPool;
+
+    // block memory of the last call, reused by the next one
+    private static SoftReference<long[]> pooledMemory = new SoftReference<>(null);
+
+    private final int passes;
+    private final int lanes;
+    private final int laneLength;
+    private final int segmentLength;
+    private final int blockCount;
+    private final long[] memory;
+
+    private Argon2id(int passes, int memoryKib, int lanes) {
+        this.passes = passes;
+        this.lanes = lanes;
+        // m' = 4 * p * floor(m / 4p)
+        this.segmentLength = memoryKib / (SYNC_POINTS * lanes);
+        this.laneLength = segmentLength * SYNC_POINTS;
+        this.blockCount = laneLength * lanes;
+        this.memory = acquireMemory(blockCount * BLOCK_LONGS);
+    }
+
+    /**
+     * derives length bytes from a password, which is encoded as UTF-8
+     *
+     * @param password    the password
+     * @param salt        the salt, at least 8 bytes
+     * @param passes      the number of passes t
+     * @param memoryKib   the memory size m in KiB, at least 8 * parallelism
+     * @param parallelism the number of lanes p
+     * @param length      the tag length in bytes, at least 4
+     * @return the tag
+     */
+    public static byte[] derive(char[] password, byte[] salt, int passes, int memoryKib, int parallelism,
+                                int length) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        if (encoded.hasArray()) {
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+        try {
+            return derive(bytes, salt, null, null, passes, memoryKib, parallelism, length);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * derives length bytes from a password
+     *
+     * @param password       the password bytes
+     * @param salt           the salt, at least 8 bytes
+     * @param secret         the optional secret K, or null
+     * @param associatedData the optional associated data X, or null
+     * @param passes         the number of passes t
+     * @param memoryKib      the memory size m in KiB, at least 8 * parallelism
+     * @param parallelism    the number of lanes p
+     * @param length         the tag length in bytes, at least 4
+     * @return the tag
+     */
+    public static byte[] derive(byte[] password, byte[] salt, byte[] secret, byte[] associatedData,
+                                int passes, int memoryKib, int parallelism, int length) {
+        if (passes < 1 || parallelism < 1 || parallelism > 0xffffff
+                || memoryKib < 8 * parallelism || length < MIN_TAG_BYTES) {
+            throw new IllegalArgumentException("Invalid Argon2id parameters: t=" + passes
+                    + " m=" + memoryKib + " p=" + parallelism + " length=" + length);
+        }
+        if (salt.length < MIN_SALT_BYTES) {
+            throw new IllegalArgumentException("Argon2id salt must be at least " + MIN_SALT_BYTES + " bytes");
+        }
+
+        Argon2id argon2 = new Argon2id(passes, memoryKib, parallelism);
+        try {
+            byte[] h0 = initialHash(password, salt, secret, associatedData, passes, memoryKib, parallelism, length);
+            argon2.fillFirstBlocks(h0);
+            Arrays.fill(h0, (byte) 0);
+            argon2.fillMemory();
+            return argon2.finish(length);
+        } finally {
+            releaseMemory(argon2.memory, argon2.blockCount * BLOCK_LONGS);
+        }
+    }
+
+    // H0 = H^64(p, T, m, t, v, y, P, S, K, X)
+    private static byte[] initialHash(byte[] password, byte[] salt, byte[] secret, byte[] associatedData,
+                                      int passes, int memoryKib, int parallelism, int length) {
+        Blake2b blake2b = new Blake2b(Blake2b.MAX_DIGEST_BYTES);
+        blake2b.updateInt(parallelism);
+        blake2b.updateInt(length);
+        blake2b.updateInt(memoryKib);
+        blake2b.updateInt(passes);
+        blake2b.updateInt(VERSION);
+        blake2b.updateInt(TYPE_ID);
+        updateWithLength(blake2b, password);
+        updateWithLength(blake2b, salt);
+        updateWithLength(blake2b, secret);
+        updateWithLength(blake2b, associatedData);
+        return blake2b.digest();
+    }
+
+    private static void updateWithLength(Blake2b blake2b, byte[] value) {
+        if (value == null) {
+            blake2b.updateInt(0);
+        } else {
+            blake2b.updateInt(value.length);
+            blake2b.update(value);
+        }
+    }
+
+    // B[i][0] = H'(H0 || 0 || i), B[i][1] = H'(H0 || 1 || i)
+    private void fillFirstBlocks(byte[] h0) {
+        byte[] block = new byte[BLOCK_BYTES];
+        byte[] seed = Arrays.copyOf(h0, h0.length + 8);
+        for (int lane = 0; lane < lanes; lane++) {
+            for (int column = 0; column < 2; column++) {
+                putInt(seed, h0.length, column);
+                putInt(seed, h0.length + 4, lane);
+                variableHash(seed, block);
+                int off = (lane * laneLength + column) * BLOCK_LONGS;
+                for (int i = 0; i < BLOCK_LONGS; i++) {
+                    memory[off + i] = Blake2b.getLong(block, i * 8);
+                }
+            }
+        }
+        Arrays.fill(seed, (byte) 0);
+        Arrays.fill(block, (byte) 0);
+    }
+
+    private void fillMemory() {
+        Segment[] segments = new Segment[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            segments[lane] = new Segment(lane);
+        }
+
+        for (int pass = 0; pass < passes; pass++) {
+            for (int slice = 0; slice < SYNC_POINTS; slice++) {
+                if (lanes == 1) {
+                    segments[0].fill(pass, slice);
+                } else {
+                    // every lane fills its segment of this slice, then they synchronize
+                    getSharedPool().invoke(new SliceTask(segments, pass, slice));
+                }
+            }
+        }
+    }
+
+    // XOR of the last block of every lane, hashed to the tag length
+    private byte[] finish(int length) {
+        long[] last = new long[BLOCK_LONGS];
+        for (int lane = 0; lane < lanes; lane++) {
+            int off = (lane * laneLength + laneLength - 1) * BLOCK_LONGS;
+            for (int i = 0; i < BLOCK_LONGS; i++) {
+                last[i] ^= memory[off + i];
+            }
+        }
+
+        byte[] bytes = new byte[BLOCK_BYTES];
+        for (int i = 0; i < BLOCK_LONGS; i++) {
+            long value = last[i];
+            for (int b = 0; b < 8; b++) {
+                bytes[i * 8 + b] = (byte) (value >>> (8 * b));
+            }
+        }
+        byte[] tag = new byte[length];
+        variableHash(bytes, tag);
+        Arrays.fill(last, 0);
+        Arrays.fill(bytes, (byte) 0);
+        return tag;
+    }
+
+    // H', the variable length hash: fills out with out.length bytes
+    private static void variableHash(byte[] input, byte[] out) {
+        Blake2b blake2b = new Blake2b(Math.min(out.length, Blake2b.MAX_DIGEST_BYTES));
+        blake2b.updateInt(out.length);
+        blake2b.update(input);
+        byte[] v = blake2b.digest();
+        if (out.length <= Blake2b.MAX_DIGEST_BYTES) {
+            System.arraycopy(v, 0, out, 0, out.length);
+            return;
+        }
+
+        // 32 bytes of each V_i, then all of the last, shorter V_r+1
+        int pos = 0;
+        while (out.length - pos > Blake2b.MAX_DIGEST_BYTES) {
+            System.arraycopy(v, 0, out, pos, 32);
+            pos += 32;
+            byte[] previous = v;
+            v = Blake2b.hash(previous, Math.min(out.length - pos, Blake2b.MAX_DIGEST_BYTES));
+            Arrays.fill(previous, (byte) 0);
+        }
+        System.arraycopy(v, 0, out, pos, v.length);
+        Arrays.fill(v, (byte) 0);
+    }
+
+    private static synchronized ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    private static synchronized long[] acquireMemory(int size) {
+        long[] pooled = pooledMemory.get();
+        if (pooled != null && pooled.length >= size) {
+            pooledMemory.clear();
+            return pooled;
+        }
+        return new long[size];
+    }
+
+    private static void releaseMemory(long[] memory, int used) {
+        Arrays.fill(memory, 0, used, 0);
+        synchronized (Argon2id.class) {
+            long[] pooled = pooledMemory.get();
+            if (pooled == null || pooled.length < memory.length) {
+                pooledMemory = new SoftReference<>(memory);
+            }
+        }
+    }
+
+    private static void putInt(byte[] dst, int off, int value) {
+        dst[off] = (byte) value;
+        dst[off + 1] = (byte) (value >>> 8);
+        dst[off + 2] = (byte) (value >>> 16);
+        dst[off + 3] = (byte) (value >>> 24);
+    }
+
+    // runs the segments of all lanes for one slice
+    private static final class SliceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Segment[] segments;
+        private final int pass;
+        private final int slice;
+
+        SliceTask(Segment[] segments, int pass, int slice) {
+            this.segments = segments;
+            this.pass = pass;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>(segments.length);
+            for (final Segment segment : segments) {
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        segment.fill(pass, slice);
+                    }
+                });
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    // one lane and the scratch blocks its worker fills segments with
+    private final class Segment {
+        private final int lane;
+        private final long[] r = new long[BLOCK_LONGS];
+        private final long[] tmp = new long[BLOCK_LONGS];
+        private final long[] zero = new long[BLOCK_LONGS];
+        private final long[] input = new long[BLOCK_LONGS];
+        private final long[] addresses = new long[BLOCK_LONGS];
+
+        Segment(int lane) {
+            this.lane = lane;
+        }
+
+        void fill(int pass, int slice) {
+            // Argon2id: data independent addressing in the first half of the first pass
+            boolean dataIndependent = pass == 0 && slice < SYNC_POINTS / 2;
+            if (dataIndependent) {
+                Arrays.fill(input, 0);
+                input[0] = pass;
+                input[1] = lane;
+                input[2] = slice;
+                input[3] = blockCount;
+                input[4] = passes;
+                input[5] = TYPE_ID;
+            }
+
+            int start = 0;
+            if (pass == 0 && slice == 0) {
+                // the first two blocks of each lane come from H0
+                start = 2;
+                if (dataIndependent) {
+                    nextAddresses();
+                }
+            }
+
+            int current = lane * laneLength + slice * segmentLength + start;
+            int previous = current % laneLength == 0 ? current + laneLength - 1 : current - 1;
+
+            for (int index = start; index < segmentLength; index++, current++, previous++) {
+                if (current % laneLength == 1) {
+                    previous = current - 1;
+                }
+
+                long pseudoRandom;
+                if (dataIndependent) {
+                    if (index % ADDRESSES_PER_BLOCK == 0) {
+                        nextAddresses();
+                    }
+                    pseudoRandom = addresses[index % ADDRESSES_PER_BLOCK];
+                } else {
+                    pseudoRandom = memory[previous * BLOCK_LONGS];
+                }
+
+                int refLane = (int) ((pseudoRandom >>> 32) % lanes);
+                if (pass == 0 && slice == 0) {
+                    refLane = lane;
+                }
+                int refIndex = referenceIndex(pass, slice, index, pseudoRandom & LOW_32, refLane == lane);
+                int reference = refLane * laneLength + refIndex;
+
+                fillBlock(memory, previous * BLOCK_LONGS, memory, reference * BLOCK_LONGS,
+                        memory, current * BLOCK_LONGS, pass != 0);
+            }
+        }
+
+        private void nextAddresses() {
+            input[6]++;
+            fillBlock(zero, 0, input, 0, addresses, 0, false);
+            fillBlock(zero, 0, addresses, 0, addresses, 0, false);
+        }
+
+        // maps J1 onto the blocks this position may reference (RFC 9106 section 3.4.1.2)
+        private int referenceIndex(int pass, int slice, int index, long j1, boolean sameLane) {
+            int areaSize;
+            if (pass == 0) {
+                if (slice == 0) {
+                    areaSize = index - 1;
+                } else if (sameLane) {
+                    areaSize = slice * segmentLength + index - 1;
+                } else {
+                    areaSize = slice * segmentLength + (index == 0 ? -1 : 0);
+                }
+            } else if (sameLane) {
+                areaSize = laneLength - segmentLength + index - 1;
+            } else {
+                areaSize = laneLength - segmentLength + (index == 0 ? -1 : 0);
+            }
+
+            long x = (j1 * j1) >>> 32;
+            long relative = areaSize - 1 - ((areaSize * x) >>> 32);
+            int startPosition = pass != 0 && slice != SYNC_POINTS - 1 ? (slice + 1) * segmentLength : 0;
+            return (int) ((startPosition + relative) % laneLength);
+        }
+
+        // next = P(x ^ y) ^ x ^ y, or XORed into next from the second pass on
+        private void fillBlock(long[] x, int xOff, long[] y, int yOff, long[] next, int nextOff, boolean withXor) {
+            for (int i = 0; i < BLOCK_LONGS; i++) {
+                r[i] = x[xOff + i] ^ y[yOff + i];
+            }
+            if (withXor) {
+                for (int i = 0; i < BLOCK_LONGS; i++) {
+                    tmp[i] = r[i] ^ next[nextOff + i];
+                }
+            } else {
+                System.arraycopy(r, 0, tmp, 0, BLOCK_LONGS);
+            }
+
+            // rows of 16 words, then columns of 2 words
+            for (int i = 0; i < 8; i++) {
+                int o = i * 16;
+                round(o, o + 1, o + 2, o + 3, o + 4, o + 5, o + 6, o + 7,
+                        o + 8, o + 9, o + 10, o + 11, o + 12, o + 13, o + 14, o + 15);
+            }
+            for (int i = 0; i < 8; i++) {
+                int o = i * 2;
+                round(o, o + 1, o + 16, o + 17, o + 32, o + 33, o + 48, o + 49,
+                        o + 64, o + 65, o + 80, o + 81, o + 96, o + 97, o + 112, o + 113);
+            }
+
+            for (int i = 0; i < BLOCK_LONGS; i++) {
+                next[nextOff + i] = tmp[i] ^ r[i];
+            }
+        }
+
+        private void round(int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7,
+                           int v8, int v9, int v10, int v11, int v12, int v13, int v14, int v15) {
+            g(v0, v4, v8, v12);
+            g(v1, v5, v9, v13);
+            g(v2, v6, v10, v14);
+            g(v3, v7, v11, v15);
+            g(v0, v5, v10, v15);
+            g(v1, v6, v11, v12);
+            g(v2, v7, v8, v13);
+            g(v3, v4, v9, v14);
+        }
+
+        // BLAKE2b G with the multiplications of BlaMka
+        private void g(int a, int b, int c, int d) {
+            long va = r[a];
+            long vb = r[b];
+            long vc = r[c];
+            long vd = r[d];
+            va = va + vb + 2 * (va & LOW_32) * (vb & LOW_32);
+            vd = Long.rotateRight(vd ^ va, 32);
+            vc = vc + vd + 2 * (vc & LOW_32) * (vd & LOW_32);
+            vb = Long.rotateRight(vb ^ vc, 24);
+            va = va + vb + 2 * (va & LOW_32) * (vb & LOW_32);
+            vd = Long.rotateRight(vd ^ va, 16);
+            vc = vc + vd + 2 * (vc & LOW_32) * (vd & LOW_32);
+            vb = Long.rotateRight(vb ^ vc, 63);
+            r[a] = va;
+            r[b] = vb;
+            r[c] = vc;
+            r[d] = vd;
+        }
+    }
+}
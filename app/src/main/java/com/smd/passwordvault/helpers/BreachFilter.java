@@ -0,0 +1,207 @@
+package com.smd.passwordvault.helpers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * Bloom filter over the SHA-1 hashes of compromised passwords, built by the
+ * BreachFilterBuilder tool and shipped as an asset:
+ *
+ *   int    magic 'PVBF'
+ *   int    format version
+ *   int    hash functions k
+ *   long   bits m, below 2^32
+ *   long   words[(m + 63) / 64]
+ *
+ * all big endian. A negative answer is definite, so the validation paths can
+ * skip the full breached password list for nearly every password they see.
+ *
+ * The input is already a cryptographic hash, so the k bit positions come
+ * straight from its first 16 bytes by double hashing, h1 + i * h2, each
+ * reduced to [0, m) with a multiply and a shift instead of a division.
+ */
+public final class BreachFilter {
+
+    static final int MAGIC = 0x50564246; // "PVBF"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 20;
+
+    static final long MAX_BITS = 1L << 32;
+
+    private final long[] words;
+    private final long bits;
+    private final int hashCount;
+
+    private BreachFilter(long[] words, long bits, int hashCount) {
+        this.words = words;
+        this.bits = bits;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * reads a filter written by the builder, with one bulk read of its bits
+     *
+     * @param in the filter; it is not closed
+     * @return the filter
+     * @throws IOException if the stream is not a breach filter
+     */
+    public static BreachFilter read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a breach filter");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported breach filter version: " + version);
+        }
+        int hashCount = data.readInt();
+        long bits = data.readLong();
+        if (hashCount < 1 || bits < 1 || bits > MAX_BITS) {
+            throw new IOException("Corrupt breach filter header");
+        }
+
+        int wordCount = (int) ((bits + 63) >>> 6);
+        byte[] raw = new byte[wordCount * 8];
+        data.readFully(raw);
+        long[] words = new long[wordCount];
+        ByteBuffer.wrap(raw).asLongBuffer().get(words);
+        return new BreachFilter(words, bits, hashCount);
+    }
+
+    /**
+     * @param expected the number of hashes the filter will hold
+     * @param fpRate   the false positive rate wanted at that many hashes
+     * @return the number of bits, -n ln p / (ln 2)^2
+     */
+    public static long optimalBits(long expected, double fpRate) {
+        if (expected < 1 || !(fpRate > 0 && fpRate < 1)) {
+            throw new IllegalArgumentException("Need at least one hash and a rate in (0, 1)");
+        }
+        long bits = (long) Math.ceil(-expected * Math.log(fpRate) / (Math.log(2) * Math.log(2)));
+        if (bits > MAX_BITS) {
+            throw new IllegalArgumentException("A filter of " + bits + " bits is too large; raise the rate");
+        }
+        return Math.max(64, bits);
+    }
+
+    /**
+     * @param expected the number of hashes the filter will hold
+     * @param bits     the size of the filter
+     * @return the number of hash functions, m / n ln 2
+     */
+    public static int optimalHashCount(long expected, long bits) {
+        return Math.max(1, (int) Math.round((double) bits / expected * Math.log(2)));
+    }
+
+    /**
+     * @param password the password to look up
+     * @return false if the password is definitely not in the filter
+     */
+    public boolean mightContain(String password) {
+        return mightContainHash(BreachedPasswords.sha1(password));
+    }
+
+    /**
+     * @param sha1 a 20 byte SHA-1 hash
+     * @return false if the hash is definitely not in the filter
+     */
+    public boolean mightContainHash(byte[] sha1) {
+        ByteBuffer hash = ByteBuffer.wrap(sha1);
+        long h1 = hash.getLong(0);
+        long h2 = hash.getLong(8);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of hash functions
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return the number of bits
+     */
+    public long getBitCount() {
+        return bits;
+    }
+
+    /**
+     * @return the heap taken by the bits of the filter
+     */
+    public long sizeInBytes() {
+        return words.length * 8L;
+    }
+
+    // the top 32 bits of the hash scaled to [0, bits)
+    static long index(long hash, long bits) {
+        return ((hash >>> 32) * bits) >>> 32;
+    }
+
+    /*
+     * Collects hashes into a new filter and writes it in the asset format.
+     */
+    public static final class Builder {
+        private final long[] words;
+        private final long bits;
+        private final int hashCount;
+
+        /**
+         * @param expected the number of hashes that will be added
+         * @param fpRate   the false positive rate wanted once they are
+         */
+        public Builder(long expected, double fpRate) {
+            bits = optimalBits(expected, fpRate);
+            hashCount = optimalHashCount(expected, bits);
+            words = new long[(int) ((bits + 63) >>> 6)];
+        }
+
+        /**
+         * @param sha1 a 20 byte SHA-1 hash
+         */
+        public Builder addHash(byte[] sha1) {
+            ByteBuffer hash = ByteBuffer.wrap(sha1);
+            long h1 = hash.getLong(0);
+            long h2 = hash.getLong(8);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(h1 + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            return this;
+        }
+
+        public Builder add(String password) {
+            return addHash(BreachedPasswords.sha1(password));
+        }
+
+        public BreachFilter build() {
+            return new BreachFilter(words.clone(), bits, hashCount);
+        }
+
+        /**
+         * @param out receives the filter; it is not closed
+         * @throws IOException
+         */
+        public void write(OutputStream out) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(hashCount);
+            data.writeLong(bits);
+            for (long word : words) {
+                data.writeLong(word);
+            }
+            data.flush();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.smd.passwordvault.helpers;
+
+/*
+ * Checks a password against the breached password list, and against the
+ * Bloom filter of the most common breached passwords when the device has no
+ * list.
+ *
+ * The filter only holds the most common hashes of the list, so a password it
+ * does not have may still be in the list: whenever there is a list, the list
+ * answers. Without one, a password the filter has is only probably breached,
+ * since the filter answers yes for about 0.1% of the passwords it does not
+ * hold; callers warn about it instead of rejecting it.
+ */
+public final class BreachLookup implements VaultAudit.BreachCheck {
+
+    /**
+     * neither the list nor the filter has the password, or there is neither
+     */
+    public static final int NOT_BREACHED = 0;
+
+    /**
+     * the filter has the password and there is no list to confirm it
+     */
+    public static final int PROBABLY_BREACHED = 1;
+
+    /**
+     * the breached password list has the password
+     */
+    public static final int BREACHED = 2;
+
+    private final BreachFilter filter;
+    private final BreachedPasswords list;
+
+    /**
+     * constructor
+     *
+     * @param filter the filter, or null if there is none
+     * @param list   the list, or null if there is none
+     */
+    public BreachLookup(BreachFilter filter, BreachedPasswords list) {
+        this.filter = filter;
+        this.list = list;
+    }
+
+    /**
+     * @param password the password to check
+     * @return NOT_BREACHED, PROBABLY_BREACHED or BREACHED
+     */
+    public int check(String password) {
+        if (list != null) {
+            return list.contains(password) ? BREACHED : NOT_BREACHED;
+        }
+        if (filter != null && filter.mightContain(password)) {
+            return PROBABLY_BREACHED;
+        }
+        return NOT_BREACHED;
+    }
+
+    /**
+     * for the audit, which reports breached passwords rather than rejecting
+     * them, a probable breach counts
+     */
+    @Override
+    public boolean isBreached(String password) {
+        return check(password) != NOT_BREACHED;
+    }
+}
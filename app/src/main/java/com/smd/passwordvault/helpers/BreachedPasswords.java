@@ -0,0 +1,189 @@
+package com.smd.passwordvault.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * Offline lookup of breached passwords in a local copy of the Pwned Passwords
+ * SHA-1 list, converted by the BreachListConverter tool to
+ *
+ *   int    magic 'PVBH'
+ *   int    format version
+ *   long   hash count n
+ *   byte   sha1[n][20], sorted ascending as unsigned bytes
+ *
+ * all big endian. The file is memory mapped, in segments because one mapping
+ * cannot exceed 2 GB, so the multi-gigabyte list never touches the heap.
+ * SHA-1 hashes are uniformly distributed, which makes an interpolation search
+ * on their first 8 bytes land within a few records of the target: a lookup
+ * reads a handful of pages instead of the ~30 of a binary search.
+ */
+public final class BreachedPasswords {
+
+    static final int MAGIC = 0x50564248; // "PVBH"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 20;
+
+    // records per mapping: 1.25 GiB, comfortably below the 2 GB limit
+    static final int SEGMENT_RECORDS = 1 << 26;
+
+    // interpolation probes before falling back to bisection, in case the
+    // list is not as uniform as expected
+    private static final int MAX_INTERPOLATION_PROBES = 16;
+
+    private final ByteBuffer[] segments;
+    private final int segmentRecords;
+    private final long size;
+
+    private BreachedPasswords(ByteBuffer[] segments, int segmentRecords, long size) {
+        this.segments = segments;
+        this.segmentRecords = segmentRecords;
+        this.size = size;
+    }
+
+    /**
+     * maps a converted breach list
+     *
+     * @param file the file written by BreachListConverter
+     * @return the list
+     * @throws IOException if the file cannot be mapped or is not a breach list
+     */
+    public static BreachedPasswords open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mappings stay valid after the file is closed
+            return map(raf.getChannel(), SEGMENT_RECORDS);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static BreachedPasswords map(FileChannel channel, int segmentRecords) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_BYTES, channel.size()));
+        if (header.capacity() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a breached password list");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported breached password list version: " + header.getInt(4));
+        }
+        long size = header.getLong(8);
+        if (size < 0 || HEADER_BYTES + size * RECORD_BYTES != channel.size()) {
+            throw new IOException("Truncated breached password list");
+        }
+
+        int count = (int) ((size + segmentRecords - 1) / segmentRecords);
+        ByteBuffer[] segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long first = (long) i * segmentRecords;
+            long records = Math.min(segmentRecords, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+        }
+        return new BreachedPasswords(segments, segmentRecords, size);
+    }
+
+    /**
+     * @param count the number of hashes that follow
+     * @return the header of a list of count hashes
+     */
+    public static byte[] header(long count) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(count);
+        return header.array();
+    }
+
+    /**
+     * @return the number of hashes in the list
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param password the password to look up
+     * @return true if the SHA-1 of its UTF-8 encoding is in the list
+     */
+    public boolean contains(String password) {
+        return containsHash(sha1(password));
+    }
+
+    /**
+     * @param sha1 a 20 byte SHA-1 hash
+     * @return true if the hash is in the list
+     */
+    public boolean containsHash(byte[] sha1) {
+        if (sha1.length != RECORD_BYTES) {
+            throw new IllegalArgumentException("Not a SHA-1 hash: " + sha1.length + " bytes");
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha1);
+        long keyPrefix = key.getLong(0);
+
+        // the key lies strictly between the records low and high, whose
+        // prefixes are known; -1 and size stand for 0 and 2^64 - 1
+        long low = -1;
+        long high = size;
+        long lowPrefix = 0;
+        long highPrefix = -1;
+        int probes = 0;
+        while (high - low > 1) {
+            long mid;
+            if (probes++ < MAX_INTERPOLATION_PROBES && highPrefix != lowPrefix) {
+                double fraction = unsignedToDouble(keyPrefix - lowPrefix) / unsignedToDouble(highPrefix - lowPrefix);
+                mid = low + 1 + (long) (fraction * (high - low - 1));
+                mid = Math.max(low + 1, Math.min(high - 1, mid));
+            } else {
+                mid = (low + high) >>> 1;
+            }
+
+            ByteBuffer segment = segments[(int) (mid / segmentRecords)];
+            int offset = (int) (mid % segmentRecords) * RECORD_BYTES;
+            long prefix = segment.getLong(offset);
+            int cmp = compareUnsigned(prefix, keyPrefix);
+            if (cmp == 0) {
+                cmp = compareUnsigned(segment.getLong(offset + 8), key.getLong(8));
+            }
+            if (cmp == 0) {
+                cmp = compareUnsigned(segment.getInt(offset + 16) & 0xffffffffL, key.getInt(16) & 0xffffffffL);
+            }
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp < 0) {
+                low = mid;
+                lowPrefix = prefix;
+            } else {
+                high = mid;
+                highPrefix = prefix;
+            }
+        }
+        return false;
+    }
+
+    // the lists hold the SHA-1 of the UTF-8 encoding, as Pwned Passwords does
+    static byte[] sha1(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java and Android runtime has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Long.compareUnsigned needs Java 8
+    private static int compareUnsigned(long a, long b) {
+        a += Long.MIN_VALUE;
+        b += Long.MIN_VALUE;
+        return a < b ? -1 : a == b ? 0 : 1;
+    }
+
+    private static double unsignedToDouble(long value) {
+        return (double) (value >>> 1) * 2 + (value & 1);
+    }
+}
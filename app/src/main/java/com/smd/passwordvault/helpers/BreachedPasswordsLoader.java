@@ -0,0 +1,161 @@
+package com.smd.passwordvault.helpers;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Maps the breached password list the user copied to the external files
+ * directory of the app (Android/data/com.smd.passwordvault/files). At several
+ * gigabytes the list cannot ship in the APK, so the check is skipped on
+ * devices without it.
+ *
+ * The Bloom filter of the most common breached passwords ships as an asset,
+ * built by tools/BreachFilterBuilder at release, and stands in for the list
+ * on devices that do not have one; see BreachLookup. Reading it takes a few
+ * megabytes of I/O, so it is read on a background thread; checks made on the
+ * UI thread until it is read go without it.
+ */
+public final class BreachedPasswordsLoader {
+
+    private static final String TAG = "BreachedPasswords";
+
+    public static final String FILE_NAME = "breached-sha1.bin";
+    public static final String FILTER_ASSET_NAME = "breachfilter.bin";
+
+    // the list and the filter have their own locks, so mapping the list on the
+    // UI thread never waits for the filter being read
+    private static final Object LIST_LOCK = new Object();
+    private static final Object FILTER_LOCK = new Object();
+
+    private static BreachedPasswords breachedPasswords;
+    private static volatile BreachFilter breachFilter;
+    private static boolean filterMissing;
+    private static final AtomicBoolean filterRequested = new AtomicBoolean(false);
+
+    private BreachedPasswordsLoader() {
+    }
+
+    /**
+     * This method maps the list on first use and returns the same list afterwards
+     *
+     * @param context any context of the app
+     * @return the list, or null if it has not been copied to the device
+     * @throws IOException if the file is not a breached password list
+     */
+    public static BreachedPasswords load(Context context) throws IOException {
+        synchronized (LIST_LOCK) {
+            if (breachedPasswords == null) {
+                File directory = context.getExternalFilesDir(null);
+                if (directory == null) {
+                    return null;
+                }
+                File file = new File(directory, FILE_NAME);
+                if (!file.isFile()) {
+                    return null;
+                }
+                breachedPasswords = BreachedPasswords.open(file);
+            }
+            return breachedPasswords;
+        }
+    }
+
+    /**
+     * This method reads the filter asset on first use and returns the same
+     * filter afterwards; it blocks while the asset is read, so it is not to be
+     * called on the UI thread
+     *
+     * @param context any context of the app
+     * @return the filter, or null if the APK was built without one
+     * @throws IOException if the asset is not a breach filter
+     */
+    public static BreachFilter loadFilter(Context context) throws IOException {
+        synchronized (FILTER_LOCK) {
+            if (breachFilter == null && !filterMissing) {
+                InputStream in;
+                try {
+                    in = context.getAssets().open(FILTER_ASSET_NAME);
+                } catch (FileNotFoundException ex) {
+                    filterMissing = true;
+                    return null;
+                }
+                try {
+                    breachFilter = BreachFilter.read(in);
+                } finally {
+                    in.close();
+                }
+            }
+            return breachFilter;
+        }
+    }
+
+    /**
+     * This method starts reading the filter asset on a background thread,
+     * unless it was started already; screens that check passwords call it
+     * when they are created
+     *
+     * @param context any context of the app
+     */
+    public static void preloadFilter(Context context) {
+        if (!filterRequested.compareAndSet(false, true)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        Thread preload = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loadFilter(appContext);
+                } catch (IOException ex) {
+                    Log.e(TAG, "Error while reading the breach filter", ex);
+                }
+            }
+        }, "BreachFilterLoad");
+        preload.setPriority(Thread.MIN_PRIORITY);
+        preload.start();
+    }
+
+    /**
+     * This method checks a password without waiting for the filter: until the
+     * filter is read only the list, if any, is used
+     *
+     * @param context  any context of the app
+     * @param password the password to check
+     * @return BreachLookup.NOT_BREACHED, PROBABLY_BREACHED or BREACHED
+     */
+    public static int check(Context context, String password) {
+        preloadFilter(context);
+        BreachedPasswords list = null;
+        try {
+            list = load(context);
+        } catch (IOException ex) {
+            Log.e(TAG, "Error while opening the breached password list", ex);
+        }
+        return new BreachLookup(breachFilter, list).check(password);
+    }
+
+    /**
+     * This method loads the filter and the list once for checking many passwords,
+     * from any number of threads, without going through the loader's locks; it
+     * blocks while they are loaded, so it is not to be called on the UI thread
+     *
+     * @param context any context of the app
+     * @return the check; a probable breach counts, see BreachLookup
+     */
+    public static VaultAudit.BreachCheck newBreachCheck(Context context) {
+        BreachFilter filter = null;
+        BreachedPasswords list = null;
+        try {
+            filter = loadFilter(context);
+            list = load(context);
+        } catch (IOException ex) {
+            Log.e(TAG, "Error while opening the breached password list", ex);
+        }
+        return new BreachLookup(filter, list);
+    }
+}
@@ -0,0 +1,127 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Immutable trie in four flat arrays: the label of each node, its first child,
+ * its next sibling and the value of the word ending there (0 for none).
+ * Children are kept sorted by label. A few thousand words take a few tens of
+ * kilobytes and no per-node objects once built.
+ */
+final class CharTrie {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] values;
+
+    private CharTrie(char[] labels, int[] firstChild, int[] nextSibling, int[] values) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.values = values;
+    }
+
+    /**
+     * @param node  a node of the trie
+     * @param label the label of the child
+     * @return the child, or NONE
+     */
+    int child(int node, char label) {
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if (labels[c] == label) {
+                return c;
+            }
+            if (labels[c] > label) {
+                return NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param node a node of the trie
+     * @return the value of the word ending at the node, or 0
+     */
+    int value(int node) {
+        return values[node];
+    }
+
+    int nodeCount() {
+        return labels.length;
+    }
+
+    /*
+     * Collects words and flattens them into a CharTrie. A word added twice
+     * keeps the smaller value.
+     */
+    static final class Builder {
+        private final Node root = new Node();
+        private int nodes = 1;
+
+        /**
+         * @param word  the word
+         * @param value the value stored for it, greater than 0
+         */
+        Builder add(CharSequence word, int value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException("Trie values must be positive: " + value);
+            }
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                    nodes++;
+                }
+                node = child;
+            }
+            if (node.value == 0 || value < node.value) {
+                node.value = value;
+            }
+            return this;
+        }
+
+        CharTrie build() {
+            char[] labels = new char[nodes];
+            int[] firstChild = new int[nodes];
+            int[] nextSibling = new int[nodes];
+            int[] values = new int[nodes];
+
+            // breadth first, so the children of a node get consecutive indexes
+            List<Node> queue = new ArrayList<>(nodes);
+            queue.add(root);
+            int next = 1;
+            for (int i = 0; i < queue.size(); i++) {
+                Node node = queue.get(i);
+                values[i] = node.value;
+                firstChild[i] = node.children.isEmpty() ? NONE : next;
+                int previous = NONE;
+                for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                    labels[next] = entry.getKey();
+                    nextSibling[next] = NONE;
+                    if (previous != NONE) {
+                        nextSibling[previous] = next;
+                    }
+                    previous = next;
+                    queue.add(entry.getValue());
+                    next++;
+                }
+            }
+            return new CharTrie(labels, firstChild, nextSibling, values);
+        }
+
+        private static final class Node {
+            private final TreeMap<Character, Node> children = new TreeMap<>();
+            private int value;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.smd.passwordvault.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * Keeps the AES key material and one initialized Cipher per thread and mode,
+ * so encrypting or decrypting a password only costs the doFinal call.
+ *
+ * Cipher objects are not thread safe, hence the ThreadLocal holders. After
+ * doFinal a Cipher returns to the state it was in after init, so the same
+ * instance can be reused for the next password without re-initializing it.
+ * The hex and cipher output is written into per-thread scratch buffers that
+ * only grow, so steady state calls allocate little more than the result.
+ *
+ * destroy() overwrites the engine's copy of the key and re-initializes every
+ * Cipher it handed to a thread with an all-zero key, since the ThreadLocal
+ * holders keep them for as long as their threads live. The engine cannot be
+ * used afterwards, and a call still running when it is destroyed throws
+ * instead of returning a result that may come from the zero key.
+ */
+public class CipherEngine {
+    private static final String CIPHER_ALGORITHM = "AES";
+
+    private final byte[] keyBytes;
+    private final Key aesKey;
+
+    // every Cipher initialized with the key, for destroy()
+    private final List<Cipher> ciphers = Collections.synchronizedList(new ArrayList<Cipher>());
+
+    private volatile boolean destroyed;
+
+    private final ThreadLocal<Cipher> encryptCipher = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher(Cipher.ENCRYPT_MODE);
+        }
+    };
+
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher(Cipher.DECRYPT_MODE);
+        }
+    };
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /**
+     * constructor
+     *
+     * @param keyBytes the raw AES key (16, 24 or 32 bytes); it is copied
+     */
+    public CipherEngine(byte[] keyBytes) {
+        this.keyBytes = Arrays.copyOf(keyBytes, keyBytes.length);
+        this.aesKey = new RawKey(this.keyBytes);
+    }
+
+    private Cipher newCipher(int mode) {
+        checkNotDestroyed();
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(mode, aesKey);
+            ciphers.add(cipher);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + CIPHER_ALGORITHM + " cipher", e);
+        }
+    }
+
+    /**
+     * This method wipes the key; the engine cannot be used afterwards
+     */
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(keyBytes, (byte) 0);
+        Key zeroKey = new SecretKeySpec(new byte[keyBytes.length], CIPHER_ALGORITHM);
+        synchronized (ciphers) {
+            for (Cipher cipher : ciphers) {
+                try {
+                    cipher.init(Cipher.ENCRYPT_MODE, zeroKey);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Unable to reset " + CIPHER_ALGORITHM + " cipher", e);
+                }
+            }
+            ciphers.clear();
+        }
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    private void checkNotDestroyed() {
+        if (destroyed) {
+            throw new IllegalStateException("The cipher engine was destroyed");
+        }
+    }
+
+    /**
+     * encrypts a password and returns its hex encoded cipher text
+     *
+     * @param origPwd the plain text password
+     * @return the hex encoded cipher text
+     * @throws GeneralSecurityException
+     * @throws IllegalStateException if the engine is destroyed
+     */
+    public String encrypt(String origPwd) throws GeneralSecurityException {
+        checkNotDestroyed();
+        Cipher cipher = encryptCipher.get();
+        Buffers buf = buffers.get();
+        byte[] plain = origPwd.getBytes(StandardCharsets.UTF_8);
+
+        byte[] encrypted = buf.output(cipher.getOutputSize(plain.length));
+        int encLen = cipher.doFinal(plain, 0, plain.length, encrypted, 0);
+        Arrays.fill(plain, (byte) 0);
+        checkNotDestroyed();
+
+        char[] hex = buf.chars(encLen * 2);
+        int hexLen = HexCodec.encode(encrypted, 0, encLen, hex, 0);
+        return new String(hex, 0, hexLen);
+    }
+
+    /**
+     * decrypts a hex encoded cipher text produced by {@link #encrypt(String)}
+     *
+     * @param encPwd the hex encoded cipher text
+     * @return the plain text password
+     * @throws GeneralSecurityException
+     * @throws IllegalArgumentException if encPwd has an odd length or a character that is not hexadecimal
+     * @throws IllegalStateException if the engine is destroyed
+     */
+    public String decrypt(String encPwd) throws GeneralSecurityException {
+        checkNotDestroyed();
+        Cipher cipher = decryptCipher.get();
+        Buffers buf = buffers.get();
+
+        byte[] encrypted = buf.input(encPwd.length() / 2);
+        int encLen = HexCodec.decode(encPwd, 0, encPwd.length(), encrypted, 0);
+
+        byte[] decrypted = buf.output(cipher.getOutputSize(encLen));
+        int decLen = cipher.doFinal(encrypted, 0, encLen, decrypted, 0);
+        String decPwd = new String(decrypted, 0, decLen, StandardCharsets.UTF_8);
+        // do not leave the plain text behind in the scratch buffer
+        Arrays.fill(decrypted, 0, decLen, (byte) 0);
+        checkNotDestroyed();
+        return decPwd;
+    }
+
+    /**
+     * encrypts a password into raw cipher text bytes, for BLOB columns
+     *
+     * @param origPwd the plain text password
+     * @return the cipher text
+     * @throws GeneralSecurityException
+     * @throws IllegalStateException if the engine is destroyed
+     */
+    public byte[] encryptToBytes(String origPwd) throws GeneralSecurityException {
+        checkNotDestroyed();
+        byte[] plain = origPwd.getBytes(StandardCharsets.UTF_8);
+        byte[] encrypted = encryptCipher.get().doFinal(plain);
+        Arrays.fill(plain, (byte) 0);
+        checkNotDestroyed();
+        return encrypted;
+    }
+
+    /**
+     * decrypts raw cipher text bytes produced by {@link #encryptToBytes(String)}
+     *
+     * @param encrypted the cipher text
+     * @return the plain text password
+     * @throws GeneralSecurityException
+     * @throws IllegalStateException if the engine is destroyed
+     */
+    public String decrypt(byte[] encrypted) throws GeneralSecurityException {
+        checkNotDestroyed();
+        Cipher cipher = decryptCipher.get();
+        byte[] decrypted = buffers.get().output(cipher.getOutputSize(encrypted.length));
+        int decLen = cipher.doFinal(encrypted, 0, encrypted.length, decrypted, 0);
+        String decPwd = new String(decrypted, 0, decLen, StandardCharsets.UTF_8);
+        Arrays.fill(decrypted, 0, decLen, (byte) 0);
+        checkNotDestroyed();
+        return decPwd;
+    }
+
+    /**
+     * encrypts every password of the list with the same warm cipher
+     *
+     * @param origPwds the plain text passwords
+     * @return the hex encoded cipher texts, in the same order
+     * @throws GeneralSecurityException
+     */
+    public List<String> encryptAll(List<String> origPwds) throws GeneralSecurityException {
+        List<String> encPwds = new ArrayList<>(origPwds.size());
+        for (String origPwd : origPwds) {
+            encPwds.add(encrypt(origPwd));
+        }
+        return encPwds;
+    }
+
+    /**
+     * decrypts every cipher text of the list with the same warm cipher
+     *
+     * @param encPwds the hex encoded cipher texts
+     * @return the plain text passwords, in the same order
+     * @throws GeneralSecurityException
+     */
+    public List<String> decryptAll(List<String> encPwds) throws GeneralSecurityException {
+        List<String> decPwds = new ArrayList<>(encPwds.size());
+        for (String encPwd : encPwds) {
+            decPwds.add(decrypt(encPwd));
+        }
+        return decPwds;
+    }
+
+    /**
+     * encrypts a range of the array into the destination array
+     *
+     * @param origPwds the plain text passwords
+     * @param from     the first index to encrypt (inclusive)
+     * @param to       the last index to encrypt (exclusive)
+     * @param encPwds  receives the hex encoded cipher texts at the same indexes
+     * @throws GeneralSecurityException
+     */
+    public void encryptAll(String[] origPwds, int from, int to, String[] encPwds)
+            throws GeneralSecurityException {
+        for (int i = from; i < to; i++) {
+            encPwds[i] = encrypt(origPwds[i]);
+        }
+    }
+
+    /**
+     * decrypts a range of the array into the destination array
+     *
+     * @param encPwds the hex encoded cipher texts
+     * @param from    the first index to decrypt (inclusive)
+     * @param to      the last index to decrypt (exclusive)
+     * @param decPwds receives the plain text passwords at the same indexes
+     * @throws GeneralSecurityException
+     */
+    public void decryptAll(String[] encPwds, int from, int to, String[] decPwds)
+            throws GeneralSecurityException {
+        for (int i = from; i < to; i++) {
+            decPwds[i] = decrypt(encPwds[i]);
+        }
+    }
+
+    // a key over an array its owner can wipe, unlike the copy kept inside a
+    // SecretKeySpec; like SecretKeySpec it hands out copies, which some
+    // providers wipe once they have set up their key schedule
+    static final class RawKey implements SecretKey {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] encoded;
+        private final String algorithm;
+
+        RawKey(byte[] encoded) {
+            this(encoded, CIPHER_ALGORITHM);
+        }
+
+        RawKey(byte[] encoded, String algorithm) {
+            this.encoded = encoded;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return encoded.clone();
+        }
+    }
+
+    // per-thread scratch buffers, grown on demand and never shrunk
+    private static final class Buffers {
+        private byte[] input = new byte[64];
+        private byte[] output = new byte[64];
+        private char[] chars = new char[128];
+
+        byte[] input(int size) {
+            if (input.length < size) {
+                input = new byte[size];
+            }
+            return input;
+        }
+
+        byte[] output(int size) {
+            if (output.length < size) {
+                output = new byte[size];
+            }
+            return output;
+        }
+
+        char[] chars(int size) {
+            if (chars.length < size) {
+                chars = new char[size];
+            }
+            return chars;
+        }
+    }
+}
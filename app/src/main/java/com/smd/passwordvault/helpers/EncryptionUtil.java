@@ -1,15 +1,9 @@
 package com.smd.passwordvault.helpers;
 
-import java.security.Key;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.SecretKeyFactory;
-import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.Random;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
 
 /*
  * PBKDF2 salted password hashing.
@@ -25,20 +19,32 @@ public class EncryptionUtil {
 
     // The following constants may be changed without breaking existing hashes.
     private static final int HASH_BYTES = 24;
-    private static final int PBKDF2_ITERATIONS = 1000;
-
+    // iteration count of the legacy hash, and the minimum KdfCalibrator picks
+    static final int PBKDF2_ITERATIONS = 1000;
 
-    public static String generateRandomPassword(int pwdSize)
-    {
-        String allowedChars = "0123456789qwertyuiopasdfghjklzxcvbnm!@#$%^&*";
-        Random rd = new Random();
-        StringBuilder sb = new StringBuilder(pwdSize);
+    // shared engine so the key and the ciphers are only set up once per thread
+    private static final CipherEngine CIPHER_ENGINE = new CipherEngine(SECRET_KEY.getBytes());
 
-        for(int i = 0; i < pwdSize; ++i){
-            sb.append(allowedChars.charAt(rd.nextInt(allowedChars.length())));
-        }
+    /**
+     * generates a random password with SecureRandom, with at least one character
+     * of each class and no look-alike characters
+     *
+     * @param pwdSize the password length
+     * @return the password
+     */
+    public static String generateRandomPassword(int pwdSize) {
+        return GeneratePassword.newPassword(new PasswordPolicy(pwdSize, 1, 1, 1, 1, true));
+    }
 
-        return sb.toString();
+    /**
+     * generates a diceware passphrase with SecureRandom
+     *
+     * @param wordList the words to draw from, see WordListLoader
+     * @param words    the number of words
+     * @return the passphrase
+     */
+    public static String generatePassphrase(WordList wordList, int words) {
+        return GeneratePassword.newPassphrase(wordList, words);
     }
 
 
@@ -69,7 +75,7 @@ public class EncryptionUtil {
      * @param bytes      the length of the hash to compute in bytes
      * @return the PBDKF2 hash of the password
      */
-    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int bytes)
+    static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int bytes)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
         PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, bytes * 8);
         SecretKeyFactory skf = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
@@ -82,14 +88,8 @@ public class EncryptionUtil {
      * @param array the byte array to convert
      * @return a length*2 character string encoding the byte array
      */
-    private static String toHex(byte[] array) {
-        BigInteger bi = new BigInteger(1, array);
-        String hex = bi.toString(16);
-        int paddingLength = (array.length * 2) - hex.length();
-        if (paddingLength > 0)
-            return String.format("%0" + paddingLength + "d", 0) + hex;
-        else
-            return hex;
+    static String toHex(byte[] array) {
+        return HexCodec.toHex(array);
     }
 
     /**
@@ -98,25 +98,23 @@ public class EncryptionUtil {
      * @param hex the hex string
      * @return the hex string decoded into a byte array
      */
-    private static byte[] fromHex(String hex) {
-        byte[] binary = new byte[hex.length() / 2];
-        for (int i = 0; i < binary.length; i++) {
-            binary[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
-        }
-        return binary;
+    static byte[] fromHex(String hex) {
+        return HexCodec.fromHex(hex);
     }
 
 
+    /**
+     * @return the engine holding the warm ciphers of the shared legacy key, which
+     * encrypted the accounts of users registered before per-user vault keys
+     */
+    public static CipherEngine getCipherEngine() {
+        return CIPHER_ENGINE;
+    }
+
     public static String encryptPassword(String origPwd) {
         String encPwd = null;
         try {
-            // Create key and cipher
-            Key aesKey = new SecretKeySpec(SECRET_KEY.getBytes(), "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-            // encrypt the text
-            cipher.init(Cipher.ENCRYPT_MODE, aesKey);
-            byte[] encrypted = cipher.doFinal(origPwd.getBytes());
-            encPwd = toHex(encrypted);
+            encPwd = CIPHER_ENGINE.encrypt(origPwd);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -127,15 +125,27 @@ public class EncryptionUtil {
     public static String decryptPassword(String encPwd) {
         String decPwd = null;
         try {
-            // Create key and cipher
-            Key aesKey = new SecretKeySpec(SECRET_KEY.getBytes(), "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-
-            byte[] encrypted = fromHex(encPwd);
-            // decrypt the text
-            cipher.init(Cipher.DECRYPT_MODE, aesKey);
-            decPwd = new String(cipher.doFinal(encrypted));
-            System.err.println("========Dec Pwd:" + decPwd);
+            decPwd = CIPHER_ENGINE.decrypt(encPwd);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return decPwd;
+    }
+
+    public static byte[] encryptPasswordToBytes(String origPwd) {
+        byte[] encPwd = null;
+        try {
+            encPwd = CIPHER_ENGINE.encryptToBytes(origPwd);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return encPwd;
+    }
+
+    public static String decryptPassword(byte[] encPwd) {
+        String decPwd = null;
+        try {
+            decPwd = CIPHER_ENGINE.decrypt(encPwd);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,49 @@
+package com.smd.passwordvault.helpers;
+
+/*
+ * Turns what the user typed into the search box into an FTS4 MATCH expression
+ * for the account search table.
+ *
+ * The text is split the way the simple tokenizer of FTS4 splits the indexed
+ * names: ASCII letters and digits, and every non-ASCII character, make up
+ * tokens, anything else separates them. Each token becomes a prefix query,
+ * and FTS4 requires all of them to match, so "goo ma" finds "Google Mail"
+ * while the user is still typing. No quote or parenthesis survives the split,
+ * and the tokens are lower cased like the index, which also keeps them from
+ * reading as the operators AND, OR, NOT and NEAR.
+ */
+public final class FullTextQuery {
+
+    private FullTextQuery() {
+    }
+
+    /**
+     * @param typed the text of the search box
+     * @return the MATCH expression, or null if the text has no token
+     */
+    public static String prefixMatch(String typed) {
+        StringBuilder match = new StringBuilder();
+        int start = -1;
+        for (int i = 0; i <= typed.length(); i++) {
+            boolean token = i < typed.length() && isTokenChar(typed.charAt(i));
+            if (token && start < 0) {
+                start = i;
+            } else if (!token && start >= 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                for (int j = start; j < i; j++) {
+                    char c = typed.charAt(j);
+                    match.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+                }
+                match.append('*');
+                start = -1;
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -1,40 +1,64 @@
 package com.smd.passwordvault.helpers;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Scanner;
+import java.util.Arrays;
 
+/*
+ * Password suggestions for the UI, generated on the device.
+ *
+ * Suggestions come from a pool that a background thread keeps filled for the
+ * last policy asked for, so the suggest button never waits on generation.
+ */
 public class GeneratePassword {
 
-    public static String newPassword()  {
-        String apiURL = "https://randommer.io/api/Text/Password?length=12&hasDigits=true&hasUppercase=true&hasSpecial=true";
-        String apiKey = "34d00eae19e04f6eb2123cdf2a59e1e1";
-        String pwd = "<ERROR>";
-
-        try{
-            URL url = new URL(apiURL);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            con.setRequestProperty("X-Api-Key", apiKey);
-            con.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/65.0.3325.181 Safari/537.36");
-            int response = con.getResponseCode();
-
-            if (response == 200) {
-                InputStream is = con.getInputStream();
-                Scanner s = new Scanner(is);
-                pwd = s.hasNext() ? s.next() : "";
-            }
-            else {
-                // throw new RuntimeException("HttpResponseCode: " + response);
-            }
-        }
-        catch (Exception ex){
-            System.out.println("******************** ERROR *************");
-            ex.printStackTrace();
-            // log the error
-        }
-
-        return pwd;
+    private static final int POOL_CAPACITY = 32;
+    private static final int POOL_LOW_WATER_MARK = 8;
+
+    private static final PasswordGenerator GENERATOR = new PasswordGenerator();
+    private static final PassphraseGenerator PASSPHRASE_GENERATOR = new PassphraseGenerator();
+
+    private static final PasswordPool POOL =
+            new PasswordPool(GENERATOR, PasswordPolicy.DEFAULT, POOL_CAPACITY, POOL_LOW_WATER_MARK);
+
+    /**
+     * @return a password for the default policy
+     */
+    public static String newPassword() {
+        return newPassword(PasswordPolicy.DEFAULT);
+    }
+
+    /**
+     * @param policy the policy the password must satisfy
+     * @return a password for the policy
+     */
+    public static String newPassword(PasswordPolicy policy) {
+        // a new policy replaces the pooled passwords of the previous one
+        POOL.setPolicy(policy);
+        char[] password = POOL.take();
+        String result = new String(password);
+        Arrays.fill(password, '\0');
+        return result;
+    }
+
+    /**
+     * @param wordList the words to draw from
+     * @param words    the number of words
+     * @return a passphrase of words separated by dashes
+     */
+    public static String newPassphrase(WordList wordList, int words) {
+        return PASSPHRASE_GENERATOR.newPassphrase(wordList, words, PassphraseGenerator.DEFAULT_SEPARATOR);
+    }
+
+    /**
+     * This method starts filling the pool in the background
+     */
+    public static void prefill() {
+        POOL.refill();
+    }
+
+    /**
+     * This method zeroes and drops the pooled passwords
+     */
+    public static void clearPool() {
+        POOL.flush();
     }
 }
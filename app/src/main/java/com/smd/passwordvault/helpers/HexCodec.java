@@ -0,0 +1,121 @@
+package com.smd.passwordvault.helpers;
+
+/*
+ * Table driven hexadecimal encoding and decoding.
+ *
+ * The encode/decode methods write into caller supplied buffers and do not
+ * allocate, so hot paths can keep one scratch buffer per thread. Output is
+ * lower case, the same as the BigInteger based encoding used before.
+ */
+public final class HexCodec {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // value of each ASCII hex digit, -1 for any other character
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < HEX_VALUES.length; i++) {
+            HEX_VALUES[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Encodes len bytes of src into 2 * len hex characters of dst.
+     *
+     * @param src    the bytes to encode
+     * @param off    the first byte to encode
+     * @param len    the number of bytes to encode
+     * @param dst    receives the hex characters
+     * @param dstOff the index of dst the first character is written to
+     * @return the number of characters written
+     */
+    public static int encode(byte[] src, int off, int len, char[] dst, int dstOff) {
+        for (int i = 0; i < len; i++) {
+            int b = src[off + i] & 0xff;
+            dst[dstOff++] = HEX_DIGITS[b >>> 4];
+            dst[dstOff++] = HEX_DIGITS[b & 0x0f];
+        }
+        return len * 2;
+    }
+
+    /**
+     * Decodes len hex characters of src into len / 2 bytes of dst.
+     *
+     * @param src    the hex characters to decode
+     * @param off    the first character to decode
+     * @param len    the number of characters to decode, must be even
+     * @param dst    receives the decoded bytes
+     * @param dstOff the index of dst the first byte is written to
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if len is odd or src is not hexadecimal
+     */
+    public static int decode(CharSequence src, int off, int len, byte[] dst, int dstOff) {
+        if ((len & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex characters: " + len);
+        }
+        for (int i = off, end = off + len; i < end; i += 2) {
+            dst[dstOff++] = (byte) ((digit(src.charAt(i)) << 4) | digit(src.charAt(i + 1)));
+        }
+        return len / 2;
+    }
+
+    /**
+     * Converts a byte array into a hexadecimal string.
+     *
+     * @param array the byte array to convert
+     * @return a length*2 character string encoding the byte array
+     */
+    public static String toHex(byte[] array) {
+        char[] hex = new char[array.length * 2];
+        encode(array, 0, array.length, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Converts a string of hexadecimal characters into a byte array.
+     *
+     * @param hex the hex string
+     * @return the hex string decoded into a byte array
+     */
+    public static byte[] fromHex(CharSequence hex) {
+        byte[] binary = new byte[hex.length() / 2];
+        decode(hex, 0, binary.length * 2, binary, 0);
+        return binary;
+    }
+
+    /**
+     * @param src the characters to check
+     * @return true if src is an even number of hex characters, which decode() accepts
+     */
+    public static boolean isHex(CharSequence src) {
+        if ((src.length() & 1) != 0) {
+            return false;
+        }
+        for (int i = 0; i < src.length(); i++) {
+            char c = src.charAt(i);
+            if (c >= HEX_VALUES.length || HEX_VALUES[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digit(char c) {
+        int value = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex character: " + c);
+        }
+        return value;
+    }
+}
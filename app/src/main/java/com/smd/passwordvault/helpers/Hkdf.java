@@ -0,0 +1,55 @@
+package com.smd.passwordvault.helpers;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * HKDF-Expand with HMAC-SHA256 (RFC 5869, section 2.3).
+ *
+ * Used to split the output of one password based key derivation into
+ * independent keys, so unlocking the vault only runs the slow KDF once.
+ * The KDF output is already uniformly random, so it is used as the
+ * pseudorandom key directly and the extract step is skipped.
+ */
+public final class Hkdf {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HASH_LEN = 32;
+
+    private Hkdf() {
+    }
+
+    /**
+     * Expands a pseudorandom key into length bytes of output keying material.
+     *
+     * @param prk    the pseudorandom key, at least 32 bytes
+     * @param info   the context the derived key is bound to
+     * @param length the number of bytes to derive, at most 255 * 32
+     * @return the derived key
+     * @throws GeneralSecurityException
+     */
+    public static byte[] expand(byte[] prk, byte[] info, int length) throws GeneralSecurityException {
+        if (length > 255 * HASH_LEN) {
+            throw new IllegalArgumentException("Cannot expand to more than " + 255 * HASH_LEN + " bytes");
+        }
+
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(prk, HMAC_ALGORITHM));
+
+        byte[] okm = new byte[length];
+        byte[] block = new byte[0];
+        int offset = 0;
+        for (int counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+
+            int chunk = Math.min(HASH_LEN, length - offset);
+            System.arraycopy(block, 0, okm, offset, chunk);
+            offset += chunk;
+        }
+        return okm;
+    }
+}
@@ -76,6 +76,28 @@ public class InputValidation {
         return true;
     }
 
+    /**
+     * method to check the password of InputEditText is not in the breached password list .
+     * A password only the breach filter has is accepted; the strength meter
+     * warns about it, since the filter is wrong for some passwords.
+     *
+     * @param textInputEditText
+     * @param textInputLayout
+     * @param message
+     * @return
+     */
+    public boolean isInputEditTextNotBreached(TextInputEditText textInputEditText, TextInputLayout textInputLayout, String message) {
+        String value = textInputEditText.getText().toString().trim();
+        if (BreachedPasswordsLoader.check(context, value) == BreachLookup.BREACHED) {
+            textInputLayout.setError(message);
+            hideKeyboardFrom(textInputEditText);
+            return false;
+        } else {
+            textInputLayout.setErrorEnabled(false);
+        }
+        return true;
+    }
+
     /**
      * method to Hide keyboard
      *
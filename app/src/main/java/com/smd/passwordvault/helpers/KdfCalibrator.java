@@ -0,0 +1,125 @@
+package com.smd.passwordvault.helpers;
+
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Picks the KDF cost parameters for this device.
+ *
+ * Measures how many iterations the device runs per millisecond and scales that
+ * to the target unlock latency, so fast phones get a proportionally slower hash
+ * for attackers while login stays around the same wall clock time everywhere.
+ *
+ * Argon2id keeps one lane per core (up to MAX_LANES) and as much memory as
+ * still allows MIN_PASSES passes within the target, then adds passes.
+ */
+public final class KdfCalibrator {
+
+    // unlock latency the iteration count is calibrated for; raising it makes
+    // users with an older calibration rehash on their next login
+    public static final int TARGET_UNLOCK_MILLIS = 250;
+
+    private static final int PROBE_ITERATIONS = 1000;
+    private static final long MIN_PROBE_NANOS = 40000000L; // 40 ms
+    private static final int ITERATION_STEP = 1000;
+    private static final int MAX_ITERATIONS = 10000000;
+    private static final int PROBE_BYTES = 32;
+
+    private static final int ARGON2_MEMORY_KIB = 32768; // 32 MiB
+    private static final int ARGON2_MIN_MEMORY_KIB = 8192;
+    private static final int MIN_PASSES = 2;
+    private static final int MAX_PASSES = 10;
+    private static final int MAX_LANES = 4;
+
+    private KdfCalibrator() {
+    }
+
+    /**
+     * measures the throughput of an algorithm and returns the cost parameters
+     * that fit the target latency
+     *
+     * @param algorithm    the algorithm id, as in PasswordHash
+     * @param targetMillis the unlock latency to aim for
+     * @return the parameters to hash with
+     * @throws GeneralSecurityException
+     */
+    public static Map<String, Integer> calibrateParameters(String algorithm, int targetMillis)
+            throws GeneralSecurityException {
+        KeyDerivation keyDerivation = PasswordHash.getKeyDerivation(algorithm);
+        if (PasswordHash.ARGON2ID.equals(algorithm)) {
+            return calibrateArgon2(keyDerivation, targetMillis);
+        }
+        return calibrateIterations(keyDerivation, targetMillis);
+    }
+
+    // the highest iteration count, rounded down to a multiple of 1000 and never
+    // below the default iteration count
+    private static Map<String, Integer> calibrateIterations(KeyDerivation keyDerivation, int targetMillis)
+            throws GeneralSecurityException {
+        char[] password = "calibration".toCharArray();
+        byte[] salt = new byte[16];
+        Map<String, Integer> params = new LinkedHashMap<>();
+
+        // first call pays for the provider lookup, keep it out of the measurement
+        params.put(PasswordHash.PARAM_ITERATIONS, PROBE_ITERATIONS);
+        keyDerivation.derive(password, salt, params, PROBE_BYTES);
+
+        // double the probe until one run is long enough to time reliably;
+        // the last, largest probe also runs on the warmest code
+        int probe = PROBE_ITERATIONS;
+        long elapsed;
+        while (true) {
+            params.put(PasswordHash.PARAM_ITERATIONS, probe);
+            long start = System.nanoTime();
+            keyDerivation.derive(password, salt, params, PROBE_BYTES);
+            elapsed = System.nanoTime() - start;
+            if (elapsed >= MIN_PROBE_NANOS || probe >= MAX_ITERATIONS / 2) {
+                break;
+            }
+            probe *= 2;
+        }
+
+        double iterationsPerNano = (double) probe / elapsed;
+        long iterations = (long) (iterationsPerNano * targetMillis * 1000000L);
+        iterations = iterations / ITERATION_STEP * ITERATION_STEP;
+
+        params.put(PasswordHash.PARAM_ITERATIONS,
+                (int) Math.max(EncryptionUtil.PBKDF2_ITERATIONS, Math.min(MAX_ITERATIONS, iterations)));
+        return params;
+    }
+
+    // lanes and memory first, then as many passes as fit the target
+    private static Map<String, Integer> calibrateArgon2(KeyDerivation keyDerivation, int targetMillis)
+            throws GeneralSecurityException {
+        char[] password = "calibration".toCharArray();
+        byte[] salt = new byte[16];
+        long targetNanos = targetMillis * 1000000L;
+
+        Map<String, Integer> params = new LinkedHashMap<>();
+        params.put(PasswordHash.PARAM_MEMORY_KIB, ARGON2_MEMORY_KIB);
+        params.put(PasswordHash.PARAM_PASSES, 1);
+        params.put(PasswordHash.PARAM_PARALLELISM,
+                Math.min(MAX_LANES, Runtime.getRuntime().availableProcessors()));
+
+        // first call allocates the pooled block memory, keep it out of the measurement
+        keyDerivation.derive(password, salt, params, PROBE_BYTES);
+
+        // halve the memory until MIN_PASSES passes fit the target
+        long elapsed;
+        while (true) {
+            long start = System.nanoTime();
+            keyDerivation.derive(password, salt, params, PROBE_BYTES);
+            elapsed = System.nanoTime() - start;
+            int memoryKib = params.get(PasswordHash.PARAM_MEMORY_KIB);
+            if (elapsed * MIN_PASSES <= targetNanos || memoryKib / 2 < ARGON2_MIN_MEMORY_KIB) {
+                break;
+            }
+            params.put(PasswordHash.PARAM_MEMORY_KIB, memoryKib / 2);
+        }
+
+        long passes = targetNanos / Math.max(1, elapsed);
+        params.put(PasswordHash.PARAM_PASSES, (int) Math.max(MIN_PASSES, Math.min(MAX_PASSES, passes)));
+        return params;
+    }
+}
@@ -0,0 +1,28 @@
+package com.smd.passwordvault.helpers;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+/*
+ * A password based key derivation function that can be named in a PasswordHash.
+ */
+public interface KeyDerivation {
+
+    /**
+     * @return the algorithm id written in the hash string, e.g. pbkdf2-sha1
+     */
+    String getId();
+
+    /**
+     * derives length bytes from the password
+     *
+     * @param password the password
+     * @param salt     the salt
+     * @param params   the cost parameters, as written in the hash string
+     * @param length   the number of bytes to derive
+     * @return the derived bytes
+     * @throws GeneralSecurityException
+     */
+    byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int length)
+            throws GeneralSecurityException;
+}
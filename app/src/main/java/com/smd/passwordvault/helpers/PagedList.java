@@ -0,0 +1,289 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/*
+ * A list read page by page from a sorted source, for lists too long to hold
+ * in memory at once.
+ *
+ * Pages are aligned on multiples of the page size. A page is read right
+ * after the last item of the page before it, or right before the first item
+ * of the page after it, so a scroll in either direction costs one seek in
+ * the sort order per page. Only a page with neither neighbor loaded, after a
+ * jump, is read by its offset.
+ *
+ * Reading an item loads its page and prefetches the pages around it; pages
+ * further than half of maxPages from the last item read are dropped, so the
+ * memory held does not depend on the length of the list.
+ *
+ * get() and reset() are called on the main thread; pages are read on the
+ * background executor, and the listener is called on the main executor.
+ */
+public final class PagedList<T> {
+
+    /**
+     * reads the items of the sorted source; called on the background executor
+     */
+    public interface Loader<T> {
+        /**
+         * @return the number of items
+         */
+        int count();
+
+        /**
+         * @return up to limit items following the item at offset, inclusive
+         */
+        List<T> loadAt(int offset, int limit);
+
+        /**
+         * @return up to limit items following last, in order
+         */
+        List<T> loadAfter(T last, int limit);
+
+        /**
+         * @return up to limit items preceding first, in order
+         */
+        List<T> loadBefore(T first, int limit);
+    }
+
+    /**
+     * is told of changes to the list on the main executor
+     */
+    public interface Listener {
+        /**
+         * the list was read again after a reset(); every item may have changed
+         *
+         * @param size the number of items
+         */
+        void onReset(int size);
+
+        /**
+         * items that were not loaded are now
+         *
+         * @param position the position of the first item
+         * @param count    the number of items
+         */
+        void onPageLoaded(int position, int count);
+    }
+
+    private final Loader<T> loader;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final int maxPages;
+    private final Executor background;
+    private final Executor main;
+    private final Listener listener;
+
+    private final Map<Integer, List<T>> pages = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int size;
+    private int focusPage;
+
+    // incremented by reset() and close(); loads of an older generation are dropped
+    private int generation;
+    private boolean closed;
+
+    /**
+     * constructor
+     *
+     * @param loader        reads the items
+     * @param pageSize      the number of items read at once
+     * @param prefetchPages the number of pages loaded ahead and behind the item read
+     * @param maxPages      the number of pages kept around the item read
+     * @param background    runs the loader
+     * @param main          runs the listener
+     * @param listener      told of loaded pages and resets
+     */
+    public PagedList(Loader<T> loader, int pageSize, int prefetchPages, int maxPages,
+                     Executor background, Executor main, Listener listener) {
+        if (maxPages < 2 * prefetchPages + 1) {
+            throw new IllegalArgumentException("maxPages " + maxPages + " cannot hold the prefetched pages");
+        }
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.prefetchPages = prefetchPages;
+        this.maxPages = maxPages;
+        this.background = background;
+        this.main = main;
+        this.listener = listener;
+    }
+
+    /**
+     * @return the number of items as of the last reset
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * This method returns an item, and loads its page and the pages around it
+     *
+     * @param position the position of the item
+     * @return the item, or null while its page is being loaded
+     */
+    public synchronized T get(int position) {
+        int page = position / pageSize;
+        focusPage = page;
+        request(page);
+        for (int i = 1; i <= prefetchPages; i++) {
+            request(page + i);
+            request(page - i);
+        }
+        dropFarPages();
+
+        List<T> items = pages.get(page);
+        int index = position - page * pageSize;
+        return items != null && index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * This method reads the list, the first time or after the source changed.
+     * The pages loaded so far stay readable until the new size and the pages
+     * at the last position read are loaded.
+     */
+    public void reset() {
+        final int resetGeneration;
+        final int page;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            resetGeneration = ++generation;
+            loading.clear();
+            page = focusPage;
+        }
+
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int count = loader.count();
+                final Map<Integer, List<T>> loaded = new HashMap<>();
+                List<T> items = loader.loadAt(page * pageSize, pageSize);
+                loaded.put(page, items);
+                if (items.size() == pageSize) {
+                    // the next page is likely on screen too
+                    loaded.put(page + 1, loader.loadAfter(items.get(pageSize - 1), pageSize));
+                }
+
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (PagedList.this) {
+                            if (resetGeneration != generation) {
+                                return;
+                            }
+                            size = count;
+                            pages.clear();
+                            pages.putAll(loaded);
+                        }
+                        listener.onReset(count);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * This method stops loading, once the list is no longer shown. The loads
+     * under way are dropped and the listener is not called again.
+     */
+    public synchronized void close() {
+        closed = true;
+        generation++;
+        pages.clear();
+        loading.clear();
+    }
+
+    /**
+     * @return the number of pages held, for tests
+     */
+    synchronized int getLoadedPages() {
+        return pages.size();
+    }
+
+    // schedules the load of a page unless it is outside of the list, loaded
+    // or being loaded
+    private void request(final int page) {
+        if (closed || page < 0 || page * pageSize >= size || pages.containsKey(page) || loading.contains(page)) {
+            return;
+        }
+        loading.add(page);
+        final int requestGeneration = generation;
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(page, requestGeneration);
+            }
+        });
+    }
+
+    private void load(final int page, final int requestGeneration) {
+        T after = null;
+        T before = null;
+        synchronized (this) {
+            if (requestGeneration != generation || Math.abs(page - focusPage) > maxPages / 2) {
+                // reset or scrolled away meanwhile
+                loading.remove(page);
+                return;
+            }
+            List<T> previous = pages.get(page - 1);
+            List<T> next = pages.get(page + 1);
+            if (previous != null && previous.size() == pageSize) {
+                after = previous.get(pageSize - 1);
+            } else if (next != null && !next.isEmpty()) {
+                before = next.get(0);
+            }
+        }
+
+        final List<T> items;
+        try {
+            if (after != null) {
+                items = loader.loadAfter(after, pageSize);
+            } else if (before != null) {
+                items = loader.loadBefore(before, pageSize);
+            } else {
+                items = loader.loadAt(page * pageSize, pageSize);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(page);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            loading.remove(page);
+            if (requestGeneration != generation) {
+                return;
+            }
+            pages.put(page, items);
+            dropFarPages();
+        }
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PagedList.this) {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                }
+                listener.onPageLoaded(page * pageSize, items.size());
+            }
+        });
+    }
+
+    private void dropFarPages() {
+        Iterator<Integer> it = pages.keySet().iterator();
+        while (it.hasNext()) {
+            if (Math.abs(it.next() - focusPage) > maxPages / 2) {
+                it.remove();
+            }
+        }
+    }
+}
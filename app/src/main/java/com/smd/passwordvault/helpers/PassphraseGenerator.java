@@ -0,0 +1,59 @@
+package com.smd.passwordvault.helpers;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/*
+ * Diceware style passphrases: words drawn uniformly from a WordList with
+ * SecureRandom. With the 7776 words of the EFF long list every word adds
+ * about 12.9 bits, so the default six words give about 77 bits.
+ */
+public class PassphraseGenerator {
+
+    public static final int DEFAULT_WORDS = 6;
+    public static final char DEFAULT_SEPARATOR = '-';
+
+    private final SecureRandom random;
+
+    /**
+     * constructor
+     */
+    public PassphraseGenerator() {
+        this(new SecureRandom());
+    }
+
+    /**
+     * constructor
+     *
+     * @param random the source of randomness
+     */
+    public PassphraseGenerator(SecureRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * generates a passphrase
+     *
+     * @param wordList  the words to draw from
+     * @param words     the number of words
+     * @param separator the character between two words
+     * @return the passphrase
+     */
+    public String newPassphrase(WordList wordList, int words, char separator) {
+        if (words < 1) {
+            throw new IllegalArgumentException("A passphrase needs at least one word: " + words);
+        }
+        byte[] bytes = new byte[words * 8];
+        random.nextBytes(bytes);
+
+        StringBuilder sb = new StringBuilder(words * 10);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            wordList.appendWord(PasswordGenerator.index(bytes, i, wordList.size()), sb);
+        }
+        Arrays.fill(bytes, (byte) 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.smd.passwordvault.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * Keyed fingerprint of an account password, stored next to its cipher text so
+ * reused passwords can be found with an indexed GROUP BY instead of by
+ * decrypting every account.
+ *
+ * The fingerprint is HMAC-SHA256 truncated to 16 bytes, under a key derived
+ * from the master password along with the vault key. Without that key the
+ * fingerprints cannot be checked against guesses or compared across users,
+ * and they change whenever the vault is re-keyed.
+ *
+ * destroy() wipes the key the same way as CipherEngine.destroy().
+ */
+public class PasswordFingerprinter {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    public static final int FINGERPRINT_BYTES = 16;
+
+    private final byte[] keyBytes;
+    private final CipherEngine.RawKey key;
+
+    // every Mac initialized with the key, for destroy()
+    private final List<Mac> macs = Collections.synchronizedList(new ArrayList<Mac>());
+
+    private volatile boolean destroyed;
+
+    // Mac objects are not thread safe, one per thread as in CipherEngine
+    private final ThreadLocal<Mac> mac = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            checkNotDestroyed();
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+                macs.add(mac);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize " + HMAC_ALGORITHM, e);
+            }
+        }
+    };
+
+    /**
+     * constructor
+     *
+     * @param keyBytes the fingerprint key; it is copied
+     */
+    public PasswordFingerprinter(byte[] keyBytes) {
+        this.keyBytes = Arrays.copyOf(keyBytes, keyBytes.length);
+        this.key = new CipherEngine.RawKey(this.keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * This method wipes the key; the fingerprinter cannot be used afterwards
+     */
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(keyBytes, (byte) 0);
+        SecretKeySpec zeroKey = new SecretKeySpec(new byte[keyBytes.length], HMAC_ALGORITHM);
+        synchronized (macs) {
+            for (Mac mac : macs) {
+                try {
+                    mac.init(zeroKey);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Unable to reset " + HMAC_ALGORITHM, e);
+                }
+            }
+            macs.clear();
+        }
+    }
+
+    private void checkNotDestroyed() {
+        if (destroyed) {
+            throw new IllegalStateException("The fingerprinter was destroyed");
+        }
+    }
+
+    /**
+     * @param password the plain text password
+     * @return its FINGERPRINT_BYTES fingerprint
+     * @throws IllegalStateException if the fingerprinter is destroyed
+     */
+    public byte[] fingerprint(String password) {
+        checkNotDestroyed();
+        byte[] plain = password.getBytes(StandardCharsets.UTF_8);
+        byte[] full = mac.get().doFinal(plain);
+        Arrays.fill(plain, (byte) 0);
+        // a fingerprint taken while the key was being wiped may be of the zero key
+        checkNotDestroyed();
+        return Arrays.copyOf(full, FINGERPRINT_BYTES);
+    }
+}
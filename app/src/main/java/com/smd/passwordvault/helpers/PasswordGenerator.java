@@ -0,0 +1,102 @@
+package com.smd.passwordvault.helpers;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/*
+ * Generates passwords for a PasswordPolicy from SecureRandom, on the device.
+ *
+ * The required characters of each class are drawn first, the remaining
+ * positions from the whole alphabet, and a Fisher-Yates shuffle then spreads
+ * the required characters over the password. All the randomness one password
+ * needs is read in a single nextBytes call.
+ *
+ * An index below n is taken from the high 64 bits of a 64 x 64 bit product
+ * instead of a rejection loop, so every password costs the same fixed amount
+ * of work; the bias that leaves is below n / 2^64.
+ */
+public class PasswordGenerator {
+
+    private static final long LOW_32 = 0xffffffffL;
+
+    private final SecureRandom random;
+
+    /**
+     * constructor
+     */
+    public PasswordGenerator() {
+        this(new SecureRandom());
+    }
+
+    /**
+     * constructor
+     *
+     * @param random the source of randomness
+     */
+    public PasswordGenerator(SecureRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * generates a password; the caller should wipe the array after use
+     *
+     * @param policy the policy the password must satisfy
+     * @return the password
+     */
+    public char[] generate(PasswordPolicy policy) {
+        int length = policy.getLength();
+        // one draw per character and one per shuffle step
+        byte[] bytes = new byte[(2 * length - 1) * 8];
+        random.nextBytes(bytes);
+
+        char[] password = new char[length];
+        int draw = 0;
+        int pos = 0;
+        for (int c = 0; c < policy.getClassCount(); c++) {
+            char[] chars = policy.classAlphabet(c);
+            for (int k = 0; k < policy.getMinCount(c); k++) {
+                password[pos++] = chars[index(bytes, draw++, chars.length)];
+            }
+        }
+        char[] alphabet = policy.alphabet();
+        while (pos < length) {
+            password[pos++] = alphabet[index(bytes, draw++, alphabet.length)];
+        }
+
+        for (int i = length - 1; i > 0; i--) {
+            int j = index(bytes, draw++, i + 1);
+            char tmp = password[i];
+            password[i] = password[j];
+            password[j] = tmp;
+        }
+
+        Arrays.fill(bytes, (byte) 0);
+        return password;
+    }
+
+    /**
+     * generates a password as a String, for the text fields of the UI
+     *
+     * @param policy the policy the password must satisfy
+     * @return the password
+     */
+    public String newPassword(PasswordPolicy policy) {
+        char[] password = generate(policy);
+        String result = new String(password);
+        Arrays.fill(password, '\0');
+        return result;
+    }
+
+    // maps the draw-th 64 bit value of bytes onto [0, n)
+    static int index(byte[] bytes, int draw, int n) {
+        int off = draw * 8;
+        long x = 0;
+        for (int i = 0; i < 8; i++) {
+            x = (x << 8) | (bytes[off + i] & 0xff);
+        }
+        // high 64 bits of the unsigned product x * n
+        long high = (x >>> 32) * n;
+        long low = (x & LOW_32) * n;
+        return (int) ((high + (low >>> 32)) >>> 32);
+    }
+}
@@ -0,0 +1,357 @@
+package com.smd.passwordvault.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Self describing password hash, stored in PV_USER.user_password:
+ *
+ *   $<algorithm>$<param>=<value>[,<param>=<value>...]$<salt>$<verifier>
+ *
+ * e.g. $pbkdf2-sha256$i=120000$XDvnDuW5zq0nqzzAaG1HyQ$3Ay9...
+ *      $argon2id$m=32768,t=3,p=4$XDvnDuW5zq0nqzzAaG1HyQ$Jb8o...
+ *
+ * Salt and verifier are unpadded base64, as in the PHC string format. Each
+ * user gets a random salt, and several algorithms can be in use side by side;
+ * records are moved to the current algorithm and parameters on their next
+ * successful login.
+ *
+ * One KDF run gives a master secret that HKDF-Expand splits into the stored
+ * verifier and the vault key, which is only ever kept in memory.
+ */
+public class PasswordHash {
+
+    public static final String PBKDF2_SHA1 = "pbkdf2-sha1";
+    public static final String PBKDF2_SHA256 = "pbkdf2-sha256";
+    public static final String ARGON2ID = "argon2id";
+
+    // algorithm new and rehashed records use
+    public static final String CURRENT_ALGORITHM = ARGON2ID;
+
+    // PBKDF2 iteration count
+    public static final String PARAM_ITERATIONS = "i";
+    // Argon2id memory in KiB, passes and lanes, named as in the PHC format
+    public static final String PARAM_MEMORY_KIB = "m";
+    public static final String PARAM_PASSES = "t";
+    public static final String PARAM_PARALLELISM = "p";
+
+    private static final int SALT_BYTES = 16;
+    private static final int MASTER_SECRET_BYTES = 32;
+    private static final int VERIFIER_BYTES = 24;
+    private static final int VAULT_KEY_BYTES = 32;
+    private static final int FINGERPRINT_KEY_BYTES = 32;
+    private static final byte[] VERIFIER_INFO = "PasswordVault verifier v1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VAULT_KEY_INFO = "PasswordVault vault key v1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FINGERPRINT_KEY_INFO =
+            "PasswordVault fingerprint key v1".getBytes(StandardCharsets.UTF_8);
+
+    // salt shared by the hex records written before this format
+    private static final byte[] LEGACY_SALT = "FG$SDKK".getBytes(StandardCharsets.UTF_8);
+
+    private static final char[] B64_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final Map<String, KeyDerivation> ALGORITHMS = new HashMap<>();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    static {
+        register(new KeyDerivation() {
+            @Override
+            public String getId() {
+                return PBKDF2_SHA1;
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int length)
+                    throws GeneralSecurityException {
+                return EncryptionUtil.pbkdf2(password, salt, param(params, PARAM_ITERATIONS), length);
+            }
+        });
+        register(new KeyDerivation() {
+            @Override
+            public String getId() {
+                return PBKDF2_SHA256;
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int length) {
+                return Pbkdf2Sha256.derive(password, salt, param(params, PARAM_ITERATIONS), length);
+            }
+        });
+        register(new KeyDerivation() {
+            @Override
+            public String getId() {
+                return ARGON2ID;
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, Map<String, Integer> params, int length) {
+                return Argon2id.derive(password, salt, param(params, PARAM_PASSES),
+                        param(params, PARAM_MEMORY_KIB), param(params, PARAM_PARALLELISM), length);
+            }
+        });
+    }
+
+    private final String algorithm;
+    private final Map<String, Integer> params;
+    private final byte[] salt;
+    private final byte[] verifier;
+    private final boolean legacySalt;
+
+    private PasswordHash(String algorithm, Map<String, Integer> params, byte[] salt, byte[] verifier) {
+        this.algorithm = algorithm;
+        this.params = Collections.unmodifiableMap(params);
+        this.salt = salt;
+        this.verifier = verifier;
+        this.legacySalt = Arrays.equals(salt, LEGACY_SALT);
+    }
+
+    /**
+     * makes an algorithm available to hash strings
+     *
+     * @param keyDerivation the algorithm
+     */
+    public static synchronized void register(KeyDerivation keyDerivation) {
+        ALGORITHMS.put(keyDerivation.getId(), keyDerivation);
+    }
+
+    /**
+     * @param params the parameters of a hash
+     * @param name   the parameter an algorithm requires
+     * @return the value of the parameter
+     * @throws IllegalArgumentException if the hash does not have the parameter
+     */
+    public static int param(Map<String, Integer> params, String name) {
+        Integer value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing password hash parameter: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * @param id the algorithm id
+     * @return the registered algorithm
+     * @throws IllegalArgumentException if no algorithm has this id
+     */
+    public static synchronized KeyDerivation getKeyDerivation(String id) {
+        KeyDerivation keyDerivation = ALGORITHMS.get(id);
+        if (keyDerivation == null) {
+            throw new IllegalArgumentException("Unknown password hash algorithm: " + id);
+        }
+        return keyDerivation;
+    }
+
+    /**
+     * hashes a password with a new random salt
+     *
+     * @param password  the master password
+     * @param algorithm the algorithm id
+     * @param params    the cost parameters of the algorithm
+     * @return the encoded hash to store and the vault key to keep in the session
+     * @throws GeneralSecurityException
+     */
+    public static VaultKeys create(String password, String algorithm, Map<String, Integer> params)
+            throws GeneralSecurityException {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+
+        byte[][] derived = derive(password, algorithm, params, salt);
+        PasswordHash hash = new PasswordHash(algorithm, new LinkedHashMap<>(params), salt, derived[0]);
+        return new VaultKeys(hash.encode(), derived[1], derived[2]);
+    }
+
+    /**
+     * parses an encoded hash
+     *
+     * @param encoded the hash string
+     * @return the parsed hash
+     * @throws IllegalArgumentException if the string is not in the hash format
+     */
+    public static PasswordHash parse(String encoded) {
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 5 || !parts[0].isEmpty()) {
+            throw new IllegalArgumentException("Not a password hash string");
+        }
+
+        Map<String, Integer> params = new LinkedHashMap<>();
+        for (String param : parts[2].split(",")) {
+            int eq = param.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid password hash parameter: " + param);
+            }
+            params.put(param.substring(0, eq), Integer.parseInt(param.substring(eq + 1)));
+        }
+        return new PasswordHash(parts[1], params, fromB64(parts[3]), fromB64(parts[4]));
+    }
+
+    /**
+     * wraps a hex verifier written before this format: PBKDF2-SHA1 with the shared
+     * salt and the iteration count kept in its own column
+     *
+     * @param hexVerifier the stored hex verifier
+     * @param iterations  the stored iteration count
+     * @return the equivalent hash
+     */
+    public static PasswordHash fromLegacy(String hexVerifier, int iterations) {
+        Map<String, Integer> params = new LinkedHashMap<>();
+        params.put(PARAM_ITERATIONS, iterations);
+        return new PasswordHash(PBKDF2_SHA1, params, LEGACY_SALT.clone(), HexCodec.fromHex(hexVerifier));
+    }
+
+    /**
+     * @param encoded a stored hash
+     * @return true if the string is in the self describing format
+     */
+    public static boolean isEncoded(String encoded) {
+        return encoded != null && encoded.startsWith("$");
+    }
+
+    /**
+     * verifies a password, comparing the verifiers in constant time
+     *
+     * @param password the master password
+     * @return the vault keys if the password matches, otherwise null
+     * @throws GeneralSecurityException
+     */
+    public VaultKeys verify(String password) throws GeneralSecurityException {
+        byte[][] derived = derive(password, algorithm, params, salt);
+        if (!constantTimeEquals(derived[0], verifier)) {
+            Arrays.fill(derived[1], (byte) 0);
+            Arrays.fill(derived[2], (byte) 0);
+            return null;
+        }
+        return new VaultKeys(encode(), derived[1], derived[2]);
+    }
+
+    /**
+     * @param currentAlgorithm the algorithm records should use
+     * @param currentParams    the parameters records should use at least
+     * @return true if the record should be rehashed on this login
+     */
+    public boolean needsRehash(String currentAlgorithm, Map<String, Integer> currentParams) {
+        if (legacySalt || !algorithm.equals(currentAlgorithm)) {
+            return true;
+        }
+        for (Map.Entry<String, Integer> param : currentParams.entrySet()) {
+            Integer value = params.get(param.getKey());
+            if (value == null || value < param.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Map<String, Integer> getParams() {
+        return params;
+    }
+
+    /**
+     * @return the hash string
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder("$").append(algorithm).append('$');
+        boolean first = true;
+        for (Map.Entry<String, Integer> param : params.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(param.getKey()).append('=').append(param.getValue());
+            first = false;
+        }
+        sb.append('$').append(toB64(salt)).append('$').append(toB64(verifier));
+        return sb.toString();
+    }
+
+    // returns the verifier, the vault key and the fingerprint key, all expanded
+    // from one KDF run
+    private static byte[][] derive(String password, String algorithm, Map<String, Integer> params, byte[] salt)
+            throws GeneralSecurityException {
+        char[] chars = password.toCharArray();
+        byte[] master = getKeyDerivation(algorithm).derive(chars, salt, params, MASTER_SECRET_BYTES);
+        Arrays.fill(chars, '\0');
+        try {
+            return new byte[][]{
+                    Hkdf.expand(master, VERIFIER_INFO, VERIFIER_BYTES),
+                    Hkdf.expand(master, VAULT_KEY_INFO, VAULT_KEY_BYTES),
+                    Hkdf.expand(master, FINGERPRINT_KEY_INFO, FINGERPRINT_KEY_BYTES)
+            };
+        } finally {
+            Arrays.fill(master, (byte) 0);
+        }
+    }
+
+    /**
+     * compares two arrays in time that depends only on their length
+     *
+     * @param a
+     * @param b
+     * @return true if both arrays hold the same bytes
+     */
+    public static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) {
+            diff |= a[i] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    // unpadded base64; java.util.Base64 needs API 26
+    private static String toB64(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length * 4 + 2) / 3);
+        for (int i = 0; i < data.length; i += 3) {
+            int b = (data[i] & 0xff) << 16;
+            int n = Math.min(3, data.length - i);
+            if (n > 1) {
+                b |= (data[i + 1] & 0xff) << 8;
+            }
+            if (n > 2) {
+                b |= data[i + 2] & 0xff;
+            }
+            for (int j = 0; j <= n; j++) {
+                sb.append(B64_DIGITS[(b >>> (18 - 6 * j)) & 0x3f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromB64(String text) {
+        byte[] data = new byte[text.length() * 3 / 4];
+        int bits = 0;
+        int bitCount = 0;
+        int out = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int value = b64Value(text.charAt(i));
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                data[out++] = (byte) (bits >>> bitCount);
+            }
+        }
+        return data;
+    }
+
+    private static int b64Value(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '+') return 62;
+        if (c == '/') return 63;
+        throw new IllegalArgumentException("Invalid base64 character: " + c);
+    }
+}
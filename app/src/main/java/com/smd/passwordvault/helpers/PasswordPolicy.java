@@ -0,0 +1,146 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.Arrays;
+
+/*
+ * What a generated password must look like: its length, which character
+ * classes it draws from, how many characters of each class it must contain,
+ * and whether characters that are easy to misread are left out.
+ *
+ * Policies are immutable; the alphabets are built once in the constructor.
+ */
+public final class PasswordPolicy {
+
+    // minimum count of a class that must not be used at all
+    public static final int EXCLUDED = -1;
+
+    public static final int LOWER = 0;
+    public static final int UPPER = 1;
+    public static final int DIGIT = 2;
+    public static final int SYMBOL = 3;
+
+    private static final String[] CLASS_CHARS = {
+            "abcdefghijklmnopqrstuvwxyz",
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ",
+            "0123456789",
+            "!#$%&()*+,-./:;<=>?@[]^_{|}~"
+    };
+
+    // characters that are easily confused with one another
+    private static final String LOOK_ALIKES = "Il1|O0o";
+
+    public static final int MIN_LENGTH = 4;
+    public static final int MAX_LENGTH = 128;
+
+    // 16 characters from all classes, at least one of each, no look-alikes
+    public static final PasswordPolicy DEFAULT = new PasswordPolicy(16, 1, 1, 1, 1, true);
+
+    private final int length;
+    private final int[] minCounts;
+    private final boolean excludeLookAlikes;
+    private final char[][] classAlphabets;
+    private final char[] alphabet;
+
+    /**
+     * constructor
+     *
+     * @param length            the password length
+     * @param minLower          the minimum number of lower case letters, or EXCLUDED
+     * @param minUpper          the minimum number of upper case letters, or EXCLUDED
+     * @param minDigits         the minimum number of digits, or EXCLUDED
+     * @param minSymbols        the minimum number of symbols, or EXCLUDED
+     * @param excludeLookAlikes true to leave out characters such as l, 1 and I
+     * @throws IllegalArgumentException if no password can satisfy the policy
+     */
+    public PasswordPolicy(int length, int minLower, int minUpper, int minDigits, int minSymbols,
+                          boolean excludeLookAlikes) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Password length must be between "
+                    + MIN_LENGTH + " and " + MAX_LENGTH + ": " + length);
+        }
+        this.length = length;
+        this.minCounts = new int[]{minLower, minUpper, minDigits, minSymbols};
+        this.excludeLookAlikes = excludeLookAlikes;
+
+        classAlphabets = new char[CLASS_CHARS.length][];
+        StringBuilder all = new StringBuilder();
+        int required = 0;
+        for (int c = 0; c < CLASS_CHARS.length; c++) {
+            if (minCounts[c] < EXCLUDED) {
+                throw new IllegalArgumentException("Invalid minimum count: " + minCounts[c]);
+            }
+            if (minCounts[c] == EXCLUDED) {
+                classAlphabets[c] = new char[0];
+                continue;
+            }
+            StringBuilder chars = new StringBuilder();
+            for (char ch : CLASS_CHARS[c].toCharArray()) {
+                if (!excludeLookAlikes || LOOK_ALIKES.indexOf(ch) < 0) {
+                    chars.append(ch);
+                }
+            }
+            classAlphabets[c] = chars.toString().toCharArray();
+            all.append(chars);
+            required += minCounts[c];
+        }
+
+        alphabet = all.toString().toCharArray();
+        if (alphabet.length == 0) {
+            throw new IllegalArgumentException("At least one character class is required");
+        }
+        if (required > length) {
+            throw new IllegalArgumentException("Required characters exceed the length: " + required);
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param characterClass LOWER, UPPER, DIGIT or SYMBOL
+     * @return the minimum count of the class, or EXCLUDED
+     */
+    public int getMinCount(int characterClass) {
+        return minCounts[characterClass];
+    }
+
+    public boolean isExcludeLookAlikes() {
+        return excludeLookAlikes;
+    }
+
+    /**
+     * @return the number of character classes
+     */
+    public int getClassCount() {
+        return CLASS_CHARS.length;
+    }
+
+    // the characters of one class after exclusions; shared, do not modify
+    char[] classAlphabet(int characterClass) {
+        return classAlphabets[characterClass];
+    }
+
+    // the characters of all used classes; shared, do not modify
+    char[] alphabet() {
+        return alphabet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PasswordPolicy)) {
+            return false;
+        }
+        PasswordPolicy other = (PasswordPolicy) o;
+        return length == other.length && excludeLookAlikes == other.excludeLookAlikes
+                && Arrays.equals(minCounts, other.minCounts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * length + Arrays.hashCode(minCounts)) + (excludeLookAlikes ? 1 : 0);
+    }
+}
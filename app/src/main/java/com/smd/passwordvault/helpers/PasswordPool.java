@@ -0,0 +1,195 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Bounded pool of passwords generated ahead of time for the current policy,
+ * so a suggestion is a queue poll instead of a generation.
+ *
+ * The queue and the counters are lock-free. Whenever take() leaves fewer than
+ * lowWaterMark passwords, a single background producer fills the pool back up
+ * to its capacity.
+ *
+ * Every password is tagged with the generation it was made for. Changing the
+ * policy or flushing starts a new generation and zeroes the queued passwords.
+ * A password the producer was still working on when that happened is zeroed
+ * by the producer: it checks the generation again once the password is queued
+ * and takes it back out if the drain may have missed it, so nothing generated
+ * before a flush() outlives it.
+ */
+public class PasswordPool {
+
+    private final PasswordGenerator generator;
+    private final int capacity;
+    private final int lowWaterMark;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicReference<Generation> generation;
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    /**
+     * constructor
+     *
+     * @param generator    generates the passwords
+     * @param policy       the initial policy
+     * @param capacity     the most passwords kept ready
+     * @param lowWaterMark the size below which the pool is refilled
+     */
+    public PasswordPool(PasswordGenerator generator, PasswordPolicy policy, int capacity, int lowWaterMark) {
+        if (capacity < 1 || lowWaterMark < 0 || lowWaterMark > capacity) {
+            throw new IllegalArgumentException("Invalid pool size: " + capacity + "/" + lowWaterMark);
+        }
+        this.generator = generator;
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.generation = new AtomicReference<>(new Generation(policy, true));
+    }
+
+    /**
+     * takes a password for the current policy, generating one on the calling
+     * thread if the pool is empty; the caller should wipe the array after use
+     *
+     * @return the password
+     */
+    public char[] take() {
+        Generation current = generation.get();
+        char[] password = null;
+
+        Entry entry;
+        while (password == null && (entry = queue.poll()) != null) {
+            size.decrementAndGet();
+            if (entry.generation == current) {
+                password = entry.password;
+            } else {
+                Arrays.fill(entry.password, '\0');
+            }
+        }
+
+        if (size.get() < lowWaterMark) {
+            refill();
+        }
+        return password != null ? password : generator.generate(current.policy);
+    }
+
+    public PasswordPolicy getPolicy() {
+        return generation.get().policy;
+    }
+
+    /**
+     * switches the pool to another policy, dropping the passwords of the old one
+     *
+     * @param policy the new policy
+     */
+    public void setPolicy(PasswordPolicy policy) {
+        Generation current = generation.get();
+        if (current.policy.equals(policy)) {
+            return;
+        }
+        if (generation.compareAndSet(current, new Generation(policy, true))) {
+            drain();
+            refill();
+        }
+    }
+
+    /**
+     * zeroes and drops every pooled password, including one the producer is
+     * queueing meanwhile; the pool fills up again on the next take()
+     */
+    public void flush() {
+        Generation current = generation.get();
+        generation.compareAndSet(current, new Generation(current.policy, false));
+        drain();
+    }
+
+    /**
+     * starts the background producer, unless it is already running
+     */
+    public void refill() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    produce();
+                } finally {
+                    refilling.set(false);
+                }
+            }
+        }, "PasswordPoolRefill");
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * @return the number of passwords ready, including any the next take() discards
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // runs on the producer thread until the pool is full or it is flushed
+    private void produce() {
+        Generation current = generation.get();
+        while (size.get() < capacity) {
+            char[] password = generator.generate(current.policy);
+            Generation latest = generation.get();
+            if (latest != current) {
+                Arrays.fill(password, '\0');
+                if (!latest.refill) {
+                    // flushed: stay empty until the next take()
+                    return;
+                }
+                // the policy changed: carry on with the new one
+                current = latest;
+                continue;
+            }
+            Entry entry = new Entry(password, current);
+            size.incrementAndGet();
+            queue.offer(entry);
+            if (generation.get() != current && queue.remove(entry)) {
+                // flushed or switched while queueing, after the drain went by
+                size.decrementAndGet();
+                Arrays.fill(password, '\0');
+            }
+        }
+    }
+
+    private void drain() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            size.decrementAndGet();
+            Arrays.fill(entry.password, '\0');
+        }
+    }
+
+    // a policy and the passwords generated for it since it was set; a running
+    // producer follows a new generation only if it asks for a refill
+    private static final class Generation {
+        private final PasswordPolicy policy;
+        private final boolean refill;
+
+        Generation(PasswordPolicy policy, boolean refill) {
+            this.policy = policy;
+            this.refill = refill;
+        }
+    }
+
+    private static final class Entry {
+        private final char[] password;
+        private final Generation generation;
+
+        Entry(char[] password, Generation generation) {
+            this.password = password;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.smd.passwordvault.helpers;
+
+import android.content.res.Resources;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.TextView;
+
+import com.smd.passwordvault.R;
+
+/*
+ * Shows the estimated strength of a password field in a TextView while the user
+ * types. The estimator is incremental, so every keystroke only costs the
+ * matches ending at the typed character. Passwords in the breached password
+ * list, or in the breach filter on devices without the list, are flagged.
+ */
+public class PasswordStrengthWatcher implements TextWatcher {
+
+    private final TextView strengthView;
+    private final StrengthEstimator estimator = new StrengthEstimator();
+
+    /**
+     * constructor
+     *
+     * @param strengthView the view the strength is shown in
+     */
+    public PasswordStrengthWatcher(TextView strengthView) {
+        this.strengthView = strengthView;
+        // ready by the time the user has typed a password, most of the time
+        BreachedPasswordsLoader.preloadFilter(strengthView.getContext());
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        if (s.length() == 0) {
+            estimator.clear();
+            strengthView.setText(null);
+            return;
+        }
+
+        StrengthEstimator.Strength strength = estimator.estimate(s);
+        int breach = BreachedPasswordsLoader.check(strengthView.getContext(), s.toString());
+        if (breach == BreachLookup.BREACHED) {
+            strengthView.setText(R.string.text_password_strength_breached);
+            return;
+        }
+        if (breach == BreachLookup.PROBABLY_BREACHED) {
+            strengthView.setText(R.string.text_password_strength_probably_breached);
+            return;
+        }
+        Resources resources = strengthView.getResources();
+        String score = resources.getStringArray(R.array.password_strength_scores)[strength.getScore()];
+        if (strength.getPattern() == StrengthEstimator.PATTERN_BRUTEFORCE) {
+            strengthView.setText(resources.getString(R.string.text_password_strength, score));
+        } else {
+            String pattern = resources.getStringArray(R.array.password_strength_patterns)[strength.getPattern()];
+            strengthView.setText(resources.getString(R.string.text_password_strength_pattern, score, pattern));
+        }
+    }
+
+    /**
+     * This method wipes the copy of the password kept by the estimator
+     */
+    public void clear() {
+        estimator.clear();
+    }
+}
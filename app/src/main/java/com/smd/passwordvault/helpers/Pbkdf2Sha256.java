@@ -0,0 +1,271 @@
+package com.smd.passwordvault.helpers;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * PBKDF2 with HMAC-SHA256 (RFC 8018), with its own SHA-256 compression.
+ *
+ * The HMAC key only changes the states reached after the ipad and opad
+ * blocks, so both are computed once per call. Every iteration then hashes a
+ * 32 byte message, which always fits one block with fixed padding: it costs
+ * exactly two compressions run over int words, with no MessageDigest, Mac
+ * or byte[] allocated inside the loop.
+ */
+public final class Pbkdf2Sha256 {
+
+    private static final int BLOCK_BYTES = 64;
+    private static final int DIGEST_BYTES = 32;
+    private static final int DIGEST_WORDS = 8;
+
+    // bit length of a one block message after the 64 byte pad block
+    private static final int SINGLE_BLOCK_BITS = (BLOCK_BYTES + DIGEST_BYTES) * 8;
+
+    private static final int[] INITIAL_STATE = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private Pbkdf2Sha256() {
+    }
+
+    /**
+     * derives length bytes from a password, which is encoded as UTF-8
+     *
+     * @param password   the password
+     * @param salt       the salt
+     * @param iterations the iteration count
+     * @param length     the number of bytes to derive
+     * @return the derived bytes
+     */
+    public static byte[] derive(char[] password, byte[] salt, int iterations, int length) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] key = new byte[encoded.remaining()];
+        encoded.get(key);
+        if (encoded.hasArray()) {
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+        try {
+            return derive(key, salt, iterations, length);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    /**
+     * derives length bytes from a password
+     *
+     * @param password   the password bytes
+     * @param salt       the salt
+     * @param iterations the iteration count
+     * @param length     the number of bytes to derive
+     * @return the derived bytes
+     */
+    public static byte[] derive(byte[] password, byte[] salt, int iterations, int length) {
+        if (iterations < 1 || length < 1) {
+            throw new IllegalArgumentException("iterations and length must be positive");
+        }
+
+        int[] w = new int[64];
+        int[] innerState = new int[DIGEST_WORDS];
+        int[] outerState = new int[DIGEST_WORDS];
+        padStates(password, w, innerState, outerState);
+
+        int[] state = new int[DIGEST_WORDS];
+        int[] u = new int[DIGEST_WORDS];
+        int[] t = new int[DIGEST_WORDS];
+        byte[] out = new byte[length];
+
+        for (int block = 1, off = 0; off < length; block++, off += DIGEST_BYTES) {
+            // U1 = HMAC(P, S || INT(block)), the only message of variable length
+            System.arraycopy(innerState, 0, state, 0, DIGEST_WORDS);
+            hashSaltBlock(state, w, salt, block);
+            finishHmac(outerState, state, w, u);
+            System.arraycopy(u, 0, t, 0, DIGEST_WORDS);
+
+            for (int i = 1; i < iterations; i++) {
+                // Ui = HMAC(P, Ui-1): one inner and one outer compression
+                System.arraycopy(innerState, 0, state, 0, DIGEST_WORDS);
+                compressDigest(state, w, u);
+                finishHmac(outerState, state, w, u);
+                for (int j = 0; j < DIGEST_WORDS; j++) {
+                    t[j] ^= u[j];
+                }
+            }
+
+            for (int j = 0; j < DIGEST_WORDS && off + j * 4 < length; j++) {
+                for (int b = 0; b < 4 && off + j * 4 + b < length; b++) {
+                    out[off + j * 4 + b] = (byte) (t[j] >>> (24 - 8 * b));
+                }
+            }
+        }
+
+        Arrays.fill(innerState, 0);
+        Arrays.fill(outerState, 0);
+        Arrays.fill(state, 0);
+        Arrays.fill(u, 0);
+        Arrays.fill(t, 0);
+        Arrays.fill(w, 0);
+        return out;
+    }
+
+    // states after compressing key ^ ipad and key ^ opad
+    private static void padStates(byte[] password, int[] w, int[] innerState, int[] outerState) {
+        byte[] key = new byte[BLOCK_BYTES];
+        if (password.length > BLOCK_BYTES) {
+            int[] digest = sha256(password, w);
+            for (int i = 0; i < DIGEST_WORDS; i++) {
+                putInt(key, i * 4, digest[i]);
+            }
+            Arrays.fill(digest, 0);
+        } else {
+            System.arraycopy(password, 0, key, 0, password.length);
+        }
+
+        System.arraycopy(INITIAL_STATE, 0, innerState, 0, DIGEST_WORDS);
+        System.arraycopy(INITIAL_STATE, 0, outerState, 0, DIGEST_WORDS);
+        for (int i = 0; i < 16; i++) {
+            w[i] = getInt(key, i * 4) ^ 0x36363636;
+        }
+        compress(innerState, w);
+        for (int i = 0; i < 16; i++) {
+            w[i] = getInt(key, i * 4) ^ 0x5c5c5c5c;
+        }
+        compress(outerState, w);
+        Arrays.fill(key, (byte) 0);
+    }
+
+    // hashes salt || INT(block) into a state that already absorbed the ipad block
+    private static void hashSaltBlock(int[] state, int[] w, byte[] salt, int block) {
+        int messageLength = salt.length + 4;
+        byte[] message = new byte[messageLength];
+        System.arraycopy(salt, 0, message, 0, salt.length);
+        putInt(message, salt.length, block);
+        hashTail(state, w, message, BLOCK_BYTES);
+    }
+
+    // outer hash of an inner digest: out = H(opad block || inner)
+    private static void finishHmac(int[] outerState, int[] inner, int[] w, int[] out) {
+        System.arraycopy(outerState, 0, out, 0, DIGEST_WORDS);
+        compressDigest(out, w, inner);
+    }
+
+    // compresses the single padded block holding a 32 byte message after a pad block;
+    // digest is copied into w first, so it may be any array but state
+    private static void compressDigest(int[] state, int[] w, int[] digest) {
+        System.arraycopy(digest, 0, w, 0, DIGEST_WORDS);
+        w[8] = 0x80000000;
+        w[9] = 0;
+        w[10] = 0;
+        w[11] = 0;
+        w[12] = 0;
+        w[13] = 0;
+        w[14] = 0;
+        w[15] = SINGLE_BLOCK_BITS;
+        compress(state, w);
+    }
+
+    // plain SHA-256, used for HMAC keys longer than a block
+    private static int[] sha256(byte[] message, int[] w) {
+        int[] state = INITIAL_STATE.clone();
+        hashTail(state, w, message, 0);
+        return state;
+    }
+
+    // hashes message, padded, into state; prefix is the number of bytes already absorbed
+    private static void hashTail(int[] state, int[] w, byte[] message, long prefix) {
+        int off = 0;
+        for (; off + BLOCK_BYTES <= message.length; off += BLOCK_BYTES) {
+            for (int i = 0; i < 16; i++) {
+                w[i] = getInt(message, off + i * 4);
+            }
+            compress(state, w);
+        }
+
+        byte[] last = new byte[BLOCK_BYTES * 2];
+        int rest = message.length - off;
+        System.arraycopy(message, off, last, 0, rest);
+        last[rest] = (byte) 0x80;
+        int padded = rest + 9 <= BLOCK_BYTES ? BLOCK_BYTES : BLOCK_BYTES * 2;
+        long bits = (prefix + message.length) * 8;
+        putInt(last, padded - 8, (int) (bits >>> 32));
+        putInt(last, padded - 4, (int) bits);
+        for (int blockOff = 0; blockOff < padded; blockOff += BLOCK_BYTES) {
+            for (int i = 0; i < 16; i++) {
+                w[i] = getInt(last, blockOff + i * 4);
+            }
+            compress(state, w);
+        }
+        Arrays.fill(last, (byte) 0);
+    }
+
+    // SHA-256 compression function; w[0..15] holds the block and is extended in place
+    private static void compress(int[] state, int[] w) {
+        for (int i = 16; i < 64; i++) {
+            int w15 = w[i - 15];
+            int w2 = w[i - 2];
+            int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        int a = state[0];
+        int b = state[1];
+        int c = state[2];
+        int d = state[3];
+        int e = state[4];
+        int f = state[5];
+        int g = state[6];
+        int h = state[7];
+
+        for (int i = 0; i < 64; i++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int ch = (e & f) ^ (~e & g);
+            int t1 = h + s1 + ch + K[i] + w[i];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int t2 = s0 + maj;
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    private static int getInt(byte[] src, int off) {
+        return (src[off] << 24) | ((src[off + 1] & 0xff) << 16) | ((src[off + 2] & 0xff) << 8) | (src[off + 3] & 0xff);
+    }
+
+    private static void putInt(byte[] dst, int off, int value) {
+        dst[off] = (byte) (value >>> 24);
+        dst[off + 1] = (byte) (value >>> 16);
+        dst[off + 2] = (byte) (value >>> 8);
+        dst[off + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,297 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * In-memory index of near-identical account passwords ("Summer2023!" and
+ * "summer2024!"), built when the vault is unlocked and kept up to date as
+ * accounts are saved and deleted.
+ *
+ * A password is reduced to its set of character bigrams, lower cased and with
+ * start and end markers, and that set to a MinHash signature of HASHES values.
+ * Two signatures agree at a position with probability equal to the Jaccard
+ * similarity of the two sets, so only signatures are kept, never passwords.
+ *
+ * Clusters are found with locality-sensitive hashing: the signature is cut
+ * into BANDS bands of ROWS values, and accounts are only compared when one of
+ * their bands is identical. Per band the accounts are sorted by the hash of
+ * that band, so finding the candidates costs BANDS sorts instead of comparing
+ * every pair of accounts. A candidate pair is similar if at least
+ * MIN_AGREEMENT of its signature values agree; similar pairs are merged into
+ * clusters with a union-find.
+ *
+ * With 16 bands of 4 rows, passwords with a bigram similarity of 0.6 become
+ * candidates with 89% probability, and of 0.3 with 12%.
+ */
+public final class SimilarityIndex {
+
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+    static final int HASHES = BANDS * ROWS;
+
+    // signature values two similar passwords must share, an estimated
+    // bigram similarity of 0.5
+    static final int MIN_AGREEMENT = HASHES / 2;
+
+    private static final char MARKER = '\0';
+
+    // signatures by slot; slots of removed accounts are reused
+    private int[] signatures = new int[16 * HASHES];
+    private long[] accountIds = new long[16];
+    private int slots;
+    private final Map<Long, Integer> slotOf = new HashMap<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+
+    // clusters of the current signatures, computed on demand
+    private List<long[]> clusters;
+    private Map<Long, long[]> clusterOf;
+
+    /**
+     * This method adds an account, or replaces its password
+     *
+     * @param accountId the account id
+     * @param password  the plain text password
+     */
+    public synchronized void put(long accountId, String password) {
+        Integer slot = slotOf.get(accountId);
+        if (slot == null) {
+            slot = newSlot();
+            slotOf.put(accountId, slot);
+            accountIds[slot] = accountId;
+        }
+        signature(password, signatures, slot * HASHES);
+        clusters = null;
+    }
+
+    /**
+     * This method adds an account unless it is already indexed, so that a bulk
+     * load of the vault does not overwrite a password saved in the meantime
+     *
+     * @param accountId the account id
+     * @param password  the plain text password
+     */
+    public synchronized void putIfAbsent(long accountId, String password) {
+        if (!slotOf.containsKey(accountId)) {
+            put(accountId, password);
+        }
+    }
+
+    /**
+     * @param accountId the account to drop from the index
+     */
+    public synchronized void remove(long accountId) {
+        Integer slot = slotOf.remove(accountId);
+        if (slot != null) {
+            accountIds[slot] = 0;
+            freeSlots.add(slot);
+            clusters = null;
+        }
+    }
+
+    /**
+     * This method empties the index
+     */
+    public synchronized void clear() {
+        Arrays.fill(signatures, 0);
+        slotOf.clear();
+        freeSlots.clear();
+        slots = 0;
+        clusters = null;
+    }
+
+    /**
+     * @return the number of indexed accounts
+     */
+    public synchronized int size() {
+        return slotOf.size();
+    }
+
+    /**
+     * @return the clusters of accounts with near-identical passwords, each with
+     * at least two accounts sorted by id, ordered by their first account
+     */
+    public synchronized List<long[]> getClusters() {
+        if (clusters == null) {
+            findClusters();
+        }
+        return clusters;
+    }
+
+    /**
+     * @param accountId an account id
+     * @return the cluster of the account, or null if no other account has a
+     * similar password
+     */
+    public synchronized long[] getCluster(long accountId) {
+        if (clusters == null) {
+            findClusters();
+        }
+        return clusterOf.get(accountId);
+    }
+
+    private int newSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.remove(freeSlots.size() - 1);
+        }
+        if (slots == accountIds.length) {
+            accountIds = Arrays.copyOf(accountIds, slots * 2);
+            signatures = Arrays.copyOf(signatures, slots * 2 * HASHES);
+        }
+        return slots++;
+    }
+
+    private void findClusters() {
+        int[] parent = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            parent[i] = i;
+        }
+
+        // band hash in the high half, slot in the low half, sorted so that
+        // the slots sharing a band are adjacent
+        long[] keys = new long[slotOf.size()];
+        for (int band = 0; band < BANDS; band++) {
+            int count = 0;
+            for (int slot : slotOf.values()) {
+                keys[count++] = (long) bandHash(signatures, slot * HASHES + band * ROWS) << 32 | slot;
+            }
+            Arrays.sort(keys, 0, count);
+
+            int start = 0;
+            while (start < count) {
+                int end = start + 1;
+                while (end < count && keys[end] >>> 32 == keys[start] >>> 32) {
+                    end++;
+                }
+                if (end - start > 1) {
+                    mergeSimilar(keys, start, end, parent);
+                }
+                start = end;
+            }
+        }
+
+        Map<Integer, List<Long>> members = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : slotOf.entrySet()) {
+            int root = find(parent, entry.getValue());
+            List<Long> cluster = members.get(root);
+            if (cluster == null) {
+                cluster = new ArrayList<>();
+                members.put(root, cluster);
+            }
+            cluster.add(entry.getKey());
+        }
+
+        clusters = new ArrayList<>();
+        clusterOf = new HashMap<>();
+        for (List<Long> cluster : members.values()) {
+            if (cluster.size() < 2) {
+                continue;
+            }
+            long[] ids = new long[cluster.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = cluster.get(i);
+            }
+            Arrays.sort(ids);
+            clusters.add(ids);
+            for (long id : ids) {
+                clusterOf.put(id, ids);
+            }
+        }
+        Collections.sort(clusters, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? -1 : a[0] == b[0] ? 0 : 1;
+            }
+        });
+        clusters = Collections.unmodifiableList(clusters);
+    }
+
+    // merges the slots of keys[start, end), which share a band, with the
+    // first slot of the run they are similar to; runs of identical passwords
+    // thus cost one comparison per slot
+    private void mergeSimilar(long[] keys, int start, int end, int[] parent) {
+        for (int j = start + 1; j < end; j++) {
+            int b = (int) keys[j];
+            for (int i = start; i < j; i++) {
+                int a = (int) keys[i];
+                if (find(parent, a) == find(parent, b)) {
+                    break;
+                }
+                if (agreement(a, b) >= MIN_AGREEMENT) {
+                    parent[find(parent, b)] = find(parent, a);
+                    break;
+                }
+            }
+        }
+    }
+
+    private int agreement(int a, int b) {
+        int agree = 0;
+        int offsetA = a * HASHES;
+        int offsetB = b * HASHES;
+        for (int k = 0; k < HASHES; k++) {
+            if (signatures[offsetA + k] == signatures[offsetB + k]) {
+                agree++;
+            }
+        }
+        return agree;
+    }
+
+    private static int find(int[] parent, int slot) {
+        while (parent[slot] != slot) {
+            parent[slot] = parent[parent[slot]];
+            slot = parent[slot];
+        }
+        return slot;
+    }
+
+    private static int bandHash(int[] signature, int offset) {
+        int hash = 1;
+        for (int k = 0; k < ROWS; k++) {
+            hash = hash * 31 + signature[offset + k];
+        }
+        return (int) mix(hash);
+    }
+
+    /**
+     * writes the MinHash signature of a password: for each of the HASHES hash
+     * functions, the smallest hash of its bigrams. The functions are h1 + k * h2
+     * of one 64 bit hash per bigram.
+     *
+     * @param password  the plain text password
+     * @param signature receives the HASHES values
+     * @param offset    where the signature starts
+     */
+    static void signature(String password, int[] signature, int offset) {
+        Arrays.fill(signature, offset, offset + HASHES, Integer.MAX_VALUE);
+        char previous = MARKER;
+        for (int i = 0; i <= password.length(); i++) {
+            char c = i < password.length() ? Character.toLowerCase(password.charAt(i)) : MARKER;
+            long hash = mix((long) previous << 16 | c);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int k = 0; k < HASHES; k++) {
+                int value = h1 + k * h2;
+                if (value < signature[offset + k]) {
+                    signature[offset + k] = value;
+                }
+            }
+            previous = c;
+        }
+    }
+
+    // the finalizer of MurmurHash3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb3fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
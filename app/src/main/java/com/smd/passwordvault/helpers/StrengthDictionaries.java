@@ -0,0 +1,64 @@
+package com.smd.passwordvault.helpers;
+
+/*
+ * Frequency ranked word lists the strength estimator matches against, most
+ * frequent first. They are deliberately short (the heads of the public leaked
+ * password, census name and English frequency lists) so they can live in the
+ * dex instead of an asset; the head of each list is where almost all of the
+ * guessing advantage of an attacker is.
+ *
+ * Words are lowercase, 3 characters or longer, separated by single spaces.
+ */
+final class StrengthDictionaries {
+
+    static final String PASSWORDS =
+            "123456 password 12345678 qwerty 123456789 12345 1234 111111 1234567 dragon"
+            + " 123123 baseball abc123 football monkey letmein 696969 shadow master 666666"
+            + " qwertyuiop 123321 mustang 1234567890 michael 654321 superman 1qaz2wsx 7777777 121212"
+            + " 000000 qazwsx 123qwe killer trustno1 jordan jennifer zxcvbnm asdfgh hunter"
+            + " buster soccer harley batman andrew tigger sunshine iloveyou 2000 charlie"
+            + " robert thomas hockey ranger daniel starwars klaster 112233 george computer"
+            + " michelle jessica pepper 1111 zxcvbn 555555 11111111 131313 freedom 777777"
+            + " pass maggie 159753 aaaaaa ginger princess joshua cheese amanda summer"
+            + " love ashley nicole chelsea biteme matthew access yankees 987654321 dallas"
+            + " austin thunder taylor matrix maverick qwerty1 michael1 charlie1 soccer1 killer1"
+            + " dragon1 welcome admin login passw0rd password1 qwerty123 iloveyou1 princess1 monkey1"
+            + " football1 baseball1 secret flower hello sunflower whatever donald liverpool arsenal"
+            + " cookie butterfly purple jordan23 angel angels babygirl lovely family hottie"
+            + " 123abc abcdef abcd1234 qwe123 zaq12wsx asdf asdfghjkl qazxsw 1q2w3e4r 1q2w3e"
+            + " 1q2w3e4r5t 123654 147258369 1234qwer q1w2e3r4 google internet samsung apple"
+            + " blink182 pokemon naruto minecraft fuckyou 123456a a123456 alexander"
+            + " loveme mylove qwertyu 11111 22222 88888888 12341234 99999999 00000000"
+            + " 7777 1212 6969 2112 4321 5150 1313 8675309 hannah justin"
+            + " tinkle peanut hello123 changeme default guest test test123 root toor";
+
+    static final String NAMES =
+            "james john robert michael william david richard joseph thomas charles"
+            + " christopher daniel matthew anthony mark donald steven paul andrew joshua"
+            + " kenneth kevin brian george timothy ronald edward jason jeffrey ryan"
+            + " jacob gary nicholas eric jonathan stephen larry justin scott brandon"
+            + " benjamin samuel gregory alexander frank patrick raymond jack dennis jerry"
+            + " mary patricia jennifer linda elizabeth barbara susan jessica sarah karen"
+            + " lisa nancy betty margaret sandra ashley kimberly emily donna michelle"
+            + " carol amanda dorothy melissa deborah stephanie rebecca sharon laura cynthia"
+            + " kathleen amy angela shirley anna brenda pamela emma nicole helen"
+            + " samantha katherine christine debra rachel carolyn janet catherine maria heather"
+            + " smith johnson williams brown jones garcia miller davis rodriguez martinez"
+            + " hernandez lopez gonzalez wilson anderson taylor moore jackson martin lee"
+            + " perez thompson white harris sanchez clark ramirez lewis robinson walker";
+
+    static final String WORDS =
+            "the and for you that with this have not but are what all was"
+            + " love your one will time like know just get out more who about when"
+            + " there can now good day man his yes way how see back people think"
+            + " want year world life work home house money girl baby heart family friend"
+            + " summer winter spring autumn sun moon star sky fire water earth"
+            + " red blue green black white silver gold orange yellow purple"
+            + " dog cat tiger lion eagle horse dragon monkey bear wolf fish"
+            + " king queen prince angel devil god jesus magic secret hello welcome"
+            + " happy lucky sweet honey sugar cookie candy chocolate coffee music"
+            + " football soccer hockey baseball basketball game player team winner power";
+
+    private StrengthDictionaries() {
+    }
+}
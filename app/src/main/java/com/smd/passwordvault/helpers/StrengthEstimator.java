@@ -0,0 +1,516 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/*
+ * Estimates how many guesses an attacker needs for a password, in the manner of
+ * zxcvbn: the password is covered by the cheapest sequence of patterns (ranked
+ * dictionary words with capitalization and l33t substitutions, keyboard walks,
+ * character sequences, repeats and years) plus brute forced characters, and the
+ * guesses of that cover give the 0-4 score.
+ *
+ * All state is kept per end position: the best cover of the prefix ending at k
+ * only depends on the matches ending at k and the covers of shorter prefixes.
+ * estimate() therefore only evaluates the characters from the first one that
+ * changed since the previous call; typing a character costs the matches ending
+ * at that character, whatever the length of the password. Dictionary words are
+ * found by walking a trie of the reversed words backwards from k.
+ *
+ * An estimator remembers the last password it saw; it is meant for one text
+ * field on the UI thread and should be clear()ed when the field goes away.
+ */
+public final class StrengthEstimator {
+
+    // what the cheapest cover mostly consists of
+    public static final int PATTERN_BRUTEFORCE = 0;
+    public static final int PATTERN_PASSWORD = 1;
+    public static final int PATTERN_NAME = 2;
+    public static final int PATTERN_WORD = 3;
+    public static final int PATTERN_SPATIAL = 4;
+    public static final int PATTERN_SEQUENCE = 5;
+    public static final int PATTERN_REPEAT = 6;
+    public static final int PATTERN_YEAR = 7;
+
+    // guesses per brute forced character, and the floor of a multi character match
+    private static final double LOG10_BRUTEFORCE_CARDINALITY = 1;
+    private static final double MIN_MATCH_GUESSES = 50;
+    private static final int MIN_PATTERN_LENGTH = 3;
+
+    // log10 of the guesses at which the score goes up to 1, 2, 3 and 4
+    private static final double[] SCORE_THRESHOLDS = {3, 6, 8, 10};
+
+    // keys and average neighbour count of the qwerty graph
+    private static final double KEYBOARD_STARTING_POSITIONS = 94;
+    private static final double KEYBOARD_AVERAGE_DEGREE = 4.6;
+
+    private static final int REFERENCE_YEAR = Calendar.getInstance().get(Calendar.YEAR);
+    private static final int MIN_YEAR_SPACE = 20;
+
+    private char[] chars = new char[0];
+    private int length;
+
+    // cheapest cover of the prefix ending at k: log10 guesses, first character
+    // of its last match and the pattern of that match
+    private double[] best = new double[0];
+    private int[] from = new int[0];
+    private int[] pattern = new int[0];
+
+    // lengths of the runs of keyboard neighbours, of +1/-1 steps and of repeated
+    // characters ending at k; direction of the keyboard step into k
+    private int[] spatialRun = new int[0];
+    private int[] direction = new int[0];
+    private int[] sequenceRun = new int[0];
+    private int[] repeatRun = new int[0];
+
+    /**
+     * This method estimates the strength of a password, reusing everything that
+     * was computed for the unchanged prefix of the previous password.
+     *
+     * @param password the password typed so far
+     * @return the estimated strength
+     */
+    public Strength estimate(CharSequence password) {
+        int n = password.length();
+        ensureCapacity(n);
+
+        int k = 0;
+        int common = Math.min(n, length);
+        while (k < common && chars[k] == password.charAt(k)) {
+            k++;
+        }
+        for (; k < n; k++) {
+            chars[k] = password.charAt(k);
+            evaluate(k);
+        }
+        if (n < length) {
+            Arrays.fill(chars, n, length, '\0');
+        }
+        length = n;
+        return strength();
+    }
+
+    /**
+     * This method forgets the last password, wiping the copy kept of it
+     */
+    public void clear() {
+        Arrays.fill(chars, '\0');
+        length = 0;
+    }
+
+    private Strength strength() {
+        if (length == 0) {
+            return new Strength(0, 0, PATTERN_BRUTEFORCE);
+        }
+        double log10Guesses = best[length - 1];
+        int score = 0;
+        while (score < SCORE_THRESHOLDS.length && log10Guesses >= SCORE_THRESHOLDS[score]) {
+            score++;
+        }
+
+        // the pattern covering the most characters of the cheapest cover
+        int dominant = PATTERN_BRUTEFORCE;
+        int dominantLength = 0;
+        for (int end = length - 1; end >= 0; end = from[end] - 1) {
+            int matchLength = end - from[end] + 1;
+            if (pattern[end] != PATTERN_BRUTEFORCE && matchLength > dominantLength) {
+                dominant = pattern[end];
+                dominantLength = matchLength;
+            }
+        }
+        return new Strength(score, log10Guesses, dominant);
+    }
+
+    // computes the run lengths and the cheapest cover of the prefix ending at k
+    private void evaluate(int k) {
+        char c = chars[k];
+
+        best[k] = before(k) + LOG10_BRUTEFORCE_CARDINALITY;
+        from[k] = k;
+        pattern[k] = PATTERN_BRUTEFORCE;
+
+        spatialRun[k] = 1;
+        direction[k] = -1;
+        sequenceRun[k] = 1;
+        repeatRun[k] = 1;
+        if (k > 0) {
+            char previous = chars[k - 1];
+            int step = Keyboard.direction(previous, c);
+            if (step >= 0) {
+                spatialRun[k] = spatialRun[k - 1] + 1;
+                direction[k] = step;
+            }
+            int delta = c - previous;
+            if ((delta == 1 || delta == -1) && charClass(c) == charClass(previous)
+                    && (sequenceRun[k - 1] == 1 || delta == previous - chars[k - 2])) {
+                sequenceRun[k] = sequenceRun[k - 1] + 1;
+            }
+            if (c == previous) {
+                repeatRun[k] = repeatRun[k - 1] + 1;
+            }
+        }
+
+        matchDictionary(k, CharTrie.ROOT, k, 0, 0);
+        matchSpatial(k);
+        matchSequence(k);
+        matchRepeat(k);
+        matchYear(k);
+    }
+
+    // log10 guesses of the cheapest cover of everything before start
+    private double before(int start) {
+        return start == 0 ? 0 : best[start - 1];
+    }
+
+    // keeps the match [start, end] if it makes the cover of the prefix cheaper
+    private void relax(int start, int end, double guesses, int matchPattern) {
+        double log10Guesses = before(start) + Math.log10(Math.max(guesses, MIN_MATCH_GUESSES));
+        if (log10Guesses < best[end]) {
+            best[end] = log10Guesses;
+            from[end] = start;
+            pattern[end] = matchPattern;
+        }
+    }
+
+    // walks the reversed word trie from chars[pos] backwards; every word node
+    // reached is a dictionary match [pos, end]
+    private void matchDictionary(int end, int node, int pos, int substitutions, int uppers) {
+        if (pos < 0) {
+            return;
+        }
+        char c = chars[pos];
+        int upper = Character.isUpperCase(c) ? 1 : 0;
+        char lower = Character.toLowerCase(c);
+
+        walkDictionary(end, node, pos, lower, substitutions, uppers + upper);
+        String leet = Leet.candidates(c);
+        for (int i = 0; i < leet.length(); i++) {
+            walkDictionary(end, node, pos, leet.charAt(i), substitutions + 1, uppers);
+        }
+    }
+
+    private void walkDictionary(int end, int node, int pos, char label, int substitutions, int uppers) {
+        int child = Dictionaries.TRIE.child(node, label);
+        if (child == CharTrie.NONE) {
+            return;
+        }
+        int value = Dictionaries.TRIE.value(child);
+        if (value != 0) {
+            int matchLength = end - pos + 1;
+            double guesses = (value >>> 2)
+                    * upperVariations(matchLength, uppers, Character.isUpperCase(chars[pos]))
+                    * substitutionVariations(matchLength, substitutions);
+            relax(pos, end, guesses, value & 3);
+        }
+        matchDictionary(end, child, pos - 1, substitutions, uppers);
+    }
+
+    // keyboard walks of at least MIN_PATTERN_LENGTH keys ending at k
+    private void matchSpatial(int k) {
+        int run = spatialRun[k];
+        if (run < MIN_PATTERN_LENGTH) {
+            return;
+        }
+        int turns = 1;
+        int shifted = Keyboard.isShifted(chars[k]) ? 1 : 0;
+        shifted += Keyboard.isShifted(chars[k - 1]) ? 1 : 0;
+        for (int start = k - 2; start > k - run; start--) {
+            if (direction[start + 2] != direction[start + 1]) {
+                turns++;
+            }
+            shifted += Keyboard.isShifted(chars[start]) ? 1 : 0;
+            int matchLength = k - start + 1;
+            double guesses = spatialGuesses(matchLength, turns)
+                    * upperVariations(matchLength, shifted, false);
+            relax(start, k, guesses, PATTERN_SPATIAL);
+        }
+    }
+
+    // runs like abc, 4321 or XYZ ending at k
+    private void matchSequence(int k) {
+        int run = sequenceRun[k];
+        if (run < MIN_PATTERN_LENGTH) {
+            return;
+        }
+        boolean descending = chars[k] < chars[k - 1];
+        for (int start = k - 2; start > k - run; start--) {
+            char first = chars[start];
+            double base;
+            if ("aAzZ019".indexOf(first) >= 0) {
+                base = 4;
+            } else if (Character.isDigit(first)) {
+                base = 10;
+            } else {
+                base = 26;
+            }
+            relax(start, k, base * (k - start + 1) * (descending ? 2 : 1), PATTERN_SEQUENCE);
+        }
+    }
+
+    // one character repeated, aaaa or 1111, ending at k
+    private void matchRepeat(int k) {
+        int run = repeatRun[k];
+        if (run < MIN_PATTERN_LENGTH) {
+            return;
+        }
+        double cardinality = cardinality(chars[k]);
+        for (int start = k - 2; start > k - run; start--) {
+            relax(start, k, cardinality * (k - start + 1), PATTERN_REPEAT);
+        }
+    }
+
+    // a four digit year from 1900 to 2099 ending at k
+    private void matchYear(int k) {
+        if (k < 3) {
+            return;
+        }
+        int year = 0;
+        for (int i = k - 3; i <= k; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return;
+            }
+            year = year * 10 + (c - '0');
+        }
+        if (year >= 1900 && year <= 2099) {
+            relax(k - 3, k, Math.max(Math.abs(year - REFERENCE_YEAR), MIN_YEAR_SPACE), PATTERN_YEAR);
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= chars.length) {
+            return;
+        }
+        int capacity = Math.max(n, chars.length * 2);
+        char[] grown = Arrays.copyOf(chars, capacity);
+        Arrays.fill(chars, '\0');
+        chars = grown;
+        best = Arrays.copyOf(best, capacity);
+        from = Arrays.copyOf(from, capacity);
+        pattern = Arrays.copyOf(pattern, capacity);
+        spatialRun = Arrays.copyOf(spatialRun, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        sequenceRun = Arrays.copyOf(sequenceRun, capacity);
+        repeatRun = Arrays.copyOf(repeatRun, capacity);
+    }
+
+    // zxcvbn: sum over lengths i and turn counts j of C(i - 1, j - 1) * s * d^j
+    static double spatialGuesses(int matchLength, int turns) {
+        double guesses = 0;
+        for (int i = 2; i <= matchLength; i++) {
+            for (int j = 1; j <= Math.min(turns, i - 1); j++) {
+                guesses += binomial(i - 1, j - 1) * KEYBOARD_STARTING_POSITIONS
+                        * Math.pow(KEYBOARD_AVERAGE_DEGREE, j);
+            }
+        }
+        return guesses;
+    }
+
+    // capitalized or all upper case words are tried first; any other mix
+    // costs the number of ways to pick up to that many letters to change
+    static double upperVariations(int matchLength, int uppers, boolean firstUpper) {
+        if (uppers == 0) {
+            return 1;
+        }
+        if (uppers == matchLength || (uppers == 1 && firstUpper)) {
+            return 2;
+        }
+        return sumOfBinomials(matchLength, Math.min(uppers, matchLength - uppers));
+    }
+
+    static double substitutionVariations(int matchLength, int substitutions) {
+        if (substitutions == 0) {
+            return 1;
+        }
+        return sumOfBinomials(matchLength, substitutions);
+    }
+
+    private static double sumOfBinomials(int n, int k) {
+        double sum = 0;
+        for (int i = 1; i <= k; i++) {
+            sum += binomial(n, i);
+        }
+        return sum;
+    }
+
+    private static double binomial(int n, int k) {
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    private static int charClass(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return PasswordPolicy.LOWER;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return PasswordPolicy.UPPER;
+        }
+        if (c >= '0' && c <= '9') {
+            return PasswordPolicy.DIGIT;
+        }
+        return PasswordPolicy.SYMBOL;
+    }
+
+    private static double cardinality(char c) {
+        switch (charClass(c)) {
+            case PasswordPolicy.DIGIT:
+                return 10;
+            case PasswordPolicy.SYMBOL:
+                return 33;
+            default:
+                return 26;
+        }
+    }
+
+    /*
+     * The estimated strength of one password.
+     */
+    public static final class Strength {
+        private final int score;
+        private final double guessesLog10;
+        private final int pattern;
+
+        Strength(int score, double guessesLog10, int pattern) {
+            this.score = score;
+            this.guessesLog10 = guessesLog10;
+            this.pattern = pattern;
+        }
+
+        /**
+         * @return 0 (guessed in under a thousand tries) to 4 (over 10^10 tries)
+         */
+        public int getScore() {
+            return score;
+        }
+
+        public double getGuessesLog10() {
+            return guessesLog10;
+        }
+
+        /**
+         * @return the PATTERN_* covering most of the password
+         */
+        public int getPattern() {
+            return pattern;
+        }
+    }
+
+    // the reversed words of StrengthDictionaries, built on first use; a word
+    // is stored with (rank << 2 | pattern), so the rank wins across lists and
+    // the pattern tells which list it came from
+    private static final class Dictionaries {
+        static final CharTrie TRIE = build();
+
+        private static CharTrie build() {
+            CharTrie.Builder builder = new CharTrie.Builder();
+            add(builder, StrengthDictionaries.PASSWORDS, PATTERN_PASSWORD);
+            add(builder, StrengthDictionaries.NAMES, PATTERN_NAME);
+            add(builder, StrengthDictionaries.WORDS, PATTERN_WORD);
+            return builder.build();
+        }
+
+        private static void add(CharTrie.Builder builder, String words, int listPattern) {
+            String[] list = words.split(" ");
+            for (int rank = 1; rank <= list.length; rank++) {
+                StringBuilder reversed = new StringBuilder(list[rank - 1]).reverse();
+                builder.add(reversed, rank << 2 | listPattern);
+            }
+        }
+    }
+
+    // characters commonly substituted for letters, with the letters they stand for
+    static final class Leet {
+        private static final String[] TABLE = new String[128];
+
+        static {
+            TABLE['4'] = "a";
+            TABLE['@'] = "a";
+            TABLE['8'] = "b";
+            TABLE['('] = "c";
+            TABLE['{'] = "c";
+            TABLE['['] = "c";
+            TABLE['<'] = "c";
+            TABLE['3'] = "e";
+            TABLE['6'] = "g";
+            TABLE['9'] = "g";
+            TABLE['1'] = "il";
+            TABLE['!'] = "i";
+            TABLE['|'] = "il";
+            TABLE['0'] = "o";
+            TABLE['$'] = "s";
+            TABLE['5'] = "s";
+            TABLE['7'] = "t";
+            TABLE['+'] = "t";
+            TABLE['%'] = "x";
+            TABLE['2'] = "z";
+        }
+
+        private Leet() {
+        }
+
+        static String candidates(char c) {
+            String letters = c < TABLE.length ? TABLE[c] : null;
+            return letters != null ? letters : "";
+        }
+    }
+
+    // adjacency on a qwerty keyboard; rows are staggered, so the keys above
+    // column c of a row are at columns c + OFFSET[row] and c + OFFSET[row] + 1
+    static final class Keyboard {
+        private static final String[] ROWS = {"`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./"};
+        private static final String[] SHIFTED_ROWS = {"~!@#$%^&*()_+", "QWERTYUIOP{}|", "ASDFGHJKL:\"", "ZXCVBNM<>?"};
+        private static final int[] OFFSET = {0, 1, 0, 0};
+
+        // row * 16 + column of every key, -1 for characters not on the keyboard
+        private static final int[] POSITION = new int[128];
+        private static final boolean[] SHIFTED = new boolean[128];
+
+        static {
+            Arrays.fill(POSITION, -1);
+            for (int row = 0; row < ROWS.length; row++) {
+                for (int column = 0; column < ROWS[row].length(); column++) {
+                    POSITION[ROWS[row].charAt(column)] = row * 16 + column;
+                    POSITION[SHIFTED_ROWS[row].charAt(column)] = row * 16 + column;
+                    SHIFTED[SHIFTED_ROWS[row].charAt(column)] = true;
+                }
+            }
+        }
+
+        private Keyboard() {
+        }
+
+        static boolean isShifted(char c) {
+            return c < SHIFTED.length && SHIFTED[c];
+        }
+
+        /**
+         * @return 0 to 5 for left, right, up left, up right, down left and down
+         * right, or -1 when the keys are not neighbours
+         */
+        static int direction(char a, char b) {
+            if (a >= POSITION.length || b >= POSITION.length || POSITION[a] < 0 || POSITION[b] < 0) {
+                return -1;
+            }
+            int rowA = POSITION[a] >> 4;
+            int columnA = POSITION[a] & 15;
+            int rowB = POSITION[b] >> 4;
+            int columnB = POSITION[b] & 15;
+            if (rowA == rowB) {
+                return columnB == columnA - 1 ? 0 : columnB == columnA + 1 ? 1 : -1;
+            }
+            if (rowB == rowA - 1) {
+                int left = columnA + OFFSET[rowA];
+                return columnB == left ? 2 : columnB == left + 1 ? 3 : -1;
+            }
+            if (rowB == rowA + 1) {
+                int left = columnB + OFFSET[rowB];
+                // seen from b, a is up right (so b is down left of a) or up left
+                return columnA == left + 1 ? 4 : columnA == left ? 5 : -1;
+            }
+            return -1;
+        }
+    }
+}
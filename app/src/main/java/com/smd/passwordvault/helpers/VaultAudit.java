@@ -0,0 +1,358 @@
+package com.smd.passwordvault.helpers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Health audit of the decrypted passwords of a vault: weak, breached, reused
+ * and near-duplicate passwords.
+ *
+ * The audit is a pipeline. The caller decrypts the accounts and add()s them;
+ * every CHUNK_SIZE passwords are analyzed (strength estimate, breach check,
+ * fingerprint) by a task on the pool while the caller goes on decrypting.
+ * Finished chunks are aggregated on the calling thread in submission order,
+ * at most IN_FLIGHT_PER_THREAD chunks per pool thread behind, so only a
+ * bounded number of plain text passwords is alive at any time. Aggregation only keeps fingerprints and
+ * skeletons: reused passwords share a fingerprint, near-duplicates share the
+ * lower cased letters of the password ("Summer2023!" and "summer2024") but
+ * not the fingerprint.
+ *
+ * An audit is used once from a single thread; cancel() may be called from any.
+ */
+public final class VaultAudit {
+
+    // passwords analyzed by one task
+    static final int CHUNK_SIZE = 256;
+
+    // chunks analyzed ahead of the aggregation, per pool thread
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    // passwords with fewer letters are not compared for near-duplicates
+    static final int MIN_SKELETON_LENGTH = 4;
+
+    // StrengthEstimator scores below this count as weak
+    public static final int WEAK_SCORE = 2;
+
+    /**
+     * tells whether a password appears in a known breach; called on pool threads
+     */
+    public interface BreachCheck {
+        boolean isBreached(String password);
+    }
+
+    /**
+     * receives the progress of the audit on the thread calling add() and finish()
+     */
+    public interface ProgressListener {
+        /**
+         * @param analyzed the number of passwords analyzed so far
+         */
+        void onProgress(int analyzed);
+    }
+
+    private final ForkJoinPool pool;
+    private final PasswordFingerprinter fingerprinter;
+    private final BreachCheck breachCheck;
+    private final ProgressListener listener;
+    private final int maxInFlight;
+
+    private final ArrayDeque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+    private String[] passwords = new String[CHUNK_SIZE];
+    private int count;
+
+    // aggregation state
+    private final Map<ByteBuffer, int[]> reuse = new HashMap<>();
+    private final Map<String, Skeleton> skeletons = new HashMap<>();
+    private int analyzed;
+    private int unreadable;
+    private int weak;
+    private int breached;
+
+    private volatile boolean cancelled;
+
+    /**
+     * constructor
+     *
+     * @param pool          the pool the analysis runs on
+     * @param fingerprinter fingerprints the passwords to find reused ones
+     * @param breachCheck   the breach check, or null to skip it
+     * @param listener      the progress listener, or null
+     */
+    public VaultAudit(ForkJoinPool pool, PasswordFingerprinter fingerprinter,
+                      BreachCheck breachCheck, ProgressListener listener) {
+        this.pool = pool;
+        this.fingerprinter = fingerprinter;
+        this.breachCheck = breachCheck;
+        this.listener = listener;
+        this.maxInFlight = pool.getParallelism() * IN_FLIGHT_PER_THREAD;
+    }
+
+    /**
+     * This method queues the password of a decrypted account for analysis
+     *
+     * @param password the plain text password, or null if it could not be decrypted
+     * @throws CancellationException if the audit was cancelled
+     */
+    public void add(String password) {
+        if (cancelled) {
+            throw new CancellationException("Vault audit cancelled");
+        }
+        if (password == null) {
+            unreadable++;
+            return;
+        }
+
+        passwords[count] = password;
+        if (++count == CHUNK_SIZE) {
+            submit();
+        }
+    }
+
+    /**
+     * This method waits for the queued accounts to be analyzed
+     *
+     * @return the summary of the audit
+     * @throws CancellationException if the audit was cancelled
+     */
+    public Report finish() {
+        submit();
+        while (!inFlight.isEmpty()) {
+            aggregate(inFlight.poll().join());
+        }
+        if (cancelled) {
+            throw new CancellationException("Vault audit cancelled");
+        }
+
+        int reusedAccounts = 0;
+        int reusedPasswords = 0;
+        for (int[] accounts : reuse.values()) {
+            if (accounts[0] > 1) {
+                reusedAccounts += accounts[0];
+                reusedPasswords++;
+            }
+        }
+        int nearDuplicates = 0;
+        for (Skeleton skeleton : skeletons.values()) {
+            if (skeleton.variants) {
+                nearDuplicates += skeleton.accounts;
+            }
+        }
+        return new Report(analyzed, unreadable, weak, breached, reusedAccounts, reusedPasswords, nearDuplicates);
+    }
+
+    /**
+     * This method stops the audit: the analysis tasks skip their remaining
+     * passwords and the next add() or finish() throws
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // hands the buffered chunk to the pool, aggregating the oldest chunks
+    // first if too many are still in flight
+    private void submit() {
+        if (count == 0) {
+            return;
+        }
+        while (inFlight.size() >= maxInFlight) {
+            aggregate(inFlight.poll().join());
+        }
+
+        inFlight.add(pool.submit(new AnalyzeTask(passwords, count)));
+        // the task owns the buffer now
+        passwords = new String[CHUNK_SIZE];
+        count = 0;
+    }
+
+    private void aggregate(ChunkResult result) {
+        for (int i = 0; i < result.count; i++) {
+            if (result.weak[i]) {
+                weak++;
+            }
+            if (result.breached[i]) {
+                breached++;
+            }
+
+            ByteBuffer fingerprint = ByteBuffer.wrap(result.fingerprints,
+                    i * PasswordFingerprinter.FINGERPRINT_BYTES, PasswordFingerprinter.FINGERPRINT_BYTES).slice();
+            int[] accounts = reuse.get(fingerprint);
+            if (accounts == null) {
+                reuse.put(fingerprint, new int[]{1});
+            } else {
+                accounts[0]++;
+            }
+
+            String key = result.skeletons[i];
+            if (key == null) {
+                continue;
+            }
+            Skeleton skeleton = skeletons.get(key);
+            if (skeleton == null) {
+                skeletons.put(key, new Skeleton(fingerprint));
+            } else {
+                skeleton.accounts++;
+                skeleton.variants |= !skeleton.fingerprint.equals(fingerprint);
+            }
+        }
+        analyzed += result.count;
+        if (listener != null) {
+            listener.onProgress(analyzed);
+        }
+    }
+
+    // the lower cased letters of a password, or null if there are too few
+    static String skeleton(String password) {
+        StringBuilder letters = new StringBuilder(password.length());
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (Character.isLetter(c)) {
+                letters.append(Character.toLowerCase(c));
+            }
+        }
+        return letters.length() < MIN_SKELETON_LENGTH ? null : letters.toString();
+    }
+
+    /*
+     * Summary of an audit, counted in accounts unless stated otherwise.
+     */
+    public static final class Report {
+        private final int accounts;
+        private final int unreadable;
+        private final int weak;
+        private final int breached;
+        private final int reused;
+        private final int reusedPasswords;
+        private final int nearDuplicates;
+
+        public Report(int accounts, int unreadable, int weak, int breached,
+                      int reused, int reusedPasswords, int nearDuplicates) {
+            this.accounts = accounts;
+            this.unreadable = unreadable;
+            this.weak = weak;
+            this.breached = breached;
+            this.reused = reused;
+            this.reusedPasswords = reusedPasswords;
+            this.nearDuplicates = nearDuplicates;
+        }
+
+        /**
+         * @return the number of accounts whose password was analyzed
+         */
+        public int getAccounts() {
+            return accounts;
+        }
+
+        /**
+         * @return the number of accounts whose password could not be decrypted
+         */
+        public int getUnreadable() {
+            return unreadable;
+        }
+
+        /**
+         * @return the number of accounts scoring below WEAK_SCORE
+         */
+        public int getWeak() {
+            return weak;
+        }
+
+        /**
+         * @return the number of accounts with a breached password
+         */
+        public int getBreached() {
+            return breached;
+        }
+
+        /**
+         * @return the number of accounts sharing their password with another one
+         */
+        public int getReused() {
+            return reused;
+        }
+
+        /**
+         * @return the number of distinct passwords used by more than one account
+         */
+        public int getReusedPasswords() {
+            return reusedPasswords;
+        }
+
+        /**
+         * @return the number of accounts with a variant of another account's password
+         */
+        public int getNearDuplicates() {
+            return nearDuplicates;
+        }
+    }
+
+    // the accounts sharing a skeleton, and whether their passwords differ
+    private static final class Skeleton {
+        final ByteBuffer fingerprint;
+        int accounts = 1;
+        boolean variants;
+
+        Skeleton(ByteBuffer fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    // what the aggregation needs of a chunk; no plain text
+    private static final class ChunkResult {
+        final int count;
+        final boolean[] weak;
+        final boolean[] breached;
+        final byte[] fingerprints;
+        final String[] skeletons;
+
+        ChunkResult(int count) {
+            this.count = count;
+            weak = new boolean[count];
+            breached = new boolean[count];
+            fingerprints = new byte[count * PasswordFingerprinter.FINGERPRINT_BYTES];
+            skeletons = new String[count];
+        }
+    }
+
+    private final class AnalyzeTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] passwords;
+        private final int count;
+
+        AnalyzeTask(String[] passwords, int count) {
+            this.passwords = passwords;
+            this.count = count;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult(count);
+            StrengthEstimator estimator = new StrengthEstimator();
+            for (int i = 0; i < count && !cancelled; i++) {
+                String password = passwords[i];
+                passwords[i] = null;
+
+                result.weak[i] = estimator.estimate(password).getScore() < WEAK_SCORE;
+                result.breached[i] = breachCheck != null && breachCheck.isBreached(password);
+                System.arraycopy(fingerprinter.fingerprint(password), 0, result.fingerprints,
+                        i * PasswordFingerprinter.FINGERPRINT_BYTES, PasswordFingerprinter.FINGERPRINT_BYTES);
+                result.skeletons[i] = skeleton(password);
+            }
+            estimator.clear();
+            return result;
+        }
+    }
+}
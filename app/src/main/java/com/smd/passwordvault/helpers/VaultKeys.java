@@ -0,0 +1,47 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.Arrays;
+
+/*
+ * The values derived from the master password at unlock: the verifier stored
+ * in PV_USER to check the password, the key the account passwords are
+ * encrypted with and the key of their fingerprints; the keys are never stored.
+ */
+public class VaultKeys {
+    private final String verifier;
+    private final byte[] vaultKey;
+    private final byte[] fingerprintKey;
+
+    /**
+     * constructor
+     *
+     * @param verifier       the encoded password verifier
+     * @param vaultKey       the AES key of the user's vault
+     * @param fingerprintKey the HMAC key of the password fingerprints
+     */
+    public VaultKeys(String verifier, byte[] vaultKey, byte[] fingerprintKey) {
+        this.verifier = verifier;
+        this.vaultKey = vaultKey;
+        this.fingerprintKey = fingerprintKey;
+    }
+
+    public String getVerifier() {
+        return verifier;
+    }
+
+    public byte[] getVaultKey() {
+        return vaultKey;
+    }
+
+    public byte[] getFingerprintKey() {
+        return fingerprintKey;
+    }
+
+    /**
+     * wipes the keys once they have been handed to the session
+     */
+    public void destroy() {
+        Arrays.fill(vaultKey, (byte) 0);
+        Arrays.fill(fingerprintKey, (byte) 0);
+    }
+}
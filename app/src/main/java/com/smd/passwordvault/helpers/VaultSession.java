@@ -0,0 +1,157 @@
+package com.smd.passwordvault.helpers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * In-memory holder of the unlocked vault: the logged in user, the cipher
+ * engine built from the vault key derived at login, the fingerprinter of the
+ * account passwords and their similarity index. The keys are only ever kept
+ * here, never persisted, so after a logout or a process restart the user has
+ * to log in again before any account can be read.
+ *
+ * Listeners are told when the vault is unlocked and locked, on the thread
+ * doing it, so that work tied to the keys can start and stop with them.
+ */
+public final class VaultSession {
+
+    /**
+     * is told when the vault is unlocked and locked
+     */
+    public interface Listener {
+        /**
+         * @param userId the user the vault was unlocked for; the session is readable
+         */
+        void onUnlocked(int userId);
+
+        /**
+         * called after the keys are wiped
+         */
+        void onLocked();
+    }
+
+    private static volatile Unlocked current;
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private VaultSession() {
+    }
+
+    /**
+     * This method unlocks the vault for a user, replacing any previous session
+     *
+     * @param userId         the logged in user
+     * @param vaultKey       the vault key derived from the master password; it is copied
+     * @param fingerprintKey the fingerprint key derived along with it; it is copied
+     */
+    public static synchronized void unlock(int userId, byte[] vaultKey, byte[] fingerprintKey) {
+        lock();
+        current = new Unlocked(userId, Arrays.copyOf(vaultKey, vaultKey.length),
+                Arrays.copyOf(fingerprintKey, fingerprintKey.length));
+        // have password suggestions ready before the first add
+        GeneratePassword.prefill();
+        for (Listener listener : listeners) {
+            listener.onUnlocked(userId);
+        }
+    }
+
+    /**
+     * This method locks the vault and wipes the keys, the similarity index and
+     * the pooled password suggestions
+     */
+    public static synchronized void lock() {
+        Unlocked unlocked = current;
+        current = null;
+        if (unlocked != null) {
+            Arrays.fill(unlocked.vaultKey, (byte) 0);
+            Arrays.fill(unlocked.fingerprintKey, (byte) 0);
+            // their copies of the keys, and the ciphers set up with them
+            unlocked.cipherEngine.destroy();
+            unlocked.fingerprinter.destroy();
+            unlocked.similarityIndex.clear();
+        }
+        GeneratePassword.clearPool();
+        if (unlocked != null) {
+            for (Listener listener : listeners) {
+                listener.onLocked();
+            }
+        }
+    }
+
+    /**
+     * @param listener told of every unlock and lock from now on
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener added before
+     */
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public static boolean isUnlocked() {
+        return current != null;
+    }
+
+    /**
+     * @return the logged in user, or 0 when the vault is locked
+     */
+    public static int getUserId() {
+        Unlocked unlocked = current;
+        return unlocked != null ? unlocked.userId : 0;
+    }
+
+    /**
+     * @return the engine encrypting and decrypting with the vault key
+     * @throws IllegalStateException when the vault is locked
+     */
+    public static CipherEngine getCipherEngine() {
+        return unlocked().cipherEngine;
+    }
+
+    /**
+     * @return the fingerprinter of the account passwords
+     * @throws IllegalStateException when the vault is locked
+     */
+    public static PasswordFingerprinter getPasswordFingerprinter() {
+        return unlocked().fingerprinter;
+    }
+
+    /**
+     * @return the similarity index of the account passwords, filled in the
+     * background after unlock
+     * @throws IllegalStateException when the vault is locked
+     */
+    public static SimilarityIndex getSimilarityIndex() {
+        return unlocked().similarityIndex;
+    }
+
+    private static Unlocked unlocked() {
+        Unlocked unlocked = current;
+        if (unlocked == null) {
+            throw new IllegalStateException("The vault is locked");
+        }
+        return unlocked;
+    }
+
+    private static final class Unlocked {
+        private final int userId;
+        private final byte[] vaultKey;
+        private final CipherEngine cipherEngine;
+        private final byte[] fingerprintKey;
+        private final PasswordFingerprinter fingerprinter;
+        private final SimilarityIndex similarityIndex = new SimilarityIndex();
+
+        Unlocked(int userId, byte[] vaultKey, byte[] fingerprintKey) {
+            this.userId = userId;
+            this.vaultKey = vaultKey;
+            this.cipherEngine = new CipherEngine(vaultKey);
+            this.fingerprintKey = fingerprintKey;
+            this.fingerprinter = new PasswordFingerprinter(fingerprintKey);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.smd.passwordvault.helpers;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/*
+ * A word list in the packed binary format written by the WordListPacker tool:
+ *
+ *   int    magic 'PVWL'
+ *   int    format version
+ *   int    word count n
+ *   int    offsets[n + 1], relative to the start of the word data
+ *   byte   word data, ASCII, no separators
+ *
+ * all big endian. The file is memory mapped, so opening a list of tens of
+ * thousands of words reads only the header; looking up a word is two offset
+ * reads and copies its bytes straight into the caller's StringBuilder.
+ */
+public final class WordList {
+
+    static final int MAGIC = 0x5056574c; // "PVWL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int dataStart;
+
+    private WordList(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.dataStart = HEADER_BYTES + 4 * (size + 1);
+    }
+
+    /**
+     * maps a packed word list, e.g. an uncompressed asset inside the APK
+     *
+     * @param channel the file holding the list
+     * @param offset  the position of the list in the file
+     * @param length  the length of the list in bytes
+     * @return the word list
+     * @throws IOException if the list cannot be mapped or is not a packed word list
+     */
+    public static WordList map(FileChannel channel, long offset, long length) throws IOException {
+        return wrap(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * wraps a packed word list that is already in memory
+     *
+     * @param buffer the packed list, from position 0
+     * @return the word list
+     * @throws IOException if the buffer is not a packed word list
+     */
+    public static WordList wrap(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed word list");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported word list version: " + buffer.getInt(4));
+        }
+        int size = buffer.getInt(8);
+        long dataStart = HEADER_BYTES + 4L * (size + 1);
+        if (size < 1 || dataStart > buffer.capacity()
+                || dataStart + buffer.getInt((int) dataStart - 4) > buffer.capacity()) {
+            throw new IOException("Truncated word list");
+        }
+        return new WordList(buffer, size);
+    }
+
+    /**
+     * writes words in the packed format
+     *
+     * @param words the words, printable ASCII only
+     * @param out   receives the packed list; it is not closed
+     * @throws IOException
+     */
+    public static void pack(List<String> words, OutputStream out) throws IOException {
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("A word list needs at least one word");
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(words.size());
+
+        int offset = 0;
+        data.writeInt(offset);
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c <= ' ' || c > '~') {
+                    throw new IllegalArgumentException("Not a printable ASCII word: " + word);
+                }
+            }
+            offset += word.length();
+            data.writeInt(offset);
+        }
+        for (String word : words) {
+            data.writeBytes(word);
+        }
+        data.flush();
+    }
+
+    /**
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * appends a word to sb
+     *
+     * @param index the index of the word, 0 to size() - 1
+     * @param sb    receives the word
+     */
+    public void appendWord(int index, StringBuilder sb) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Word index " + index + " of " + size);
+        }
+        int start = dataStart + buffer.getInt(HEADER_BYTES + 4 * index);
+        int end = dataStart + buffer.getInt(HEADER_BYTES + 4 * (index + 1));
+        for (int i = start; i < end; i++) {
+            sb.append((char) buffer.get(i));
+        }
+    }
+
+    /**
+     * @param index the index of the word
+     * @return the word
+     */
+    public String getWord(int index) {
+        StringBuilder sb = new StringBuilder();
+        appendWord(index, sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.smd.passwordvault.helpers;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Maps the packed passphrase word list shipped in the APK assets. The asset is
+ * stored uncompressed (see aaptOptions in app/build.gradle), so it can be
+ * mapped in place instead of being inflated onto the heap.
+ *
+ * The list is built with tools/WordListPacker from a word list of the
+ * release; builds without it do not offer passphrases.
+ */
+public final class WordListLoader {
+
+    public static final String ASSET_NAME = "wordlist.bin";
+
+    private static WordList wordList;
+
+    private WordListLoader() {
+    }
+
+    /**
+     * This method tells whether the APK has the word list, without opening it
+     *
+     * @param context any context of the app
+     * @return true if the asset is there
+     */
+    public static boolean isAvailable(Context context) {
+        try {
+            return Arrays.asList(context.getAssets().list("")).contains(ASSET_NAME);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * This method maps the word list on first use and returns the same list afterwards
+     *
+     * @param context any context of the app
+     * @return the word list
+     * @throws IOException if the asset is missing, compressed or not a packed word list
+     */
+    public static synchronized WordList load(Context context) throws IOException {
+        if (wordList == null) {
+            AssetFileDescriptor afd = context.getAssets().openFd(ASSET_NAME);
+            try {
+                FileInputStream in = afd.createInputStream();
+                try {
+                    // the mapping stays valid after the stream is closed
+                    wordList = WordList.map(in.getChannel(), afd.getStartOffset(), afd.getLength());
+                } finally {
+                    in.close();
+                }
+            } finally {
+                afd.close();
+            }
+        }
+        return wordList;
+    }
+}
@@ -7,6 +7,8 @@ public class User {
     private String name;
     private String email;
     private String password;
+    private int kdfIterations;
+    private int kdfTargetMillis;
 
     public int getId() {
         return id;
@@ -39,4 +41,20 @@ public class User {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+
+    public void setKdfIterations(int kdfIterations) {
+        this.kdfIterations = kdfIterations;
+    }
+
+    public int getKdfTargetMillis() {
+        return kdfTargetMillis;
+    }
+
+    public void setKdfTargetMillis(int kdfTargetMillis) {
+        this.kdfTargetMillis = kdfTargetMillis;
+    }
 }
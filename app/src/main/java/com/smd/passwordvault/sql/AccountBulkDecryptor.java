@@ -0,0 +1,208 @@
+package com.smd.passwordvault.sql;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.CipherEngine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decrypts whole ranges of PV_ACCOUNT for vault wide operations (audit, export, re-key).
+ *
+ * Rows are read in chunks of CHUNK_SIZE; each chunk is decrypted on all cores with
+ * fork-join and then handed to the Sink on the calling thread in input order. Only
+ * one chunk is held in memory at a time, whatever the size of the vault.
+ */
+public class AccountBulkDecryptor {
+
+    private static final String TAG = "AccountBulkDecryptor";
+
+    // rows read from the database and decrypted together
+    private static final int CHUNK_SIZE = 512;
+
+    // below this many rows a fork-join task decrypts instead of splitting further
+    private static final int SPLIT_THRESHOLD = 32;
+
+    /**
+     * receives the decrypted accounts, in input order, on the calling thread
+     */
+    public interface Sink {
+        /**
+         * @param accountId the account id
+         * @param name      the account name
+         * @param password  the plain text password, or null if it could not be decrypted
+         */
+        void onDecrypted(long accountId, String name, String password);
+    }
+
+    // shared by all decryptors; ForkJoinPool.commonPool() needs API 24
+    private static ForkJoinPool sharedPool;
+
+    private final CipherEngine cipherEngine;
+    private final ForkJoinPool pool;
+
+    // chunk buffers, reused from one chunk to the next
+    private final long[] ids = new long[CHUNK_SIZE];
+    private final String[] names = new String[CHUNK_SIZE];
+    private final byte[][] encPwds = new byte[CHUNK_SIZE][];
+    private final String[] decPwds = new String[CHUNK_SIZE];
+
+    /**
+     * constructor
+     *
+     * @param cipherEngine the engine holding the key the passwords were encrypted with
+     */
+    public AccountBulkDecryptor(CipherEngine cipherEngine) {
+        this(cipherEngine, getSharedPool());
+    }
+
+    /**
+     * constructor
+     *
+     * @param cipherEngine the engine holding the key the passwords were encrypted with
+     * @param pool         the pool the decryption is fanned out on
+     */
+    public AccountBulkDecryptor(CipherEngine cipherEngine, ForkJoinPool pool) {
+        this.cipherEngine = cipherEngine;
+        this.pool = pool;
+    }
+
+    /**
+     * This method decrypts every row of the cursor. The cursor must contain the
+     * account id, name and password (BLOB or legacy hex) columns; it is not closed.
+     *
+     * @param cursor the accounts to decrypt
+     * @param sink   receives the decrypted accounts
+     * @return the number of rows passed to the sink
+     */
+    public synchronized int decrypt(Cursor cursor, Sink sink) {
+        int idIndex = cursor.getColumnIndexOrThrow(DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID);
+        int nameIndex = cursor.getColumnIndexOrThrow(DatabaseDescription.AccountData.COLUMN_NAME);
+
+        int total = 0;
+        int count = 0;
+        while (cursor.moveToNext()) {
+            ids[count] = cursor.getLong(idIndex);
+            names[count] = cursor.getString(nameIndex);
+            encPwds[count] = DatabaseDescription.AccountData.getEncryptedPassword(cursor);
+            count++;
+
+            if (count == CHUNK_SIZE) {
+                total += flush(count, sink);
+                count = 0;
+            }
+        }
+        total += flush(count, sink);
+        return total;
+    }
+
+    /**
+     * This method decrypts the accounts of a user whose id is in (fromId, toId].
+     * The range is walked with keyset pagination, one chunk per query.
+     *
+     * @param db     the database to read from
+     * @param userId the owner of the accounts
+     * @param fromId the account id to start after (exclusive)
+     * @param toId   the last account id to decrypt (inclusive)
+     * @param sink   receives the decrypted accounts
+     * @return the number of rows passed to the sink
+     */
+    public int decryptRange(SQLiteDatabase db, int userId, long fromId, long toId, Sink sink) {
+        String[] columns = {
+                DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID,
+                DatabaseDescription.AccountData.COLUMN_NAME,
+                DatabaseDescription.AccountData.COLUMN_PASSWORD,
+                DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB
+        };
+        String selection = DatabaseDescription.AccountData.COLUMN_USER_ID + " = ? AND "
+                + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " > ? AND "
+                + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " <= ?";
+
+        int total = 0;
+        long lastId = fromId;
+        while (true) {
+            String[] selectionArgs = {String.valueOf(userId), String.valueOf(lastId), String.valueOf(toId)};
+            Cursor cursor = db.query(DatabaseDescription.AccountData.TABLE_NAME,
+                    columns,
+                    selection,
+                    selectionArgs,
+                    null,
+                    null,
+                    DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " ASC",
+                    String.valueOf(CHUNK_SIZE));
+            int rows;
+            try {
+                rows = cursor.getCount();
+                total += decrypt(cursor, sink);
+                if (rows > 0 && cursor.moveToLast()) {
+                    lastId = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+
+            if (rows < CHUNK_SIZE) {
+                return total;
+            }
+        }
+    }
+
+    static synchronized ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    // decrypts the buffered chunk in parallel, then hands it to the sink in order
+    private int flush(int count, Sink sink) {
+        if (count == 0) {
+            return 0;
+        }
+
+        pool.invoke(new DecryptTask(0, count));
+
+        for (int i = 0; i < count; i++) {
+            sink.onDecrypted(ids[i], names[i], decPwds[i]);
+            // drop the references so a chunk never outlives its flush
+            names[i] = null;
+            encPwds[i] = null;
+            decPwds[i] = null;
+        }
+        return count;
+    }
+
+    // splits the chunk in halves until it is small enough to decrypt directly
+    private class DecryptTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        DecryptTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        decPwds[i] = encPwds[i] == null ? null : cipherEngine.decrypt(encPwds[i]);
+                    } catch (Exception ex) {
+                        Log.e(TAG, "Error while decrypting the password of account:" + ids[i]);
+                        decPwds[i] = null;
+                    }
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new DecryptTask(from, middle), new DecryptTask(middle, to));
+        }
+    }
+}
@@ -3,27 +3,44 @@
 package com.smd.passwordvault.sql;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
-import android.content.Context;
-import android.content.SharedPreferences;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.util.Log;
 
 import com.smd.passwordvault.R;
-import com.smd.passwordvault.helpers.Constants;
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.FullTextQuery;
+import com.smd.passwordvault.helpers.HexCodec;
+import com.smd.passwordvault.helpers.VaultSession;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class AccountDataContentProvider extends ContentProvider {
    // used to access the database
    private DatabaseHelper dbHelper;
 
-   private SharedPreferences sharedpreferences;
-
    private static final String TAG = "AccntDtContentProvider";
 
+   // the bulkInsert() or applyBatch() running on this thread, if any
+   private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+   // what a batch changed, published once its transaction is committed
+   private static class Batch {
+      boolean changed;
+      // passwords to index by account id; null removes the account
+      final Map<Long, String> passwords = new LinkedHashMap<>();
+   }
+
    // UriMatcher helps ContentProvider determine operation to perform
    private static final UriMatcher uriMatcher =
       new UriMatcher(UriMatcher.NO_MATCH);
@@ -31,6 +48,8 @@ public class AccountDataContentProvider extends ContentProvider {
    // constants used with UriMatcher to determine operation to perform
    private static final int ONE_ACCOUNT = 1; // manipulate one account
    private static final int ACCOUNTS = 2; // manipulate accounts table
+   private static final int REUSED_ACCOUNTS = 3; // accounts sharing a password
+   private static final int SEARCH_ACCOUNTS = 4; // accounts matching a search
 
    // static block to configure this ContentProvider's UriMatcher
    static {
@@ -41,14 +60,27 @@ public class AccountDataContentProvider extends ContentProvider {
       // Uri for Contacts table
       uriMatcher.addURI(DatabaseDescription.AUTHORITY,
          DatabaseDescription.AccountData.TABLE_NAME, ACCOUNTS);
+
+      // Uri for accounts whose password is reused
+      uriMatcher.addURI(DatabaseDescription.AUTHORITY,
+         DatabaseDescription.AccountData.TABLE_NAME + "/" +
+            DatabaseDescription.AccountData.PATH_REUSED, REUSED_ACCOUNTS);
+
+      // Uri for accounts whose name matches the text that follows
+      uriMatcher.addURI(DatabaseDescription.AUTHORITY,
+         DatabaseDescription.AccountData.TABLE_NAME + "/" +
+            DatabaseDescription.AccountData.PATH_SEARCH + "/*", SEARCH_ACCOUNTS);
    }
 
    // called when the AccountDataContentProvider is created
    @Override
    public boolean onCreate() {
-      // create the AddressBookDatabaseHelper
-      dbHelper = new DatabaseHelper(getContext());
-      sharedpreferences = getContext().getSharedPreferences(Constants.SHARED_PREFS, Context.MODE_PRIVATE);
+      // the database helper shared by the whole process
+      dbHelper = DatabaseHelper.getInstance(getContext());
+
+      // complete the schema migrations on existing rows, such as moving
+      // passwords still stored as hex text to the BLOB column
+      dbHelper.startBackfills();
       return true; // ContentProvider successfully created
    }
 
@@ -66,6 +98,7 @@ public class AccountDataContentProvider extends ContentProvider {
       // create SQLiteQueryBuilder for querying accounts table
       SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
       queryBuilder.setTables(DatabaseDescription.AccountData.TABLE_NAME);
+      Uri notificationUri = uri;
 
       switch (uriMatcher.match(uri)) {
          case ONE_ACCOUNT: // account with specified id will be selected
@@ -74,48 +107,105 @@ public class AccountDataContentProvider extends ContentProvider {
             break;
          case ACCOUNTS: // all accounts will be selected
             // filter accounts for the current user
-            int loggedInUserIdFromSession = sharedpreferences.getInt(Constants.USER_ID_KEY, 0);
+            int loggedInUserIdFromSession = VaultSession.getUserId();
             Log.v(TAG, "********* query - loggedInUserIdFromSession:" + loggedInUserIdFromSession);
             queryBuilder.appendWhere(
                     DatabaseDescription.AccountData.COLUMN_USER_ID + "=" + loggedInUserIdFromSession);
             break;
+         case REUSED_ACCOUNTS: // accounts whose fingerprint occurs twice
+            // one pass over the (user_id, fingerprint) index finds the
+            // duplicated fingerprints; no password is decrypted
+            int reusedUserId = VaultSession.getUserId();
+            queryBuilder.appendWhere(
+               DatabaseDescription.AccountData.COLUMN_USER_ID + "=" + reusedUserId +
+               " AND " + DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " IN (SELECT " +
+               DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " FROM " +
+               DatabaseDescription.AccountData.TABLE_NAME + " WHERE " +
+               DatabaseDescription.AccountData.COLUMN_USER_ID + "=" + reusedUserId + " AND " +
+               DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " IS NOT NULL GROUP BY " +
+               DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " HAVING COUNT(*) > 1)");
+
+            // keep accounts sharing a password next to each other
+            if (sortOrder == null)
+               sortOrder = DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + ", " +
+                  DatabaseDescription.AccountData.COLUMN_NAME + " COLLATE NOCASE";
+            break;
+         case SEARCH_ACCOUNTS: // accounts whose name has words starting with the typed ones
+            // the full text index finds the matching names, the user's
+            // accounts are then looked up by id
+            String match = FullTextQuery.prefixMatch(uri.getLastPathSegment());
+            int searchUserId = VaultSession.getUserId();
+            if (match == null) {
+               // nothing but separators typed, nothing matches
+               queryBuilder.appendWhere("0");
+               break;
+            }
+            queryBuilder.appendWhere(
+               DatabaseDescription.AccountData.COLUMN_USER_ID + "=" + searchUserId +
+               " AND " + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " IN (SELECT docid FROM " +
+               DatabaseDescription.AccountData.SEARCH_TABLE_NAME + " WHERE " +
+               DatabaseDescription.AccountData.SEARCH_TABLE_NAME + " MATCH ?)");
+            // the where clause above precedes the selection
+            selectionArgs = prependArgument(match, selectionArgs);
+
+            // any change to the accounts may change the results
+            notificationUri = DatabaseDescription.AccountData.CONTENT_URI;
+            break;
          default:
             throw new UnsupportedOperationException(
                getContext().getString(R.string.invalid_query_uri) + uri);
       }
 
+      // a page of the results if the Uri asks for one
+      String limit = uri.getQueryParameter(
+         DatabaseDescription.AccountData.QUERY_LIMIT);
+
       // execute the query to select one or all accounts
       Cursor cursor = queryBuilder.query(dbHelper.getReadableDatabase(),
-         projection, selection, selectionArgs, null, null, sortOrder);
+         projection, selection, selectionArgs, null, null, sortOrder, limit);
 
       // configure to watch for content changes
-      cursor.setNotificationUri(getContext().getContentResolver(), uri);
+      cursor.setNotificationUri(getContext().getContentResolver(), notificationUri);
       return cursor;
    }
 
+   // the arguments of a query with one more parameter in front
+   private static String[] prependArgument(String argument, String[] args) {
+      if (args == null)
+         return new String[] {argument};
+
+      String[] all = new String[args.length + 1];
+      all[0] = argument;
+      System.arraycopy(args, 0, all, 1, args.length);
+      return all;
+   }
+
    // insert a new account in the database
    @Override
    public Uri insert(Uri uri, ContentValues values) {
       Uri newAccountUri = null;
 
-      int loggedInUserIdFromSession = sharedpreferences.getInt(Constants.USER_ID_KEY, 0);
+      int loggedInUserIdFromSession = VaultSession.getUserId();
       Log.v(TAG, "********* insert - loggedInUserIdFromSession:" + loggedInUserIdFromSession);
       values.put(DatabaseDescription.AccountData.COLUMN_USER_ID, loggedInUserIdFromSession);
       Log.v(TAG, "Inserting an AccountData entry with user id");
+      storePasswordAsBlob(values);
+      String password = decryptNewPassword(values);
+      storePasswordFingerprint(values, password);
 
       switch (uriMatcher.match(uri)) {
          case ACCOUNTS:
             // insert the new account--success yields new account's row id
-            long rowId = dbHelper.getWritableDatabase().insert(
-               DatabaseDescription.AccountData.TABLE_NAME, null, values);
+            long rowId = dbHelper.insertAccount(values);
 
             // if the account was inserted, create an appropriate Uri;
             // otherwise, throw an exception
             if (rowId > 0) { // SQLite row IDs start at 1
                newAccountUri = DatabaseDescription.AccountData.buildAccountUri(rowId);
+               indexPassword(rowId, password);
 
                // notify observers that the database changed
-               getContext().getContentResolver().notifyChange(uri, null);
+               notifyChange(uri);
             }
             else
                throw new SQLException(
@@ -138,12 +228,15 @@ public class AccountDataContentProvider extends ContentProvider {
       switch (uriMatcher.match(uri)) {
          case ONE_ACCOUNT:
             // get from the uri the id of account to update
-            String id = uri.getLastPathSegment();
-
-            // update the account
-            numberOfRowsUpdated = dbHelper.getWritableDatabase().update(
-               DatabaseDescription.AccountData.TABLE_NAME, values, DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + "=" + id,
-               selectionArgs);
+            long id = Long.parseLong(uri.getLastPathSegment());
+            storePasswordAsBlob(values);
+            String password = decryptNewPassword(values);
+            storePasswordFingerprint(values, password);
+
+            // update the account; the id is bound, not part of the SQL
+            numberOfRowsUpdated = dbHelper.updateAccount(id, values);
+            if (numberOfRowsUpdated != 0)
+               indexPassword(id, password);
             break;
          default:
             throw new UnsupportedOperationException(
@@ -151,9 +244,8 @@ public class AccountDataContentProvider extends ContentProvider {
       }
 
       // if changes were made, notify observers that the database changed
-      if (numberOfRowsUpdated != 0) {
-         getContext().getContentResolver().notifyChange(uri, null);
-      }
+      if (numberOfRowsUpdated != 0)
+         notifyChange(uri);
 
       return numberOfRowsUpdated;
    }
@@ -165,12 +257,13 @@ public class AccountDataContentProvider extends ContentProvider {
 
       switch (uriMatcher.match(uri)) {
          case ONE_ACCOUNT:
-            // get from the uri the id of account to update
-            String id = uri.getLastPathSegment();
+            // get from the uri the id of account to delete
+            long id = Long.parseLong(uri.getLastPathSegment());
 
             // delete the account
-            numberOfRowsDeleted = dbHelper.getWritableDatabase().delete(
-               DatabaseDescription.AccountData.TABLE_NAME, DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + "=" + id, selectionArgs);
+            numberOfRowsDeleted = dbHelper.deleteAccount(id);
+            if (numberOfRowsDeleted != 0)
+               unindexPassword(id);
             break;
          default:
             throw new UnsupportedOperationException(
@@ -178,12 +271,193 @@ public class AccountDataContentProvider extends ContentProvider {
       }
 
       // notify observers that the database changed
-      if (numberOfRowsDeleted != 0) {
-         getContext().getContentResolver().notifyChange(uri, null);
-      }
+      if (numberOfRowsDeleted != 0)
+         notifyChange(uri);
 
       return numberOfRowsDeleted;
    }
+
+   // insert many accounts in one transaction; observers are notified once
+   @Override
+   public int bulkInsert(Uri uri, ContentValues[] values) {
+      if (uriMatcher.match(uri) != ACCOUNTS)
+         throw new UnsupportedOperationException(
+            getContext().getString(R.string.invalid_insert_uri) + uri);
+
+      SQLiteDatabase db = dbHelper.getWritableDatabase();
+      boolean outermost = startBatch();
+      boolean committed = false;
+      db.beginTransaction();
+      try {
+         // every row has the same columns, so all of them are inserted
+         // with one compiled statement
+         for (ContentValues accountValues : values)
+            insert(uri, accountValues);
+         db.setTransactionSuccessful();
+         committed = true;
+      }
+      finally {
+         db.endTransaction();
+         if (outermost)
+            finishBatch(committed);
+      }
+
+      return values.length;
+   }
+
+   // apply inserts, updates and deletes in one transaction; either all of
+   // them are applied or none, and observers are notified once
+   @Override
+   public ContentProviderResult[] applyBatch(
+      ArrayList<ContentProviderOperation> operations)
+      throws OperationApplicationException {
+      SQLiteDatabase db = dbHelper.getWritableDatabase();
+      boolean outermost = startBatch();
+      boolean committed = false;
+      db.beginTransaction();
+      try {
+         ContentProviderResult[] results = super.applyBatch(operations);
+         db.setTransactionSuccessful();
+         committed = true;
+         return results;
+      }
+      finally {
+         db.endTransaction();
+         if (outermost)
+            finishBatch(committed);
+      }
+   }
+
+   // starts collecting the changes of this thread, unless an enclosing
+   // batch already does; returns whether this is the outermost batch
+   private boolean startBatch() {
+      if (batches.get() != null)
+         return false;
+
+      batches.set(new Batch());
+      return true;
+   }
+
+   // indexes the passwords of a committed batch and notifies observers once;
+   // the accounts URI covers every account and the reused accounts
+   private void finishBatch(boolean committed) {
+      Batch batch = batches.get();
+      batches.remove();
+      if (!committed)
+         return;
+
+      for (Map.Entry<Long, String> entry : batch.passwords.entrySet()) {
+         if (entry.getValue() != null)
+            indexPassword(entry.getKey(), entry.getValue());
+         else
+            unindexPassword(entry.getKey());
+      }
+      if (batch.changed)
+         getContext().getContentResolver().notifyChange(
+            DatabaseDescription.AccountData.CONTENT_URI, null);
+   }
+
+   // notify observers of uri and of the reused accounts, or of the batch
+   // once it is committed
+   private void notifyChange(Uri uri) {
+      Batch batch = batches.get();
+      if (batch != null) {
+         batch.changed = true;
+         return;
+      }
+
+      getContext().getContentResolver().notifyChange(uri, null);
+      getContext().getContentResolver().notifyChange(
+         DatabaseDescription.AccountData.REUSED_URI, null);
+   }
+
+   // callers still passing hex encoded cipher text get it stored as a BLOB;
+   // anything else may be a plain text password and is never stored
+   private void storePasswordAsBlob(ContentValues values) {
+      if (values.containsKey(DatabaseDescription.AccountData.COLUMN_PASSWORD)) {
+         String hex = values.getAsString(DatabaseDescription.AccountData.COLUMN_PASSWORD);
+         if (hex != null && !HexCodec.isHex(hex))
+            throw new IllegalArgumentException(
+               getContext().getString(R.string.invalid_password_value));
+         values.remove(DatabaseDescription.AccountData.COLUMN_PASSWORD);
+         if (hex != null)
+            values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB, HexCodec.fromHex(hex));
+         values.putNull(DatabaseDescription.AccountData.COLUMN_PASSWORD);
+      }
+   }
+
+   // the plain text of the password being saved, or null if there is none,
+   // the vault is locked or it cannot be decrypted
+   private String decryptNewPassword(ContentValues values) {
+      byte[] encrypted = values.getAsByteArray(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB);
+      if (encrypted == null || !VaultSession.isUnlocked())
+         return null;
+
+      try {
+         CipherEngine cipherEngine = VaultSession.getCipherEngine();
+         return cipherEngine.decrypt(encrypted);
+      }
+      catch (Exception ex) {
+         Log.e(TAG, "Error while decrypting a new password", ex);
+         return null;
+      }
+   }
+
+   // a new password gets the fingerprint the reused query groups on; if the
+   // vault is locked it is left null for the backfill of the next unlock
+   private void storePasswordFingerprint(ContentValues values, String password) {
+      if (!values.containsKey(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB))
+         return;
+
+      byte[] fingerprint = null;
+      if (password != null) {
+         try {
+            fingerprint = VaultSession.getPasswordFingerprinter().fingerprint(password);
+         }
+         catch (IllegalStateException ex) {
+            Log.e(TAG, "Vault locked while fingerprinting a password", ex);
+         }
+      }
+
+      if (fingerprint != null)
+         values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT, fingerprint);
+      else
+         values.putNull(DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT);
+   }
+
+   // keeps the similarity index of the unlocked vault up to date
+   private void indexPassword(long accountId, String password) {
+      if (password == null)
+         return;
+
+      Batch batch = batches.get();
+      if (batch != null) {
+         batch.passwords.put(accountId, password);
+         return;
+      }
+
+      try {
+         VaultSession.getSimilarityIndex().put(accountId, password);
+      }
+      catch (IllegalStateException ex) {
+         // locked meanwhile, the index is rebuilt on the next unlock
+      }
+   }
+
+   private void unindexPassword(long accountId) {
+      Batch batch = batches.get();
+      if (batch != null) {
+         batch.passwords.put(accountId, null);
+         return;
+      }
+
+      try {
+         VaultSession.getSimilarityIndex().remove(accountId);
+      }
+      catch (IllegalStateException ex) {
+         // locked meanwhile, the index is rebuilt on the next unlock
+      }
+   }
 }
 
 
@@ -0,0 +1,145 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.smd.passwordvault.helpers.PagedList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Reads the account list a page at a time through AccountDataContentProvider,
+ * for a PagedList.
+ *
+ * Accounts are sorted by name, ignoring case, then by id, so every account has
+ * a distinct (name, id) key. A page is read right after the key of the last
+ * account of the page before it, or right before the key of the first account
+ * of the page after it: the (user_id, name, id) index seeks to the key and
+ * reads one page, however deep in the list. Only the name and id are read.
+ *
+ * SQLite on API 23 has no row values, so the key comparisons are spelled out.
+ * Accounts without a name sort first, as NULL does in SQLite.
+ */
+public class AccountPageLoader implements PagedList.Loader<AccountPageLoader.Account> {
+
+    /**
+     * an account of the list
+     */
+    public static final class Account {
+        private final long id;
+        private final String name;
+
+        public Account(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final String[] PROJECTION = {
+            DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID,
+            DatabaseDescription.AccountData.COLUMN_NAME};
+    private static final String[] COUNT_PROJECTION = {"COUNT(*)"};
+
+    private static final String NAME = DatabaseDescription.AccountData.COLUMN_NAME;
+    private static final String ID = DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID;
+
+    private static final String ORDER = NAME + " COLLATE NOCASE, " + ID;
+    private static final String REVERSE_ORDER = NAME + " COLLATE NOCASE DESC, " + ID + " DESC";
+
+    // the accounts after (name, id), and after (NULL, id)
+    private static final String AFTER = NAME + " >= ? COLLATE NOCASE AND ("
+            + NAME + " > ? COLLATE NOCASE OR " + ID + " > ?)";
+    private static final String AFTER_NULL = "(" + NAME + " IS NULL AND " + ID + " > ?) OR "
+            + NAME + " IS NOT NULL";
+
+    // the accounts before (name, id), and before (NULL, id)
+    private static final String BEFORE = NAME + " IS NULL OR (" + NAME + " <= ? COLLATE NOCASE AND ("
+            + NAME + " < ? COLLATE NOCASE OR " + ID + " < ?))";
+    private static final String BEFORE_NULL = NAME + " IS NULL AND " + ID + " < ?";
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+
+    /**
+     * Constructor
+     *
+     * @param resolver the content resolver of the app
+     * @param uri      CONTENT_URI for all accounts of the user, or a search Uri
+     */
+    public AccountPageLoader(ContentResolver resolver, Uri uri) {
+        this.resolver = resolver;
+        this.uri = uri;
+    }
+
+    @Override
+    public int count() {
+        Cursor cursor = resolver.query(uri, COUNT_PROJECTION, null, null, null);
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public List<Account> loadAt(int offset, int limit) {
+        return query(null, null, ORDER, offset + "," + limit);
+    }
+
+    @Override
+    public List<Account> loadAfter(Account last, int limit) {
+        String id = Long.toString(last.getId());
+        if (last.getName() == null) {
+            return query(AFTER_NULL, new String[]{id}, ORDER, Integer.toString(limit));
+        }
+        return query(AFTER, new String[]{last.getName(), last.getName(), id}, ORDER, Integer.toString(limit));
+    }
+
+    @Override
+    public List<Account> loadBefore(Account first, int limit) {
+        String id = Long.toString(first.getId());
+        List<Account> accounts;
+        if (first.getName() == null) {
+            accounts = query(BEFORE_NULL, new String[]{id}, REVERSE_ORDER, Integer.toString(limit));
+        } else {
+            accounts = query(BEFORE, new String[]{first.getName(), first.getName(), id}, REVERSE_ORDER,
+                    Integer.toString(limit));
+        }
+        // read nearest first, listed in order
+        Collections.reverse(accounts);
+        return accounts;
+    }
+
+    private List<Account> query(String selection, String[] selectionArgs, String sortOrder, String limit) {
+        Uri pageUri = uri.buildUpon()
+                .appendQueryParameter(DatabaseDescription.AccountData.QUERY_LIMIT, limit)
+                .build();
+        List<Account> accounts = new ArrayList<>();
+        Cursor cursor = resolver.query(pageUri, PROJECTION, selection, selectionArgs, sortOrder);
+        if (cursor == null) {
+            return accounts;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                accounts.add(new Account(cursor.getLong(0), cursor.isNull(1) ? null : cursor.getString(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return accounts;
+    }
+}
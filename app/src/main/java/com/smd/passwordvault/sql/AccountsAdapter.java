@@ -2,7 +2,6 @@
 // Subclass of RecyclerView.Adapter that binds accounts to RecyclerView
 package com.smd.passwordvault.sql;
 
-import android.database.Cursor;
 import android.net.Uri;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -10,6 +9,10 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import com.smd.passwordvault.R;
+import com.smd.passwordvault.helpers.PagedList;
+import com.smd.passwordvault.helpers.VaultSession;
+
 public class AccountsAdapter
    extends RecyclerView.Adapter<AccountsAdapter.ViewHolder> {
 
@@ -23,12 +26,14 @@ public class AccountsAdapter
    // the view-holder pattern in the context of a RecyclerView
    public class ViewHolder extends RecyclerView.ViewHolder {
       public final TextView textView;
+      public final TextView similarTextView;
       private long rowID;
 
       // configures a RecyclerView item's ViewHolder
       public ViewHolder(View itemView) {
          super(itemView);
          textView = (TextView) itemView.findViewById(android.R.id.text1);
+         similarTextView = (TextView) itemView.findViewById(android.R.id.text2);
 
          // attach listener to itemView
          itemView.setOnClickListener(
@@ -36,7 +41,9 @@ public class AccountsAdapter
                // executes when the account in this ViewHolder is clicked
                @Override
                public void onClick(View view) {
-                  clickListener.onClick(DatabaseDescription.AccountData.buildAccountUri(rowID));
+                  // nothing to open until the account is loaded
+                  if (rowID != NOT_LOADED)
+                     clickListener.onClick(DatabaseDescription.AccountData.buildAccountUri(rowID));
                }
             }
          );
@@ -48,8 +55,11 @@ public class AccountsAdapter
       }
    }
 
+   // row ID of an item whose account is still being loaded
+   private static final long NOT_LOADED = -1;
+
    // ContactsAdapter instance variables
-   private Cursor cursor = null;
+   private PagedList<AccountPageLoader.Account> accounts = null;
    private final AccountClickListener clickListener;
 
    // constructor
@@ -60,30 +70,52 @@ public class AccountsAdapter
    // sets up new list item and its ViewHolder
    @Override
    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-      // inflate the android.R.layout.simple_list_item_1 layout
+      // inflate the android.R.layout.simple_list_item_2 layout; the
+      // second line flags passwords similar to those of other accounts
       View view = LayoutInflater.from(parent.getContext()).inflate(
-         android.R.layout.simple_list_item_1, parent, false);
+         android.R.layout.simple_list_item_2, parent, false);
       return new ViewHolder(view); // return current item's ViewHolder
    }
 
    // sets the text of the list item to display the search tag
    @Override
    public void onBindViewHolder(ViewHolder holder, int position) {
-      cursor.moveToPosition(position);
-      holder.setRowID(cursor.getLong(cursor.getColumnIndex(DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID)));
-      holder.textView.setText(cursor.getString(cursor.getColumnIndex(
-         DatabaseDescription.AccountData.COLUMN_NAME)));
+      // loads the page of the account, and the pages around it
+      AccountPageLoader.Account account = accounts.get(position);
+      if (account == null) {
+         // bound again once its page is loaded
+         holder.setRowID(NOT_LOADED);
+         holder.textView.setText(null);
+         holder.similarTextView.setVisibility(View.GONE);
+         return;
+      }
+
+      long rowID = account.getId();
+      holder.setRowID(rowID);
+      holder.textView.setText(account.getName());
+
+      // accounts whose password is near-identical to others' passwords
+      long[] similar = VaultSession.isUnlocked() ?
+         VaultSession.getSimilarityIndex().getCluster(rowID) : null;
+      if (similar != null) {
+         int others = similar.length - 1;
+         holder.similarTextView.setText(holder.itemView.getResources()
+            .getQuantityString(R.plurals.text_similar_passwords, others, others));
+         holder.similarTextView.setVisibility(View.VISIBLE);
+      }
+      else
+         holder.similarTextView.setVisibility(View.GONE);
    }
 
    // returns the number of items that adapter binds
    @Override
    public int getItemCount() {
-      return (cursor != null) ? cursor.getCount() : 0;
+      return (accounts != null) ? accounts.size() : 0;
    }
 
-   // swap this adapter's current Cursor for a new one
-   public void swapCursor(Cursor cursor) {
-      this.cursor = cursor;
+   // swap this adapter's current list of accounts for a new one
+   public void swapAccounts(PagedList<AccountPageLoader.Account> accounts) {
+      this.accounts = accounts;
       notifyDataSetChanged();
    }
 }
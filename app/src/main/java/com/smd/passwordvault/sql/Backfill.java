@@ -0,0 +1,33 @@
+package com.smd.passwordvault.sql;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Moves existing rows to a new schema a batch at a time, so that a migration of
+ * any number of rows never holds one long transaction or blocks the app start.
+ *
+ * A backfill only selects the rows that still need it, so an interrupted run
+ * resumes where it stopped the next time it is started.
+ */
+public interface Backfill {
+
+    /**
+     * @return the name of the backfill, for the logs
+     */
+    String getName();
+
+    /**
+     * @param db the database to backfill
+     * @return the number of rows still to be backfilled, for progress reports
+     */
+    long countRemaining(SQLiteDatabase db);
+
+    /**
+     * This method backfills the next rows, inside a transaction opened by the caller
+     *
+     * @param db        the database to backfill
+     * @param batchSize the maximum number of rows to process
+     * @return the number of rows processed; less than batchSize once the backfill is done
+     */
+    int migrateBatch(SQLiteDatabase db, int batchSize);
+}
@@ -4,10 +4,16 @@
 package com.smd.passwordvault.sql;
 
 import android.content.ContentUris;
+import android.database.Cursor;
 import android.net.Uri;
 import android.provider.BaseColumns;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.HexCodec;
 
 public class DatabaseDescription {
+   private static final String TAG = "DatabaseDescription";
+
    // ContentProvider's name: typically the package name
    public static final String AUTHORITY =
       "com.smd.passwordvault.sql";
@@ -24,23 +30,111 @@ public class DatabaseDescription {
       public static final Uri CONTENT_URI =
          BASE_CONTENT_URI.buildUpon().appendPath(TABLE_NAME).build();
 
+      // Uri for the accounts whose password is also used by another account,
+      // ordered so that accounts sharing a password are adjacent
+      public static final String PATH_REUSED = "reused";
+      public static final Uri REUSED_URI =
+         CONTENT_URI.buildUpon().appendPath(PATH_REUSED).build();
+
+      // Uri for the accounts whose name matches a search, followed by the
+      // text typed into the search box
+      public static final String PATH_SEARCH = "search";
+
+      // query parameter limiting the rows a query returns, as "limit" or
+      // "offset,limit"
+      public static final String QUERY_LIMIT = "limit";
+
       // column names for Account/SiteData table's columns
       public static final String COLUMN_ACCOUNT_ID = "account_id";
       public static final String COLUMN_USER_ID = "user_id";
       public static final String COLUMN_NAME = "account_name";
+      // legacy hex encoded cipher text, only set on rows not yet migrated
       public static final String COLUMN_PASSWORD= "account_password";
+      // raw cipher text
+      public static final String COLUMN_PASSWORD_BLOB = "account_password_blob";
+      // keyed fingerprint of the plain text password, see PasswordFingerprinter
+      public static final String COLUMN_PASSWORD_FINGERPRINT = "account_password_fp";
 
       public static final String CREATE_RECIPES_TABLE =
               "CREATE TABLE " + TABLE_NAME + "(" +
                       COLUMN_ACCOUNT_ID + " integer primary key AUTOINCREMENT, " +
                       COLUMN_USER_ID + " TEXT, " +
                       COLUMN_NAME + " TEXT, " +
-                      COLUMN_PASSWORD + " TEXT);";
+                      COLUMN_PASSWORD + " TEXT, " +
+                      COLUMN_PASSWORD_BLOB + " BLOB, " +
+                      COLUMN_PASSWORD_FINGERPRINT + " BLOB);";
+
+      // the reused password query groups one user's fingerprints
+      public static final String CREATE_FINGERPRINT_INDEX =
+              "CREATE INDEX " + TABLE_NAME + "_fp_idx ON " + TABLE_NAME + "(" +
+                      COLUMN_USER_ID + ", " + COLUMN_PASSWORD_FINGERPRINT + ");";
+
+      // the account list pages through one user's accounts in name order,
+      // the account id breaking ties between equal names
+      public static final String CREATE_NAME_INDEX =
+              "CREATE INDEX " + TABLE_NAME + "_name_idx ON " + TABLE_NAME + "(" +
+                      COLUMN_USER_ID + ", " + COLUMN_NAME + " COLLATE NOCASE, " +
+                      COLUMN_ACCOUNT_ID + ");";
+
+      // full text index of the account names; it reads the names from the
+      // accounts table instead of storing a copy. The prefix indexes make
+      // prefix queries of 2 and 3 characters a single lookup. Searching more
+      // columns means recreating it with them and rebuilding.
+      public static final String SEARCH_TABLE_NAME = TABLE_NAME + "_fts";
+      public static final String[] CREATE_SEARCH_TABLE = {
+         "CREATE VIRTUAL TABLE " + SEARCH_TABLE_NAME + " USING fts4(content=\"" +
+            TABLE_NAME + "\", " + COLUMN_NAME + ", prefix=\"2,3\");",
+         // the triggers keep it in step with the accounts table; old names
+         // are removed before the row changes, since they are read from it
+         "CREATE TRIGGER " + SEARCH_TABLE_NAME + "_bu BEFORE UPDATE OF " +
+            COLUMN_NAME + " ON " + TABLE_NAME + " BEGIN DELETE FROM " +
+            SEARCH_TABLE_NAME + " WHERE docid = old." + COLUMN_ACCOUNT_ID + "; END;",
+         "CREATE TRIGGER " + SEARCH_TABLE_NAME + "_bd BEFORE DELETE ON " +
+            TABLE_NAME + " BEGIN DELETE FROM " + SEARCH_TABLE_NAME +
+            " WHERE docid = old." + COLUMN_ACCOUNT_ID + "; END;",
+         "CREATE TRIGGER " + SEARCH_TABLE_NAME + "_au AFTER UPDATE OF " +
+            COLUMN_NAME + " ON " + TABLE_NAME + " BEGIN INSERT INTO " +
+            SEARCH_TABLE_NAME + "(docid, " + COLUMN_NAME + ") VALUES (new." +
+            COLUMN_ACCOUNT_ID + ", new." + COLUMN_NAME + "); END;",
+         "CREATE TRIGGER " + SEARCH_TABLE_NAME + "_ai AFTER INSERT ON " +
+            TABLE_NAME + " BEGIN INSERT INTO " + SEARCH_TABLE_NAME + "(docid, " +
+            COLUMN_NAME + ") VALUES (new." + COLUMN_ACCOUNT_ID + ", new." +
+            COLUMN_NAME + "); END;"
+      };
 
       // creates a Uri for a specific account
       public static Uri buildAccountUri(long id) {
          return ContentUris.withAppendedId(CONTENT_URI, id);
       }
+
+      // creates a Uri for the accounts matching the text of the search box
+      public static Uri buildSearchUri(String typed) {
+         return CONTENT_URI.buildUpon().appendPath(PATH_SEARCH)
+            .appendPath(typed).build();
+      }
+
+      // returns the cipher text of the account at the cursor's position,
+      // from the BLOB column or, for rows not yet migrated, the hex column;
+      // null if there is none or the hex column holds something else
+      public static byte[] getEncryptedPassword(Cursor cursor) {
+         int blobIndex = cursor.getColumnIndex(COLUMN_PASSWORD_BLOB);
+         if (blobIndex != -1 && !cursor.isNull(blobIndex))
+            return cursor.getBlob(blobIndex);
+
+         int hexIndex = cursor.getColumnIndex(COLUMN_PASSWORD);
+         if (hexIndex != -1 && !cursor.isNull(hexIndex)) {
+            String hex = cursor.getString(hexIndex);
+            if (HexCodec.isHex(hex))
+               return HexCodec.fromHex(hex);
+
+            // old versions stored the plain text when encryption failed
+            int idIndex = cursor.getColumnIndex(COLUMN_ACCOUNT_ID);
+            Log.w(TAG, "Legacy password of account " +
+               (idIndex != -1 ? cursor.getLong(idIndex) : "?") + " is not hex");
+         }
+
+         return null;
+      }
    }
 }
 
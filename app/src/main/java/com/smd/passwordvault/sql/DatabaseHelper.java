@@ -3,21 +3,43 @@ package com.smd.passwordvault.sql;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.EncryptionUtil;
+import com.smd.passwordvault.helpers.HexCodec;
+import com.smd.passwordvault.helpers.KdfCalibrator;
+import com.smd.passwordvault.helpers.PasswordFingerprinter;
+import com.smd.passwordvault.helpers.PasswordHash;
+import com.smd.passwordvault.helpers.SimilarityIndex;
+import com.smd.passwordvault.helpers.VaultAudit;
+import com.smd.passwordvault.helpers.VaultKeys;
+import com.smd.passwordvault.helpers.VaultSession;
 import com.smd.passwordvault.model.User;
 
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * The one database helper of the process. Its database stays open in WAL mode
+ * for as long as the process lives, so the content provider, the login screens
+ * and the background backfills share its connection pool: readers do not wait
+ * for the single writer, and no caller closes the database under another.
+ */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String TAG = "DatabaseHelper";
 
     // Database Version
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 8;
 
     // Database Name
     private static final String DATABASE_NAME = "PasswordVault.db";
@@ -30,40 +52,494 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_USER_NAME = "user_name";
     private static final String COLUMN_USER_EMAIL = "user_email";
     private static final String COLUMN_USER_PASSWORD = "user_password";
+    private static final String COLUMN_USER_KDF_ITERATIONS = "user_kdf_iterations";
+    private static final String COLUMN_USER_KDF_TARGET_MS = "user_kdf_target_ms";
+
+    // KDF parameters of users registered before calibration; a target of 0
+    // makes them recalibrate and rehash on their next login. The iteration
+    // column is only read for hex hashes, the hash format carries its own.
+    private static final int DEFAULT_KDF_ITERATIONS = 1000;
+    private static final int DEFAULT_KDF_TARGET_MS = 0;
 
     // create table sql query
     private String CREATE_USER_TABLE = "CREATE TABLE " + TABLE_USER + "("
             + COLUMN_USER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," + COLUMN_USER_NAME + " TEXT,"
-            + COLUMN_USER_EMAIL + " TEXT," + COLUMN_USER_PASSWORD + " TEXT" + ")";
+            + COLUMN_USER_EMAIL + " TEXT," + COLUMN_USER_PASSWORD + " TEXT,"
+            + COLUMN_USER_KDF_ITERATIONS + " INTEGER NOT NULL DEFAULT " + DEFAULT_KDF_ITERATIONS + ","
+            + COLUMN_USER_KDF_TARGET_MS + " INTEGER NOT NULL DEFAULT " + DEFAULT_KDF_TARGET_MS + ")";
+
+    // version 2: raw cipher text column for account passwords
+    private String ADD_PASSWORD_BLOB_COLUMN = "ALTER TABLE " + DatabaseDescription.AccountData.TABLE_NAME
+            + " ADD COLUMN " + DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB + " BLOB";
+
+    // version 3: per user calibrated KDF parameters
+    private String ADD_KDF_ITERATIONS_COLUMN = "ALTER TABLE " + TABLE_USER + " ADD COLUMN "
+            + COLUMN_USER_KDF_ITERATIONS + " INTEGER NOT NULL DEFAULT " + DEFAULT_KDF_ITERATIONS;
+    private String ADD_KDF_TARGET_COLUMN = "ALTER TABLE " + TABLE_USER + " ADD COLUMN "
+            + COLUMN_USER_KDF_TARGET_MS + " INTEGER NOT NULL DEFAULT " + DEFAULT_KDF_TARGET_MS;
+
+    // version 4: keyed password fingerprints, filled in at unlock by a PasswordFingerprintBackfill
+    private String ADD_PASSWORD_FINGERPRINT_COLUMN = "ALTER TABLE " + DatabaseDescription.AccountData.TABLE_NAME
+            + " ADD COLUMN " + DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " BLOB";
+
+    // version 5: summary of the last vault audit of each user
+    private static final String TABLE_AUDIT = "PV_AUDIT";
+
+    private static final String COLUMN_AUDIT_USER_ID = "user_id";
+    private static final String COLUMN_AUDIT_TIME = "audit_time";
+    private static final String COLUMN_AUDIT_DURATION_MS = "audit_duration_ms";
+    private static final String COLUMN_AUDIT_ACCOUNTS = "audit_accounts";
+    private static final String COLUMN_AUDIT_UNREADABLE = "audit_unreadable";
+    private static final String COLUMN_AUDIT_WEAK = "audit_weak";
+    private static final String COLUMN_AUDIT_BREACHED = "audit_breached";
+    private static final String COLUMN_AUDIT_REUSED = "audit_reused";
+    private static final String COLUMN_AUDIT_REUSED_PASSWORDS = "audit_reused_passwords";
+    private static final String COLUMN_AUDIT_NEAR_DUPLICATES = "audit_near_duplicates";
+
+    private String CREATE_AUDIT_TABLE = "CREATE TABLE " + TABLE_AUDIT + "("
+            + COLUMN_AUDIT_USER_ID + " INTEGER PRIMARY KEY," + COLUMN_AUDIT_TIME + " INTEGER,"
+            + COLUMN_AUDIT_DURATION_MS + " INTEGER," + COLUMN_AUDIT_ACCOUNTS + " INTEGER,"
+            + COLUMN_AUDIT_UNREADABLE + " INTEGER," + COLUMN_AUDIT_WEAK + " INTEGER,"
+            + COLUMN_AUDIT_BREACHED + " INTEGER," + COLUMN_AUDIT_REUSED + " INTEGER,"
+            + COLUMN_AUDIT_REUSED_PASSWORDS + " INTEGER," + COLUMN_AUDIT_NEAR_DUPLICATES + " INTEGER)";
+
+    // version 6: login looks the email up in a unique index
+    private String CREATE_USER_EMAIL_INDEX = "CREATE UNIQUE INDEX " + TABLE_USER + "_email ON "
+            + TABLE_USER + "(" + COLUMN_USER_EMAIL + ")";
+
+    // databases where older versions registered an email twice get the same
+    // index without the constraint; their users are all kept, login finds the
+    // first one as it always did, and registration still checks the email first
+    private String CREATE_USER_EMAIL_INDEX_NOT_UNIQUE = "CREATE INDEX " + TABLE_USER + "_email ON "
+            + TABLE_USER + "(" + COLUMN_USER_EMAIL + ")";
+
+    // the users sharing their email with an older user; users without an
+    // email do not collide
+    private String SELECT_DUPLICATE_USERS = "SELECT " + COLUMN_USER_ID + " FROM " + TABLE_USER
+            + " WHERE " + COLUMN_USER_EMAIL + " IS NOT NULL AND " + COLUMN_USER_ID + " NOT IN (SELECT MIN("
+            + COLUMN_USER_ID + ") FROM " + TABLE_USER + " GROUP BY " + COLUMN_USER_EMAIL + ")";
+
+    private static final String COUNT_USERS_WITH_EMAIL = "SELECT COUNT(*) FROM " + TABLE_USER
+            + " WHERE " + COLUMN_USER_EMAIL + " = ?";
+    private static final String INSERT_USER = "INSERT INTO " + TABLE_USER + " (" + COLUMN_USER_NAME + ", "
+            + COLUMN_USER_EMAIL + ", " + COLUMN_USER_PASSWORD + ", " + COLUMN_USER_KDF_ITERATIONS + ", "
+            + COLUMN_USER_KDF_TARGET_MS + ") VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_ACCOUNT = "DELETE FROM " + DatabaseDescription.AccountData.TABLE_NAME
+            + " WHERE " + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " = ?";
+
+    // number of rows per backfill transaction
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    // the steps from each schema version to the next; onCreate() creates the
+    // schema of the last one directly
+    private final Migrator migrator = new Migrator(
+            new Migration(2, "raw cipher text column for account passwords") {
+                private final Backfill backfill = new PasswordBlobBackfill();
+
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    // existing rows keep their hex text until the backfill moves them
+                    db.execSQL(ADD_PASSWORD_BLOB_COLUMN);
+                }
+
+                @Override
+                public Backfill getBackfill() {
+                    return backfill;
+                }
+            },
+            new Migration(3, "per user calibrated KDF parameters") {
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    db.execSQL(ADD_KDF_ITERATIONS_COLUMN);
+                    db.execSQL(ADD_KDF_TARGET_COLUMN);
+                }
+            },
+            new Migration(4, "keyed password fingerprints") {
+                // backfilled at unlock, see startPasswordFingerprintBackfill()
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    db.execSQL(ADD_PASSWORD_FINGERPRINT_COLUMN);
+                    db.execSQL(DatabaseDescription.AccountData.CREATE_FINGERPRINT_INDEX);
+                }
+            },
+            new Migration(5, "vault audit summaries") {
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    db.execSQL(CREATE_AUDIT_TABLE);
+                }
+            },
+            new Migration(6, "unique user emails") {
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    // one pass over the users, a handful of rows on a device
+                    if (logDuplicateUsers(db) == 0) {
+                        db.execSQL(CREATE_USER_EMAIL_INDEX);
+                    } else {
+                        db.execSQL(CREATE_USER_EMAIL_INDEX_NOT_UNIQUE);
+                    }
+                }
+            },
+            new Migration(7, "full text search of account names") {
+                private final Backfill backfill = new SearchIndexBackfill();
+
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    // existing names are indexed by the backfill, new ones by the triggers
+                    for (String sql : DatabaseDescription.AccountData.CREATE_SEARCH_TABLE) {
+                        db.execSQL(sql);
+                    }
+                }
+
+                @Override
+                public Backfill getBackfill() {
+                    return backfill;
+                }
+            },
+            new Migration(8, "account names index for paging") {
+                @Override
+                public void migrate(SQLiteDatabase db) {
+                    db.execSQL(DatabaseDescription.AccountData.CREATE_NAME_INDEX);
+                }
+            });
+
+    private static DatabaseHelper instance;
+
+    private final AtomicBoolean backfillsStarted = new AtomicBoolean(false);
+
+    private final Context context;
+
+    private StatementCache statements;
 
-    // drop table sql query
-    private String DROP_USER_TABLE = "DROP TABLE IF EXISTS " + TABLE_USER;
+    /**
+     * This method returns the database helper of the process, creating it on
+     * first use. Callers must not close it or its database.
+     *
+     * @param context any context of the app
+     * @return the database helper
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
 
     /**
      * Constructor
      * 
-     * @param context
+     * @param context the application context
      */
-    public DatabaseHelper(Context context) {
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        if (migrator.getLatestVersion() != DATABASE_VERSION) {
+            throw new IllegalStateException("DATABASE_VERSION " + DATABASE_VERSION
+                    + " has no migration, the last one is to " + migrator.getLatestVersion());
+        }
+        // readers get their own connections and see the last commit while a
+        // transaction is being written
+        setWriteAheadLoggingEnabled(true);
+
+        VaultSession.addListener(new VaultSession.Listener() {
+            @Override
+            public void onUnlocked(int userId) {
+                startPasswordFingerprintBackfill(userId);
+                startSimilarityIndexBuild(userId);
+            }
+
+            @Override
+            public void onLocked() {
+                startCheckpoint();
+            }
+        });
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_USER_TABLE);
         db.execSQL(DatabaseDescription.AccountData.CREATE_RECIPES_TABLE); // create the recipes table
+        db.execSQL(DatabaseDescription.AccountData.CREATE_FINGERPRINT_INDEX);
+        db.execSQL(DatabaseDescription.AccountData.CREATE_NAME_INDEX);
+        db.execSQL(CREATE_AUDIT_TABLE);
+        db.execSQL(CREATE_USER_EMAIL_INDEX);
+        for (String sql : DatabaseDescription.AccountData.CREATE_SEARCH_TABLE) {
+            db.execSQL(sql);
+        }
     }
 
 
+    // logs the ids of the users an email was registered to a second time,
+    // which no version of the app could log in as, and returns their number
+    private int logDuplicateUsers(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery(SELECT_DUPLICATE_USERS, null);
+        try {
+            while (cursor.moveToNext()) {
+                Log.w(TAG, "User " + cursor.getLong(0) + " shares the email of an older user, kept as is");
+            }
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        migrator.upgrade(db, oldVersion, newVersion);
+    }
+
+    /**
+     * This method starts runBackfills() on a background thread, once per helper
+     * instance
+     */
+    public void startBackfills() {
+        if (!backfillsStarted.compareAndSet(false, true)) {
+            return;
+        }
 
-        //Drop User Table if exist
-        db.execSQL(DROP_USER_TABLE);
+        Thread backfills = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long migrated = runBackfills();
+                    Log.v(TAG, "********* backfilled rows:" + migrated);
+                } catch (Exception ex) {
+                    // the remaining rows are picked up on the next start
+                    Log.e(TAG, "Error while backfilling", ex);
+                    backfillsStarted.set(false);
+                }
+            }
+        }, "SchemaBackfills");
+        backfills.setPriority(Thread.MIN_PRIORITY);
+        backfills.start();
+    }
+
+    /**
+     * This method runs the backfills of the schema migrations, in version order,
+     * BACKFILL_BATCH_SIZE rows per transaction. A backfill that has nothing left
+     * to do costs one query.
+     *
+     * @return the number of rows backfilled
+     */
+    public long runBackfills() {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        long migrated = 0;
+        for (Backfill backfill : migrator.getBackfills()) {
+            migrated += migrator.runBackfill(db, backfill, BACKFILL_BATCH_SIZE);
+        }
+        return migrated;
+    }
+
+    /**
+     * This method copies the write-ahead log into the database file and
+     * truncates it on a background thread, then frees the page caches. It runs
+     * when the vault is locked, so that the log does not keep growing while
+     * the app sits idle.
+     */
+    public void startCheckpoint() {
+        Thread checkpoint = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // returns one row: busy, log frames, checkpointed frames
+                    Cursor cursor = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null);
+                    try {
+                        if (cursor.moveToFirst() && cursor.getInt(0) != 0) {
+                            Log.v(TAG, "********* checkpoint blocked by a reader");
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+                    SQLiteDatabase.releaseMemory();
+                } catch (Exception ex) {
+                    // the next checkpoint copies what is left
+                    Log.e(TAG, "Error while checkpointing", ex);
+                }
+            }
+        }, "WalCheckpoint");
+        checkpoint.setPriority(Thread.MIN_PRIORITY);
+        checkpoint.start();
+    }
+
+    /**
+     * This method starts backfillPasswordFingerprints() for the unlocked vault on
+     * a background thread. It stops at the next batch if the vault is locked.
+     *
+     * @param userId the user the vault was unlocked for
+     */
+    public void startPasswordFingerprintBackfill(final int userId) {
+        final CipherEngine cipherEngine;
+        final PasswordFingerprinter fingerprinter;
+        try {
+            cipherEngine = VaultSession.getCipherEngine();
+            fingerprinter = VaultSession.getPasswordFingerprinter();
+        } catch (IllegalStateException ex) {
+            return;
+        }
+
+        Thread backfill = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int filled = backfillPasswordFingerprints(userId, cipherEngine, fingerprinter);
+                    Log.v(TAG, "********* fingerprinted passwords:" + filled);
+                } catch (Exception ex) {
+                    // the remaining rows are picked up on the next unlock
+                    Log.e(TAG, "Error while fingerprinting passwords", ex);
+                }
+            }
+        }, "PasswordFingerprintBackfill");
+        backfill.setPriority(Thread.MIN_PRIORITY);
+        backfill.start();
+    }
+
+    /**
+     * This method starts buildSimilarityIndex() for the unlocked vault on a
+     * background thread, and refreshes the account list once it is done
+     *
+     * @param userId the user the vault was unlocked for
+     */
+    public void startSimilarityIndexBuild(final int userId) {
+        final CipherEngine cipherEngine;
+        final SimilarityIndex index;
+        try {
+            cipherEngine = VaultSession.getCipherEngine();
+            index = VaultSession.getSimilarityIndex();
+        } catch (IllegalStateException ex) {
+            return;
+        }
+
+        Thread build = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int indexed = buildSimilarityIndex(userId, cipherEngine, index);
+                    Log.v(TAG, "********* indexed passwords:" + indexed + " clusters:" + index.getClusters().size());
+                    context.getContentResolver().notifyChange(DatabaseDescription.AccountData.CONTENT_URI, null);
+                } catch (CancellationException ex) {
+                    Log.v(TAG, "********* similarity index build stopped by lock");
+                } catch (Exception ex) {
+                    Log.e(TAG, "Error while indexing passwords", ex);
+                }
+            }
+        }, "SimilarityIndexBuild");
+        build.setPriority(Thread.MIN_PRIORITY);
+        build.start();
+    }
+
+    /**
+     * This method adds the decrypted passwords of a user to a similarity index.
+     * Accounts already in the index, saved since the vault was unlocked, are
+     * left as they are.
+     *
+     * @param userId       the owner of the accounts
+     * @param cipherEngine decrypts the accounts of the user
+     * @param index        the index to fill
+     * @return the number of passwords decrypted
+     * @throws CancellationException if the vault is locked or changes user meanwhile
+     */
+    public int buildSimilarityIndex(final int userId, CipherEngine cipherEngine, final SimilarityIndex index) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        AccountBulkDecryptor decryptor = new AccountBulkDecryptor(cipherEngine);
+        return decryptor.decryptRange(db, userId, 0, Long.MAX_VALUE, new AccountBulkDecryptor.Sink() {
+            @Override
+            public void onDecrypted(long accountId, String name, String password) {
+                if (VaultSession.getUserId() != userId) {
+                    throw new CancellationException("The vault was locked");
+                }
+                if (password != null) {
+                    index.putIfAbsent(accountId, password);
+                }
+            }
+        });
+    }
+
+    /**
+     * This method runs a PasswordFingerprintBackfill for a user,
+     * BACKFILL_BATCH_SIZE rows per transaction
+     *
+     * @param userId        the owner of the accounts
+     * @param cipherEngine  decrypts the accounts of the user
+     * @param fingerprinter fingerprints them
+     * @return the number of rows fingerprinted
+     */
+    public int backfillPasswordFingerprints(int userId, CipherEngine cipherEngine,
+                                            PasswordFingerprinter fingerprinter) {
+        PasswordFingerprintBackfill backfill = new PasswordFingerprintBackfill(userId, cipherEngine, fingerprinter);
+        migrator.runBackfill(this.getWritableDatabase(), backfill, BACKFILL_BATCH_SIZE);
+        return backfill.getFilled();
+    }
+
+    /**
+     * This method inserts an account with a statement compiled once per set of
+     * columns
+     *
+     * @param values the columns of the account
+     * @return the id of the new account
+     * @throws android.database.SQLException if the row cannot be inserted
+     */
+    long insertAccount(ContentValues values) {
+        List<String> columns = new ArrayList<>(new TreeSet<>(values.keySet()));
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+                .append(DatabaseDescription.AccountData.TABLE_NAME).append(" (");
+        StringBuilder parameters = new StringBuilder();
+        Object[] args = new Object[columns.size()];
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                parameters.append(", ");
+            }
+            sql.append(columns.get(i));
+            parameters.append('?');
+            args[i] = values.get(columns.get(i));
+        }
+        sql.append(") VALUES (").append(parameters).append(')');
+        return getStatements().executeInsert(sql.toString(), args);
+    }
+
+    /**
+     * This method updates an account with a statement compiled once per set of
+     * columns
+     *
+     * @param accountId the account to update
+     * @param values    the columns to change
+     * @return the number of rows updated
+     */
+    int updateAccount(long accountId, ContentValues values) {
+        if (values.size() == 0) {
+            throw new IllegalArgumentException("Empty values");
+        }
+        List<String> columns = new ArrayList<>(new TreeSet<>(values.keySet()));
+        StringBuilder sql = new StringBuilder("UPDATE ")
+                .append(DatabaseDescription.AccountData.TABLE_NAME).append(" SET ");
+        Object[] args = new Object[columns.size() + 1];
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns.get(i)).append(" = ?");
+            args[i] = values.get(columns.get(i));
+        }
+        sql.append(" WHERE ").append(DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID).append(" = ?");
+        args[columns.size()] = accountId;
+        return getStatements().executeUpdateDelete(sql.toString(), args);
+    }
 
-        // Create tables again
-        onCreate(db);
+    /**
+     * @param accountId the account to delete
+     * @return the number of rows deleted
+     */
+    int deleteAccount(long accountId) {
+        return getStatements().executeUpdateDelete(DELETE_ACCOUNT, accountId);
+    }
 
+    // the statements are compiled against the database of the process, which
+    // stays open
+    private synchronized StatementCache getStatements() {
+        if (statements == null) {
+            statements = new StatementCache(this.getWritableDatabase());
+        }
+        return statements;
     }
 
     /**
@@ -72,16 +548,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param user
      */
     public void addUser(User user) {
-        SQLiteDatabase db = this.getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_USER_NAME, user.getName());
-        values.put(COLUMN_USER_EMAIL, user.getEmail());
-        values.put(COLUMN_USER_PASSWORD, user.getPassword());
-
         // Inserting Row
-        db.insert(TABLE_USER, null, values);
-        db.close();
+        try {
+            getStatements().executeInsert(INSERT_USER, user.getName(), user.getEmail(), user.getPassword(),
+                    user.getKdfIterations(), user.getKdfTargetMillis());
+        } catch (SQLiteConstraintException e) {
+            // registered meanwhile, the unique email index keeps the first one;
+            // on databases with duplicate emails checkUser() is the only guard
+            Log.e(TAG, "Error while adding user:" + user.getEmail(), e);
+        }
     }
 
     /**
@@ -91,10 +566,86 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return true/false
      */
     public boolean checkUser(String email) {
+        // one seek in the email index
+        return getStatements().simpleQueryForLong(COUNT_USERS_WITH_EMAIL, email) > 0;
+    }
+
+    /**
+     * This method to check user exist or not and returns the id of the user
+     * if the email and password match. The stored hash names its algorithm,
+     * parameters and salt, and is compared in constant time; on success the
+     * vault is unlocked with the derived vault key, and records that are not on
+     * the current algorithm and parameters are rehashed.
+     *
+     * @param email
+     * @param password the plain text master password
+     * @return the id of the user, or 0 if the email and password do not match
+     */
+    public int checkUser(String email, String password) {
+
+        User user = getUser(email);
+        if (user == null || user.getPassword() == null) {
+            return 0;
+        }
+
+        VaultKeys vaultKeys = null;
+        CipherEngine accountEngine = null;
+        try {
+            String stored = user.getPassword();
+            boolean encoded = PasswordHash.isEncoded(stored);
+            // hex records written before the hash format used the shared salt
+            PasswordHash hash = encoded
+                    ? PasswordHash.parse(stored)
+                    : PasswordHash.fromLegacy(stored, user.getKdfIterations());
+
+            // a single KDF run gives both the verifier and the vault key
+            vaultKeys = hash.verify(password);
+
+            // the key the user's accounts are encrypted with now
+            if (vaultKeys != null) {
+                accountEngine = new CipherEngine(vaultKeys.getVaultKey());
+            } else if (!encoded && PasswordHash.constantTimeEquals(
+                    HexCodec.fromHex(EncryptionUtil.createPasswordHash(password)), HexCodec.fromHex(stored))) {
+                // users registered before per-user vault keys store the legacy hash
+                accountEngine = EncryptionUtil.getCipherEngine();
+            } else {
+                return 0;
+            }
+
+            vaultKeys = rehashIfOutdated(user, hash, password, vaultKeys, accountEngine);
+
+            // starts the fingerprint backfill and the similarity index build
+            VaultSession.unlock(user.getId(), vaultKeys.getVaultKey(), vaultKeys.getFingerprintKey());
+            Log.v(TAG, "********* userId:" + user.getId());
+            return user.getId();
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            Log.e(TAG, "Error while verifying the password for:" + email, e);
+            return 0;
+        } finally {
+            if (vaultKeys != null) {
+                vaultKeys.destroy();
+            }
+            // the session has its own engine, the legacy one is shared
+            if (accountEngine != null && accountEngine != EncryptionUtil.getCipherEngine()) {
+                accountEngine.destroy();
+            }
+        }
+    }
+
+    /**
+     * This method is to fetch the id, verifier and KDF parameters of a user
+     *
+     * @param email
+     * @return the user, or null if there is no user with this email
+     */
+    private User getUser(String email) {
 
         // array of columns to fetch
         String[] columns = {
-                COLUMN_USER_ID
+                COLUMN_USER_ID,
+                COLUMN_USER_PASSWORD,
+                COLUMN_USER_KDF_ITERATIONS,
+                COLUMN_USER_KDF_TARGET_MS
         };
         SQLiteDatabase db = this.getReadableDatabase();
 
@@ -104,79 +655,173 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         // selection argument
         String[] selectionArgs = {email};
 
-        // query user table with condition
-        /**
-         * Here query function is used to fetch records from user table this function works like we use sql query.
-         * SQL query equivalent to this query function is
-         * SELECT user_id FROM user WHERE user_email = 'jack@androidtutorialshub.com';
-         */
         Cursor cursor = db.query(TABLE_USER, //Table to query
                 columns,                    //columns to return
                 selection,                  //columns for the WHERE clause
                 selectionArgs,              //The values for the WHERE clause
                 null,                       //group the rows
-                null,                      //filter by row groups
-                null);                      //The sort order
-        int cursorCount = cursor.getCount();
-        cursor.close();
-        db.close();
-
-        if (cursorCount > 0) {
-            return true;
+                null,                       //filter by row groups
+                COLUMN_USER_ID,             //The sort order, the first user of a duplicate email
+                "1");                       //The first row only
+
+        User user = null;
+        if (cursor.moveToFirst()) {
+            user = new User();
+            user.setId(cursor.getInt(0));
+            user.setEmail(email);
+            user.setPassword(cursor.getString(1));
+            user.setKdfIterations(cursor.getInt(2));
+            user.setKdfTargetMillis(cursor.getInt(3));
         }
 
-        return false;
+        cursor.close();
+        return user;
     }
 
     /**
-     * This method to check user exist or not and returns the id of the user
-     * if the email and password match
+     * This method moves a verified user to the current algorithm and parameters.
+     * Users whose calibration target is below the current one are recalibrated
+     * first. If the record needs a new hash, the password is hashed with a fresh
+     * salt and the accounts are re-encrypted with the new vault key.
      *
-     * @param email
-     * @param password
-     * @return true/false
+     * @param user          the verified user
+     * @param hash          the stored hash of the user
+     * @param password      the plain text master password
+     * @param vaultKeys     the keys derived from the stored hash, or null for a legacy hash
+     * @param accountEngine decrypts the accounts of the user as they are stored now
+     * @return the vault keys to unlock the vault with
      */
-    public int checkUser(String email, String password) {
+    private VaultKeys rehashIfOutdated(User user, PasswordHash hash, String password, VaultKeys vaultKeys,
+                                       CipherEngine accountEngine) throws GeneralSecurityException {
+        boolean recalibrate = user.getKdfTargetMillis() < KdfCalibrator.TARGET_UNLOCK_MILLIS;
+        boolean sameAlgorithm = hash.getAlgorithm().equals(PasswordHash.CURRENT_ALGORITHM);
+        if (vaultKeys != null && !recalibrate && sameAlgorithm
+                && !hash.needsRehash(PasswordHash.CURRENT_ALGORITHM, hash.getParams())) {
+            return vaultKeys;
+        }
 
-        int loggedInUserId = 0;
+        // a calibration still on target is kept, unless the algorithm changed
+        Map<String, Integer> params = recalibrate || !sameAlgorithm
+                ? KdfCalibrator.calibrateParameters(PasswordHash.CURRENT_ALGORITHM, KdfCalibrator.TARGET_UNLOCK_MILLIS)
+                : hash.getParams();
+        user.setKdfTargetMillis(KdfCalibrator.TARGET_UNLOCK_MILLIS);
+        if (vaultKeys != null && !hash.needsRehash(PasswordHash.CURRENT_ALGORITHM, params)) {
+            // the stored hash already meets the target, only record the calibration
+            updateKdfParameters(user);
+            return vaultKeys;
+        }
 
-        // array of columns to fetch
-        String[] columns = {
-                COLUMN_USER_ID
-        };
-        SQLiteDatabase db = this.getReadableDatabase();
-        // selection criteria
-        String selection = COLUMN_USER_EMAIL + " = ?" + " AND " + COLUMN_USER_PASSWORD + " = ?";
+        VaultKeys newKeys = PasswordHash.create(password, PasswordHash.CURRENT_ALGORITHM, params);
+        user.setPassword(newKeys.getVerifier());
+        CipherEngine newEngine = new CipherEngine(newKeys.getVaultKey());
+        PasswordFingerprinter newFingerprinter = new PasswordFingerprinter(newKeys.getFingerprintKey());
+        try {
+            rekeyUser(user, accountEngine, newEngine, newFingerprinter);
+        } finally {
+            newEngine.destroy();
+            newFingerprinter.destroy();
+        }
+        if (vaultKeys != null) {
+            vaultKeys.destroy();
+        }
+        Log.v(TAG, "********* rehashed with:" + PasswordHash.CURRENT_ALGORITHM + " " + params);
+        return newKeys;
+    }
 
-        // selection arguments
-        String[] selectionArgs = {email, password};
+    // stores the KDF parameters of a user whose verifier did not change
+    private void updateKdfParameters(User user) {
+        SQLiteDatabase db = this.getWritableDatabase();
 
-        // query user table with conditions
-        /**
-         * Here query function is used to fetch records from user table this function works like we use sql query.
-         * SQL query equivalent to this query function is
-         * SELECT user_id FROM user WHERE user_email = 'jack@androidtutorialshub.com' AND user_password = 'qwerty';
-         */
-        Cursor cursor = db.query(TABLE_USER, //Table to query
-                columns,                    //columns to return
-                selection,                  //columns for the WHERE clause
-                selectionArgs,              //The values for the WHERE clause
-                null,                       //group the rows
-                null,                       //filter by row groups
-                null);                      //The sort order
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_USER_KDF_ITERATIONS, user.getKdfIterations());
+        values.put(COLUMN_USER_KDF_TARGET_MS, user.getKdfTargetMillis());
+        db.update(TABLE_USER, values, COLUMN_USER_ID + " = ?", new String[]{String.valueOf(user.getId())});
+    }
+
+    /**
+     * This method stores the summary of a vault audit, replacing the previous
+     * one of the user
+     *
+     * @param userId         the audited user
+     * @param report         the summary
+     * @param auditTime      when the audit started, in milliseconds since the epoch
+     * @param durationMillis how long the audit took
+     */
+    public void saveAuditReport(int userId, VaultAudit.Report report, long auditTime, long durationMillis) {
+        SQLiteDatabase db = this.getWritableDatabase();
 
-        int cursorCount = cursor.getCount();
-        Log.v(TAG,"+++++++++ ******** cursorCount:" + cursorCount);
-        if(cursorCount == 1){
-            cursor.moveToNext();
-            String strUserId = cursor.getString(cursor.getColumnIndex(COLUMN_USER_ID));
-            Log.v(TAG,"********* strUserId:" + strUserId);
-            loggedInUserId = Integer.parseInt(strUserId);
-            Log.v(TAG,"********* userId:" + loggedInUserId);
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_AUDIT_USER_ID, userId);
+        values.put(COLUMN_AUDIT_TIME, auditTime);
+        values.put(COLUMN_AUDIT_DURATION_MS, durationMillis);
+        values.put(COLUMN_AUDIT_ACCOUNTS, report.getAccounts());
+        values.put(COLUMN_AUDIT_UNREADABLE, report.getUnreadable());
+        values.put(COLUMN_AUDIT_WEAK, report.getWeak());
+        values.put(COLUMN_AUDIT_BREACHED, report.getBreached());
+        values.put(COLUMN_AUDIT_REUSED, report.getReused());
+        values.put(COLUMN_AUDIT_REUSED_PASSWORDS, report.getReusedPasswords());
+        values.put(COLUMN_AUDIT_NEAR_DUPLICATES, report.getNearDuplicates());
+
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(TABLE_AUDIT, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
+    }
 
-        cursor.close();
-        db.close();
-        return loggedInUserId;
+    /**
+     * This method replaces the password verifier and KDF parameters of a user and
+     * re-encrypts all of the user's accounts from one key to another, in a single
+     * transaction. The fingerprints are recomputed under the new fingerprint key.
+     *
+     * @param user             the user to re-key, holding the new verifier and KDF parameters
+     * @param oldEngine        decrypts with the key the accounts are encrypted with now
+     * @param newEngine        encrypts with the key the accounts are moved to
+     * @param newFingerprinter fingerprints with the key derived along with the new key
+     */
+    public void rekeyUser(User user, CipherEngine oldEngine, final CipherEngine newEngine,
+                          final PasswordFingerprinter newFingerprinter) {
+        final SQLiteDatabase db = this.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            ContentValues userValues = new ContentValues();
+            userValues.put(COLUMN_USER_PASSWORD, user.getPassword());
+            userValues.put(COLUMN_USER_KDF_ITERATIONS, user.getKdfIterations());
+            userValues.put(COLUMN_USER_KDF_TARGET_MS, user.getKdfTargetMillis());
+            db.update(TABLE_USER, userValues, COLUMN_USER_ID + " = ?",
+                    new String[]{String.valueOf(user.getId())});
+
+            final ContentValues values = new ContentValues();
+            final String whereClause = DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " = ?";
+            AccountBulkDecryptor decryptor = new AccountBulkDecryptor(oldEngine);
+            int rekeyed = decryptor.decryptRange(db, user.getId(), 0, Long.MAX_VALUE, new AccountBulkDecryptor.Sink() {
+                @Override
+                public void onDecrypted(long accountId, String name, String password) {
+                    if (password == null) {
+                        // unreadable with the old key as well, leave the row as it is
+                        return;
+                    }
+                    try {
+                        values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB,
+                                newEngine.encryptToBytes(password));
+                    } catch (GeneralSecurityException e) {
+                        throw new IllegalStateException("Error while re-encrypting account:" + accountId, e);
+                    }
+                    values.putNull(DatabaseDescription.AccountData.COLUMN_PASSWORD);
+                    values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT,
+                            newFingerprinter.fingerprint(password));
+                    db.update(DatabaseDescription.AccountData.TABLE_NAME, values, whereClause,
+                            new String[]{String.valueOf(accountId)});
+                }
+            });
+            Log.v(TAG, "********* re-keyed accounts:" + rekeyed);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
 }
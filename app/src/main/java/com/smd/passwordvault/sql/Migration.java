@@ -0,0 +1,52 @@
+package com.smd.passwordvault.sql;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One numbered step of the database schema, applied by a Migrator when a database
+ * older than its version is opened.
+ *
+ * A step only makes schema changes (tables, columns, indexes) that complete in
+ * constant time. Moving existing rows to what the step added is left to its
+ * Backfill, which runs after the database is open, in chunks.
+ */
+public abstract class Migration {
+
+    private final int version;
+    private final String description;
+
+    /**
+     * constructor
+     *
+     * @param version     the schema version this step upgrades to
+     * @param description what the step changes, for the logs
+     */
+    protected Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * This method applies the schema changes of the step, inside the upgrade
+     * transaction
+     *
+     * @param db the database being upgraded
+     */
+    public abstract void migrate(SQLiteDatabase db);
+
+    /**
+     * @return the backfill completing this step on existing rows, or null if
+     * there is none
+     */
+    public Backfill getBackfill() {
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package com.smd.passwordvault.sql;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies the numbered Migrations of the schema in order, and runs their Backfills.
+ *
+ * upgrade() is called from SQLiteOpenHelper.onUpgrade(), which runs inside one
+ * transaction together with the update of the schema version: either every step
+ * between the two versions is applied, or none is and the upgrade is retried on
+ * the next open. Backfills run later, each batch in a transaction of its own.
+ */
+public class Migrator {
+
+    private static final String TAG = "Migrator";
+
+    /**
+     * receives the progress of the migrations
+     */
+    public interface ProgressListener {
+        /**
+         * @param version     the version of the step being applied
+         * @param description what it changes
+         */
+        void onMigration(int version, String description);
+
+        /**
+         * @param name  the backfill
+         * @param done  the number of rows processed so far
+         * @param total the number of rows there were to process when it started
+         */
+        void onBackfillProgress(String name, long done, long total);
+    }
+
+    // logs the progress when no listener is given
+    private static final ProgressListener LOG_PROGRESS = new ProgressListener() {
+        @Override
+        public void onMigration(int version, String description) {
+            Log.v(TAG, "********* migrating to version " + version + ": " + description);
+        }
+
+        @Override
+        public void onBackfillProgress(String name, long done, long total) {
+            Log.v(TAG, "********* " + name + ": " + done + "/" + total);
+        }
+    };
+
+    private final List<Migration> migrations;
+    private ProgressListener listener = LOG_PROGRESS;
+
+    /**
+     * constructor
+     *
+     * @param migrations the steps of the schema, one per version from 2 upwards
+     * @throws IllegalArgumentException if a version is missing or repeated
+     */
+    public Migrator(Migration... migrations) {
+        List<Migration> sorted = new ArrayList<>(Arrays.asList(migrations));
+        Collections.sort(sorted, new Comparator<Migration>() {
+            @Override
+            public int compare(Migration a, Migration b) {
+                return a.getVersion() - b.getVersion();
+            }
+        });
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i).getVersion() != i + 2) {
+                throw new IllegalArgumentException("Expected a migration to version " + (i + 2)
+                        + ", found version " + sorted.get(i).getVersion());
+            }
+        }
+        this.migrations = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @param listener receives the progress from now on, or null to log it
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener != null ? listener : LOG_PROGRESS;
+    }
+
+    /**
+     * @return the version of the last step, that of a fully migrated schema
+     */
+    public int getLatestVersion() {
+        return migrations.size() + 1;
+    }
+
+    /**
+     * This method applies the steps after oldVersion up to newVersion, in order
+     *
+     * @param db         the database, inside the upgrade transaction
+     * @param oldVersion the version of the schema now
+     * @param newVersion the version to upgrade to
+     * @throws IllegalStateException if there is no step up to newVersion
+     */
+    public void upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (newVersion > getLatestVersion()) {
+            throw new IllegalStateException("No migration to version " + newVersion);
+        }
+        for (Migration migration : migrations) {
+            int version = migration.getVersion();
+            if (version > oldVersion && version <= newVersion) {
+                listener.onMigration(version, migration.getDescription());
+                migration.migrate(db);
+            }
+        }
+    }
+
+    /**
+     * @return the backfills of all steps, in version order
+     */
+    public List<Backfill> getBackfills() {
+        List<Backfill> backfills = new ArrayList<>();
+        for (Migration migration : migrations) {
+            if (migration.getBackfill() != null) {
+                backfills.add(migration.getBackfill());
+            }
+        }
+        return backfills;
+    }
+
+    /**
+     * This method runs a backfill to completion, batchSize rows per transaction
+     *
+     * @param db        the database to backfill
+     * @param backfill  the backfill
+     * @param batchSize the number of rows per transaction
+     * @return the number of rows processed
+     */
+    public long runBackfill(SQLiteDatabase db, Backfill backfill, int batchSize) {
+        long total = backfill.countRemaining(db);
+        long done = 0;
+        while (true) {
+            int batch;
+            db.beginTransaction();
+            try {
+                batch = backfill.migrateBatch(db, batchSize);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            done += batch;
+            listener.onBackfillProgress(backfill.getName(), done, Math.max(total, done));
+            if (batch < batchSize) {
+                return done;
+            }
+        }
+    }
+}
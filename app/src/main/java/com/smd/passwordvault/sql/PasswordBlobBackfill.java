@@ -0,0 +1,91 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.HexCodec;
+
+/**
+ * Completes version 2 of the schema: moves the account passwords still stored as
+ * hex text into the BLOB column. Only rows that still have hex text are selected.
+ *
+ * Versions before the cipher engine stored the plain text when encryption
+ * failed. Such rows are not hex; they are left in the legacy column, untouched,
+ * and their ids are logged once the other rows are moved.
+ */
+class PasswordBlobBackfill implements Backfill {
+
+    private static final String TAG = "PasswordBlobBackfill";
+
+    // an even number of hex digits
+    private static final String IS_HEX = "length(" + DatabaseDescription.AccountData.COLUMN_PASSWORD + ") % 2 = 0 AND "
+            + DatabaseDescription.AccountData.COLUMN_PASSWORD + " NOT GLOB '*[^0-9A-Fa-f]*'";
+
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_PASSWORD + " IS NOT NULL AND "
+            + IS_HEX;
+    private static final String NOT_HEX_SELECTION = DatabaseDescription.AccountData.COLUMN_PASSWORD
+            + " IS NOT NULL AND NOT (" + IS_HEX + ")";
+
+    @Override
+    public String getName() {
+        return "PasswordBlobBackfill";
+    }
+
+    @Override
+    public long countRemaining(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, DatabaseDescription.AccountData.TABLE_NAME, SELECTION, null);
+    }
+
+    @Override
+    public int migrateBatch(SQLiteDatabase db, int batchSize) {
+        String[] columns = {
+                DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID,
+                DatabaseDescription.AccountData.COLUMN_PASSWORD
+        };
+        String whereClause = DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " = ?";
+
+        int batch = 0;
+        Cursor cursor = db.query(DatabaseDescription.AccountData.TABLE_NAME,
+                columns,
+                SELECTION,
+                null,
+                null,
+                null,
+                null,
+                String.valueOf(batchSize));
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB,
+                        HexCodec.fromHex(cursor.getString(1)));
+                values.putNull(DatabaseDescription.AccountData.COLUMN_PASSWORD);
+                db.update(DatabaseDescription.AccountData.TABLE_NAME, values, whereClause,
+                        new String[]{String.valueOf(cursor.getLong(0))});
+                batch++;
+            }
+        } finally {
+            cursor.close();
+        }
+        if (batch < batchSize) {
+            logRowsNotHex(db);
+        }
+        return batch;
+    }
+
+    // the rows the backfill leaves behind
+    private static void logRowsNotHex(SQLiteDatabase db) {
+        Cursor cursor = db.query(DatabaseDescription.AccountData.TABLE_NAME,
+                new String[]{DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID},
+                NOT_HEX_SELECTION, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                Log.w(TAG, "Legacy password of account " + cursor.getLong(0) + " is not hex, left as is");
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
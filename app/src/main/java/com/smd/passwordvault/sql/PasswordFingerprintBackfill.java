@@ -0,0 +1,106 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.PasswordFingerprinter;
+import com.smd.passwordvault.helpers.VaultSession;
+
+/**
+ * Completes version 4 of the schema for one unlocked vault: fingerprints the account
+ * passwords of the user that have none yet, rows written before version 4 or while
+ * the vault was locked.
+ *
+ * Rows are walked by id, so passwords that cannot be decrypted are skipped instead
+ * of being selected again. The backfill stops at the next batch once the vault is
+ * locked, since it needs the keys of the session it was started for.
+ */
+class PasswordFingerprintBackfill implements Backfill {
+
+    private static final String[] COLUMNS = {
+            DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID,
+            DatabaseDescription.AccountData.COLUMN_NAME,
+            DatabaseDescription.AccountData.COLUMN_PASSWORD,
+            DatabaseDescription.AccountData.COLUMN_PASSWORD_BLOB
+    };
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_USER_ID + " = ? AND "
+            + DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " IS NULL";
+    private static final String WHERE_CLAUSE = DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " = ? AND "
+            + DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT + " IS NULL";
+
+    private final int userId;
+    private final AccountBulkDecryptor decryptor;
+    private final PasswordFingerprinter fingerprinter;
+
+    private long lastId;
+    private int filled;
+
+    /**
+     * constructor
+     *
+     * @param userId        the owner of the accounts
+     * @param cipherEngine  decrypts the accounts of the user
+     * @param fingerprinter fingerprints them
+     */
+    PasswordFingerprintBackfill(int userId, CipherEngine cipherEngine, PasswordFingerprinter fingerprinter) {
+        this.userId = userId;
+        this.decryptor = new AccountBulkDecryptor(cipherEngine);
+        this.fingerprinter = fingerprinter;
+    }
+
+    @Override
+    public String getName() {
+        return "PasswordFingerprintBackfill";
+    }
+
+    @Override
+    public long countRemaining(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, DatabaseDescription.AccountData.TABLE_NAME, SELECTION,
+                new String[]{String.valueOf(userId)});
+    }
+
+    @Override
+    public int migrateBatch(final SQLiteDatabase db, int batchSize) {
+        if (VaultSession.getUserId() != userId) {
+            return 0;
+        }
+
+        Cursor cursor = db.query(DatabaseDescription.AccountData.TABLE_NAME,
+                COLUMNS,
+                SELECTION + " AND " + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " > ?",
+                new String[]{String.valueOf(userId), String.valueOf(lastId)},
+                null,
+                null,
+                DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " ASC",
+                String.valueOf(batchSize));
+        try {
+            final ContentValues values = new ContentValues();
+            return decryptor.decrypt(cursor, new AccountBulkDecryptor.Sink() {
+                @Override
+                public void onDecrypted(long accountId, String name, String password) {
+                    lastId = accountId;
+                    if (password == null) {
+                        return;
+                    }
+                    values.put(DatabaseDescription.AccountData.COLUMN_PASSWORD_FINGERPRINT,
+                            fingerprinter.fingerprint(password));
+                    // an edit since the query already wrote its own fingerprint
+                    filled += db.update(DatabaseDescription.AccountData.TABLE_NAME, values,
+                            WHERE_CLAUSE, new String[]{String.valueOf(accountId)});
+                }
+            });
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the number of rows fingerprinted so far
+     */
+    int getFilled() {
+        return filled;
+    }
+}
@@ -0,0 +1,64 @@
+package com.smd.passwordvault.sql;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Completes version 7 of the schema: adds the names of the accounts written
+ * before version 7 to the full text index. The triggers index the accounts
+ * added or renamed since, so only rows without an entry in the index are
+ * selected; until the backfill is done, search does not find the older ones.
+ *
+ * An account has an entry once its row id is in the docsize table of the index,
+ * which FTS4 keeps for every document, even one without a name. Rows are walked
+ * by id, so each batch starts where the previous one stopped.
+ */
+class SearchIndexBackfill implements Backfill {
+
+    private static final String[] COLUMNS = {
+            DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID,
+            DatabaseDescription.AccountData.COLUMN_NAME
+    };
+    private static final String SELECTION = DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID
+            + " NOT IN (SELECT docid FROM " + DatabaseDescription.AccountData.SEARCH_TABLE_NAME + "_docsize)";
+
+    private long lastId;
+
+    @Override
+    public String getName() {
+        return "SearchIndexBackfill";
+    }
+
+    @Override
+    public long countRemaining(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, DatabaseDescription.AccountData.TABLE_NAME, SELECTION, null);
+    }
+
+    @Override
+    public int migrateBatch(SQLiteDatabase db, int batchSize) {
+        int batch = 0;
+        Cursor cursor = db.query(DatabaseDescription.AccountData.TABLE_NAME,
+                COLUMNS,
+                SELECTION + " AND " + DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " > ?",
+                new String[]{String.valueOf(lastId)},
+                null,
+                null,
+                DatabaseDescription.AccountData.COLUMN_ACCOUNT_ID + " ASC",
+                String.valueOf(batchSize));
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                lastId = cursor.getLong(0);
+                values.put("docid", lastId);
+                values.put(DatabaseDescription.AccountData.COLUMN_NAME, cursor.getString(1));
+                db.insert(DatabaseDescription.AccountData.SEARCH_TABLE_NAME, null, values);
+                batch++;
+            }
+        } finally {
+            cursor.close();
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,98 @@
+package com.smd.passwordvault.sql;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Compiled statements of a database, keyed by their SQL. A statement is
+ * compiled once and then only bound and run, so its SQL never carries values
+ * and SQLite reuses the prepared statement of each connection.
+ *
+ * An SQLiteStatement holds its bindings, so each one is used by one thread
+ * at a time: the methods here bind, run and clear it while holding its lock.
+ * The SQL is always a constant of the calling code, or built from column
+ * names only, so the number of statements stays small.
+ */
+final class StatementCache {
+
+    private final SQLiteDatabase db;
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+
+    StatementCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * @param sql  a query returning one row of one integer column
+     * @param args the values of its parameters
+     * @return the value of the first row
+     * @throws android.database.sqlite.SQLiteDoneException if there is no row
+     */
+    long simpleQueryForLong(String sql, Object... args) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            bind(statement, args);
+            try {
+                return statement.simpleQueryForLong();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    /**
+     * @param sql  an INSERT statement
+     * @param args the values of its parameters
+     * @return the row id of the new row
+     * @throws android.database.SQLException if the row cannot be inserted
+     */
+    long executeInsert(String sql, Object... args) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            bind(statement, args);
+            try {
+                return statement.executeInsert();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    /**
+     * @param sql  an UPDATE or DELETE statement
+     * @param args the values of its parameters
+     * @return the number of rows changed
+     */
+    int executeUpdateDelete(String sql, Object... args) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            bind(statement, args);
+            try {
+                return statement.executeUpdateDelete();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    private SQLiteStatement statement(String sql) {
+        synchronized (statements) {
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            DatabaseUtils.bindObjectToProgram(statement, i + 1, args[i]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.smd.passwordvault.sql;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.PasswordFingerprinter;
+import com.smd.passwordvault.helpers.VaultAudit;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a VaultAudit over the accounts of a user and stores its summary in PV_AUDIT.
+ *
+ * The accounts are decrypted chunk by chunk with an AccountBulkDecryptor and fed to
+ * the audit, which analyzes each chunk on the same pool while the next one is read
+ * and decrypted. Nothing but the summary is written back.
+ */
+public class VaultAuditor {
+
+    private static final String TAG = "VaultAuditor";
+
+    /**
+     * receives the progress of the audit on the thread running it
+     */
+    public interface Listener {
+        /**
+         * @param analyzed the number of accounts analyzed so far
+         * @param total    the number of accounts of the user
+         */
+        void onProgress(int analyzed, int total);
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final ForkJoinPool pool;
+
+    private volatile VaultAudit audit;
+    private volatile boolean cancelled;
+
+    /**
+     * constructor
+     *
+     * @param dbHelper the database of the accounts and of the summary
+     */
+    public VaultAuditor(DatabaseHelper dbHelper) {
+        this(dbHelper, AccountBulkDecryptor.getSharedPool());
+    }
+
+    /**
+     * constructor
+     *
+     * @param dbHelper the database of the accounts and of the summary
+     * @param pool     the pool both the decryption and the analysis run on
+     */
+    public VaultAuditor(DatabaseHelper dbHelper, ForkJoinPool pool) {
+        this.dbHelper = dbHelper;
+        this.pool = pool;
+    }
+
+    /**
+     * This method audits every account of a user. It blocks until the audit is
+     * done, so it must not run on the UI thread.
+     *
+     * @param userId        the owner of the accounts
+     * @param cipherEngine  decrypts the accounts of the user
+     * @param fingerprinter fingerprints them to find reused passwords
+     * @param breachCheck   the breach check, or null to skip it
+     * @param listener      the progress listener, or null
+     * @return the summary, also stored in PV_AUDIT
+     * @throws CancellationException if cancel() was called before the audit finished
+     */
+    public VaultAudit.Report run(int userId, CipherEngine cipherEngine, PasswordFingerprinter fingerprinter,
+                                 VaultAudit.BreachCheck breachCheck, final Listener listener) {
+        long auditTime = System.currentTimeMillis();
+        long started = System.nanoTime();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        final int total = (int) DatabaseUtils.queryNumEntries(db, DatabaseDescription.AccountData.TABLE_NAME,
+                DatabaseDescription.AccountData.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)});
+        VaultAudit.ProgressListener progress = null;
+        if (listener != null) {
+            progress = new VaultAudit.ProgressListener() {
+                @Override
+                public void onProgress(int analyzed) {
+                    listener.onProgress(analyzed, total);
+                }
+            };
+        }
+
+        final VaultAudit audit = new VaultAudit(pool, fingerprinter, breachCheck, progress);
+        this.audit = audit;
+        if (cancelled) {
+            audit.cancel();
+        }
+
+        // add() throws once the audit is cancelled, which stops the decryption too
+        new AccountBulkDecryptor(cipherEngine, pool).decryptRange(db, userId, 0, Long.MAX_VALUE,
+                new AccountBulkDecryptor.Sink() {
+                    @Override
+                    public void onDecrypted(long accountId, String name, String password) {
+                        audit.add(password);
+                    }
+                });
+        VaultAudit.Report report = audit.finish();
+
+        long durationMillis = (System.nanoTime() - started) / 1000000;
+        dbHelper.saveAuditReport(userId, report, auditTime, durationMillis);
+        Log.v(TAG, "********* audited accounts:" + report.getAccounts() + " in ms:" + durationMillis);
+        return report;
+    }
+
+    /**
+     * This method cancels the audit being run, or the next one if none is
+     */
+    public void cancel() {
+        cancelled = true;
+        VaultAudit current = audit;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks Argon2id against the test vector of RFC 9106 section 5.3 and against
+ * tags produced by the reference implementation.
+ */
+public class Argon2idTest {
+
+    @Test
+    public void rfc9106_withSecretAndAssociatedData() {
+        byte[] password = filled(32, 0x01);
+        byte[] salt = filled(16, 0x02);
+        byte[] secret = filled(8, 0x03);
+        byte[] associatedData = filled(12, 0x04);
+
+        byte[] expected = HexCodec.fromHex("0d640df58d78766c08c037a34a8b53c9d01ef0452d75b65eb52520e96b01e659");
+        assertArrayEquals(expected, Argon2id.derive(password, salt, secret, associatedData, 3, 32, 4, 32));
+    }
+
+    @Test
+    public void referenceImplementation_singleLane() {
+        byte[] expected = HexCodec.fromHex("9dfeb910e80bad0311fee20f9c0e2b12c17987b4cac90c2ef54d5b3021c68bfe");
+        assertArrayEquals(expected, Argon2id.derive("password".toCharArray(),
+                "somesalt".getBytes(StandardCharsets.UTF_8), 2, 256, 1, 32));
+    }
+
+    @Test
+    public void referenceImplementation_twoLanes() {
+        byte[] expected = HexCodec.fromHex("6d093c501fd5999645e0ea3bf620d7b8be7fd2db59c20d9fff9539da2bf57037");
+        assertArrayEquals(expected, Argon2id.derive("password".toCharArray(),
+                "somesalt".getBytes(StandardCharsets.UTF_8), 2, 256, 2, 32));
+    }
+
+    @Test
+    public void pooledMemoryGivesTheSameTag() {
+        byte[] salt = filled(16, 0x02);
+        byte[] first = Argon2id.derive("password".toCharArray(), salt, 2, 1024, 2, 32);
+        // a larger call leaves a larger array in the pool for the next, smaller one
+        Argon2id.derive("other".toCharArray(), salt, 1, 4096, 4, 32);
+        byte[] second = Argon2id.derive("password".toCharArray(), salt, 2, 1024, 2, 32);
+        assertArrayEquals(first, second);
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
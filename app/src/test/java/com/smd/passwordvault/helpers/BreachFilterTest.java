@@ -0,0 +1,89 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that BreachFilter has no false negatives, stays close to its
+ * configured false positive rate and takes the memory the Bloom filter bound
+ * predicts, -n ln p / (ln 2)^2 bits.
+ */
+public class BreachFilterTest {
+
+    private static final int HASHES = 100000;
+    private static final int PROBES = 1000000;
+
+    @Test
+    public void measuredFalsePositiveRateMatchesTheConfiguredRate() throws Exception {
+        for (double fpRate : new double[]{0.01, 0.001}) {
+            BreachFilter filter = filledFilter(fpRate, 1);
+
+            int falsePositives = 0;
+            Random random = new Random(2);
+            byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+            for (int i = 0; i < PROBES; i++) {
+                random.nextBytes(hash);
+                if (filter.mightContainHash(hash)) {
+                    falsePositives++;
+                }
+            }
+
+            double measured = (double) falsePositives / PROBES;
+            assertTrue("rate " + fpRate + " measured " + measured,
+                    measured > fpRate * 0.8 && measured < fpRate * 1.2);
+        }
+    }
+
+    @Test
+    public void everyAddedHashIsFound() throws Exception {
+        BreachFilter filter = filledFilter(0.01, 1);
+        Random random = new Random(1);
+        byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+        for (int i = 0; i < HASHES; i++) {
+            random.nextBytes(hash);
+            assertTrue("hash " + i, filter.mightContainHash(hash));
+        }
+    }
+
+    @Test
+    public void memoryFootprintMatchesTheBound() throws Exception {
+        BreachFilter.Builder builder = new BreachFilter.Builder(HASHES, 0.001);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.write(out);
+        BreachFilter filter = BreachFilter.read(new ByteArrayInputStream(out.toByteArray()));
+
+        // 14.38 bits per hash and 10 hash functions at 0.1%
+        double bound = -HASHES * Math.log(0.001) / (Math.log(2) * Math.log(2)) / 8;
+        assertTrue("bytes " + filter.sizeInBytes(), filter.sizeInBytes() >= bound && filter.sizeInBytes() <= bound + 8);
+        assertEquals(10, filter.getHashCount());
+        assertEquals(BreachFilter.HEADER_BYTES + filter.sizeInBytes(), out.size());
+    }
+
+    @Test
+    public void passwordsAreLookedUpByTheirSha1() throws Exception {
+        BreachFilter filter = new BreachFilter.Builder(3, 0.001)
+                .add("password").add("123456").add("qwerty").build();
+        assertTrue(filter.mightContain("password"));
+        assertTrue(filter.mightContainHash(BreachedPasswords.sha1("123456")));
+    }
+
+    // written and read back, so the asset format is covered too
+    private static BreachFilter filledFilter(double fpRate, long seed) throws Exception {
+        BreachFilter.Builder builder = new BreachFilter.Builder(HASHES, fpRate);
+        Random random = new Random(seed);
+        byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+        for (int i = 0; i < HASHES; i++) {
+            random.nextBytes(hash);
+            builder.addHash(hash);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.write(out);
+        return BreachFilter.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that BreachLookup lets the breached password list answer whenever
+ * there is one, even for passwords the filter of the most common ones does not
+ * hold, and only reports a probable breach for a filter hit without a list.
+ */
+public class BreachLookupTest {
+
+    @Test
+    public void theListAnswersForPasswordsMissingFromTheFilter() throws Exception {
+        // the filter holds the common password only, the list holds both
+        BreachFilter filter = new BreachFilter.Builder(1000, 0.001).add("123456").build();
+        BreachedPasswords list = listOf("123456", "rare breached password");
+        assertFalse(filter.mightContain("rare breached password"));
+
+        BreachLookup lookup = new BreachLookup(filter, list);
+        assertEquals(BreachLookup.BREACHED, lookup.check("rare breached password"));
+        assertEquals(BreachLookup.BREACHED, lookup.check("123456"));
+        assertEquals(BreachLookup.NOT_BREACHED, lookup.check("never breached password"));
+        assertTrue(lookup.isBreached("rare breached password"));
+    }
+
+    @Test
+    public void aFilterHitWithoutAListIsOnlyProbable() {
+        BreachFilter filter = new BreachFilter.Builder(1000, 0.001).add("123456").build();
+
+        BreachLookup lookup = new BreachLookup(filter, null);
+        assertEquals(BreachLookup.PROBABLY_BREACHED, lookup.check("123456"));
+        assertEquals(BreachLookup.NOT_BREACHED, lookup.check("never breached password"));
+        // the audit reports probable breaches
+        assertTrue(lookup.isBreached("123456"));
+
+        assertEquals(BreachLookup.NOT_BREACHED, new BreachLookup(null, null).check("123456"));
+    }
+
+    private static BreachedPasswords listOf(String... passwords) throws Exception {
+        List<byte[]> hashes = new ArrayList<>();
+        for (String password : passwords) {
+            hashes.add(BreachedPasswords.sha1(password));
+        }
+        Collections.sort(hashes, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                for (int i = 0; i < a.length; i++) {
+                    int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return 0;
+            }
+        });
+
+        File file = File.createTempFile("breached", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(BreachedPasswords.header(hashes.size()));
+            for (byte[] hash : hashes) {
+                out.write(hash);
+            }
+        } finally {
+            out.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return BreachedPasswords.map(raf.getChannel(), BreachedPasswords.SEGMENT_RECORDS);
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the interpolation search of BreachedPasswords on a small list mapped
+ * in segments of a few records, so lookups cross segment boundaries: every
+ * record is found, from the first to the last, and no hash between two
+ * records is, including within runs of hashes sharing their first 8 bytes,
+ * where the interpolation has nothing to go on.
+ */
+public class BreachedPasswordsTest {
+
+    private static final int RANDOM_HASHES = 5000;
+    private static final int SEGMENT_RECORDS = 7;
+
+    private static final Comparator<byte[]> UNSIGNED = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            for (int i = 0; i < a.length; i++) {
+                int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        }
+    };
+
+    @Test
+    public void findsEveryRecordAndNothingBetween() throws Exception {
+        List<byte[]> hashes = sortedHashes();
+        BreachedPasswords list = mapped(hashes);
+        assertEquals(hashes.size(), list.size());
+
+        for (int i = 0; i < hashes.size(); i++) {
+            assertTrue("record " + i, list.containsHash(hashes.get(i)));
+
+            byte[] next = successor(hashes.get(i));
+            if (next != null && (i + 1 == hashes.size() || UNSIGNED.compare(next, hashes.get(i + 1)) < 0)) {
+                assertFalse("after record " + i, list.containsHash(next));
+            }
+            byte[] previous = predecessor(hashes.get(i));
+            if (previous != null && (i == 0 || UNSIGNED.compare(previous, hashes.get(i - 1)) > 0)) {
+                assertFalse("before record " + i, list.containsHash(previous));
+            }
+        }
+    }
+
+    @Test
+    public void findsTheFirstAndLastRecords() throws Exception {
+        List<byte[]> hashes = sortedHashes();
+        BreachedPasswords list = mapped(hashes);
+        byte[] lowest = new byte[BreachedPasswords.RECORD_BYTES];
+        byte[] highest = new byte[BreachedPasswords.RECORD_BYTES];
+        Arrays.fill(highest, (byte) 0xff);
+
+        assertTrue(list.containsHash(lowest));
+        assertTrue(list.containsHash(highest));
+        assertTrue(list.containsHash(hashes.get(1)));
+        assertTrue(list.containsHash(hashes.get(hashes.size() - 2)));
+    }
+
+    @Test
+    public void randomHashesMatchABinarySearch() throws Exception {
+        List<byte[]> hashes = sortedHashes();
+        BreachedPasswords list = mapped(hashes);
+        Random random = new Random(9);
+        for (int i = 0; i < 10000; i++) {
+            byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+            random.nextBytes(hash);
+            assertEquals(Collections.binarySearch(hashes, hash, UNSIGNED) >= 0, list.containsHash(hash));
+        }
+    }
+
+    @Test
+    public void looksUpPasswordsByTheirSha1() throws Exception {
+        List<byte[]> hashes = sortedHashes();
+        hashes.add(BreachedPasswords.sha1("password1"));
+        Collections.sort(hashes, UNSIGNED);
+        BreachedPasswords list = mapped(hashes);
+
+        assertTrue(list.contains("password1"));
+        assertFalse(list.contains("password2"));
+    }
+
+    // random hashes, the lowest and highest possible ones, and runs of
+    // hashes that only differ after their first 8 bytes
+    private static List<byte[]> sortedHashes() {
+        Random random = new Random(8);
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < RANDOM_HASHES; i++) {
+            byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+            random.nextBytes(hash);
+            hashes.add(hash);
+        }
+        for (int run = 0; run < 20; run++) {
+            byte[] prefix = new byte[BreachedPasswords.RECORD_BYTES];
+            random.nextBytes(prefix);
+            for (int i = 0; i < 1 + run * 3; i++) {
+                byte[] hash = prefix.clone();
+                hash[8 + random.nextInt(12)] = (byte) random.nextInt(256);
+                hashes.add(hash);
+            }
+        }
+        byte[] highest = new byte[BreachedPasswords.RECORD_BYTES];
+        Arrays.fill(highest, (byte) 0xff);
+        hashes.add(new byte[BreachedPasswords.RECORD_BYTES]);
+        hashes.add(highest);
+
+        Collections.sort(hashes, UNSIGNED);
+        // drop duplicates, the converter writes each hash once
+        List<byte[]> distinct = new ArrayList<>();
+        for (byte[] hash : hashes) {
+            if (distinct.isEmpty() || UNSIGNED.compare(distinct.get(distinct.size() - 1), hash) != 0) {
+                distinct.add(hash);
+            }
+        }
+        return distinct;
+    }
+
+    private static BreachedPasswords mapped(List<byte[]> hashes) throws Exception {
+        File file = File.createTempFile("breached", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(BreachedPasswords.header(hashes.size()));
+            for (byte[] hash : hashes) {
+                out.write(hash);
+            }
+        } finally {
+            out.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return BreachedPasswords.map(raf.getChannel(), SEGMENT_RECORDS);
+        } finally {
+            raf.close();
+        }
+    }
+
+    // the hash plus one, or null after the highest
+    private static byte[] successor(byte[] hash) {
+        byte[] next = hash.clone();
+        for (int i = next.length - 1; i >= 0; i--) {
+            if (++next[i] != 0) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    // the hash minus one, or null before the lowest
+    private static byte[] predecessor(byte[] hash) {
+        byte[] previous = hash.clone();
+        for (int i = previous.length - 1; i >= 0; i--) {
+            if (previous[i]-- != 0) {
+                return previous;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that CipherEngine decrypts what it encrypts, one password or a batch
+ * at a time, rejects hex cipher text it cannot decode entirely, and cannot be
+ * used once destroyed, from any of the threads that used it before.
+ */
+public class CipherEngineTest {
+
+    private final CipherEngine cipherEngine = new CipherEngine("0123456789abcdef".getBytes());
+
+    @Test
+    public void decryptsWhatItEncrypts() throws Exception {
+        String[] passwords = {"", "p", "correct horse battery staple", "z\u00fcrich-\u20ac-2016"};
+        for (String password : passwords) {
+            assertEquals(password, cipherEngine.decrypt(cipherEngine.encrypt(password)));
+            assertEquals(password, cipherEngine.decrypt(cipherEngine.encryptToBytes(password)));
+        }
+
+        String[] encPwds = new String[passwords.length];
+        String[] decPwds = new String[passwords.length];
+        cipherEngine.encryptAll(passwords, 0, passwords.length, encPwds);
+        cipherEngine.decryptAll(encPwds, 0, passwords.length, decPwds);
+        assertArrayEquals(passwords, decPwds);
+        assertEquals(Arrays.asList(passwords), cipherEngine.decryptAll(cipherEngine.encryptAll(Arrays.asList(passwords))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddLengthHex() throws Exception {
+        String encPwd = cipherEngine.encrypt("password");
+        cipherEngine.decrypt(encPwd + "0");
+    }
+
+    @Test
+    public void cannotBeUsedOnceDestroyed() throws Exception {
+        final CipherEngine engine = new CipherEngine("0123456789abcdef".getBytes());
+        final String encPwd = engine.encrypt("password");
+        final byte[] encBytes = engine.encryptToBytes("password");
+
+        // another thread keeps its initialized ciphers after the engine is destroyed
+        final CountDownLatch used = new CountDownLatch(1);
+        final CountDownLatch destroyed = new CountDownLatch(1);
+        final boolean[] rejected = new boolean[1];
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    engine.decrypt(encPwd);
+                    used.countDown();
+                    destroyed.await();
+                    engine.decrypt(encPwd);
+                } catch (IllegalStateException e) {
+                    rejected[0] = true;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        other.start();
+        used.await();
+        engine.destroy();
+        destroyed.countDown();
+        other.join();
+
+        assertTrue(engine.isDestroyed());
+        assertTrue(rejected[0]);
+        try {
+            engine.decrypt(encBytes);
+            fail("decrypted with a destroyed engine");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            engine.encrypt("password");
+            fail("encrypted with a destroyed engine");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
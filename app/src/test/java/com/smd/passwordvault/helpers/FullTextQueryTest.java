@@ -0,0 +1,23 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that FullTextQuery makes one lower cased prefix query per token and
+ * drops the characters FTS4 would read as syntax.
+ */
+public class FullTextQueryTest {
+
+    @Test
+    public void onePrefixQueryPerToken() {
+        assertEquals("goo*", FullTextQuery.prefixMatch("goo"));
+        assertEquals("google* ma*", FullTextQuery.prefixMatch("  Google ma"));
+        assertEquals("bank* of* z\u00fcrich*", FullTextQuery.prefixMatch("bank-of-Z\u00fcrich"));
+        assertEquals("a* or* b*", FullTextQuery.prefixMatch("a\" OR (b*)"));
+        assertNull(FullTextQuery.prefixMatch(""));
+        assertNull(FullTextQuery.prefixMatch(" -\"*() "));
+    }
+}
@@ -0,0 +1,86 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that HexCodec matches the BigInteger based encoding it replaced, and
+ * that encoding and decoding into caller buffers allocate nothing, counted
+ * with the allocated bytes of the test thread.
+ */
+public class HexCodecTest {
+
+    private static final int ROUNDS = 100000;
+
+    @Test
+    public void matchesBigIntegerEncoding() {
+        Random random = new Random(3);
+        for (int length = 1; length <= 64; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            bytes[0] = length % 2 == 0 ? 0 : bytes[0]; // leading zeros are padded
+
+            String hex = HexCodec.toHex(bytes);
+            String expected = new BigInteger(1, bytes).toString(16);
+            while (expected.length() < length * 2) {
+                expected = "0" + expected;
+            }
+            assertEquals(expected, hex);
+            assertArrayEquals(bytes, HexCodec.fromHex(hex.toUpperCase()));
+        }
+    }
+
+    @Test
+    public void isHexAcceptsWhatDecodeAccepts() {
+        assertTrue(HexCodec.isHex(""));
+        assertTrue(HexCodec.isHex("00aF19"));
+        assertFalse(HexCodec.isHex("abc"));
+        assertFalse(HexCodec.isHex("password"));
+        assertFalse(HexCodec.isHex("0g"));
+        assertFalse(HexCodec.isHex("\u00e9a"));
+    }
+
+    @Test
+    public void encodeAndDecodeIntoBuffersDoNotAllocate() {
+        byte[] bytes = new byte[32];
+        new Random(5).nextBytes(bytes);
+        char[] chars = new char[bytes.length * 2];
+        byte[] decoded = new byte[bytes.length];
+        String hex = HexCodec.toHex(bytes);
+
+        // warm up, so the loops below run compiled code
+        roundTrips(bytes, chars, hex, decoded, ROUNDS);
+
+        // the counter itself may allocate, measure it alone first
+        long counterBytes = allocatedBytes();
+        counterBytes = allocatedBytes() - counterBytes;
+
+        long before = allocatedBytes();
+        roundTrips(bytes, chars, hex, decoded, ROUNDS);
+        long allocated = allocatedBytes() - before - counterBytes;
+
+        assertEquals(0, allocated);
+        assertArrayEquals(bytes, decoded);
+    }
+
+    private static void roundTrips(byte[] bytes, char[] chars, String hex, byte[] decoded, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            HexCodec.encode(bytes, 0, bytes.length, chars, 0);
+            HexCodec.decode(hex, 0, hex.length(), decoded, 0);
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,136 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that PagedList reads a sorted list by its neighbors' keys while
+ * scrolling in either direction, by offset only after a jump, holds a bounded
+ * number of pages, reads the source again on reset() and stops on close().
+ */
+public class PagedListTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_PAGES = 5;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final PagedList.Listener IGNORE = new PagedList.Listener() {
+        @Override
+        public void onReset(int size) {
+        }
+
+        @Override
+        public void onPageLoaded(int position, int count) {
+        }
+    };
+
+    @Test
+    public void scrollsByKeysInBothDirections() {
+        SortedSource source = new SortedSource(1000);
+        PagedList<String> list = new PagedList<>(source, PAGE_SIZE, 1, MAX_PAGES, DIRECT, DIRECT, IGNORE);
+        list.reset();
+        assertEquals(1000, list.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(source.items.get(i), list.get(i));
+            assertTrue(list.getLoadedPages() <= MAX_PAGES);
+        }
+        // the first page and the one after it at reset, then only keyed reads
+        assertEquals(1, source.offsetLoads);
+        assertEquals(1000 / PAGE_SIZE - 1, source.afterLoads);
+
+        // a jump reads by offset, scrolling back from it by key
+        assertEquals(source.items.get(510), list.get(510));
+        assertEquals(2, source.offsetLoads);
+        for (int i = 510; i >= 0; i--) {
+            assertEquals(source.items.get(i), list.get(i));
+        }
+        assertEquals(2, source.offsetLoads);
+        assertEquals(510 / PAGE_SIZE, source.beforeLoads);
+    }
+
+    @Test
+    public void resetReadsTheChangedSource() {
+        SortedSource source = new SortedSource(100);
+        PagedList<String> list = new PagedList<>(source, PAGE_SIZE, 1, MAX_PAGES, DIRECT, DIRECT, IGNORE);
+        list.reset();
+        assertEquals(source.items.get(50), list.get(50));
+
+        source.items.remove(45);
+        source.items.remove(0);
+        list.reset();
+        assertEquals(98, list.size());
+        for (int i = 0; i < 98; i++) {
+            assertEquals(source.items.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void closedListLoadsNothing() {
+        SortedSource source = new SortedSource(100);
+        PagedList<String> list = new PagedList<>(source, PAGE_SIZE, 1, MAX_PAGES, DIRECT, DIRECT, IGNORE);
+        list.reset();
+        list.close();
+        assertNull(list.get(0));
+        list.reset();
+        assertEquals(0, list.getLoadedPages());
+        assertEquals(1, source.offsetLoads);
+    }
+
+    // a sorted list of distinct strings, counting how each page is read
+    private static final class SortedSource implements PagedList.Loader<String> {
+        final List<String> items = new ArrayList<>();
+        int offsetLoads;
+        int afterLoads;
+        int beforeLoads;
+
+        SortedSource(int size) {
+            for (int i = 0; i < size; i++) {
+                items.add(String.format("account %05d", i * 7));
+            }
+        }
+
+        @Override
+        public int count() {
+            return items.size();
+        }
+
+        @Override
+        public List<String> loadAt(int offset, int limit) {
+            offsetLoads++;
+            return slice(offset, limit);
+        }
+
+        @Override
+        public List<String> loadAfter(String last, int limit) {
+            afterLoads++;
+            return slice(Collections.binarySearch(items, last) + 1, limit);
+        }
+
+        @Override
+        public List<String> loadBefore(String first, int limit) {
+            beforeLoads++;
+            int end = Collections.binarySearch(items, first);
+            return slice(Math.max(0, end - limit), end - Math.max(0, end - limit));
+        }
+
+        private List<String> slice(int from, int limit) {
+            int start = Math.min(from, items.size());
+            return new ArrayList<>(items.subList(start, Math.min(start + limit, items.size())));
+        }
+    }
+}
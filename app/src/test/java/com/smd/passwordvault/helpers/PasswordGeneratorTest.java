@@ -0,0 +1,112 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.security.SecureRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that PasswordGenerator satisfies its policies and draws uniformly, with
+ * chi-square tests at a significance level of 0.001 over a seeded generator.
+ */
+public class PasswordGeneratorTest {
+
+    private static final int PASSWORDS = 20000;
+
+    @Test
+    public void everyCharacterOfTheAlphabetIsEquallyLikely() throws Exception {
+        PasswordPolicy policy = new PasswordPolicy(16, 0, 0, 0, 0, false);
+        char[] alphabet = policy.alphabet();
+        int[] counts = new int[128];
+
+        PasswordGenerator generator = seededGenerator(1);
+        for (int n = 0; n < PASSWORDS; n++) {
+            for (char c : generator.generate(policy)) {
+                counts[c]++;
+            }
+        }
+
+        double expected = (double) PASSWORDS * policy.getLength() / alphabet.length;
+        double chiSquare = 0;
+        for (char c : alphabet) {
+            chiSquare += (counts[c] - expected) * (counts[c] - expected) / expected;
+        }
+        // 89 degrees of freedom
+        assertTrue("chi-square " + chiSquare, chiSquare < 136.0);
+    }
+
+    @Test
+    public void requiredCharactersAreSpreadOverAllPositions() throws Exception {
+        PasswordPolicy policy = new PasswordPolicy(16, 1, 1, 3, 2, true);
+        int[] symbolsAt = new int[policy.getLength()];
+        long total = 0;
+
+        PasswordGenerator generator = seededGenerator(2);
+        for (int n = 0; n < PASSWORDS; n++) {
+            char[] password = generator.generate(policy);
+            for (int i = 0; i < password.length; i++) {
+                if (contains(policy.classAlphabet(PasswordPolicy.SYMBOL), password[i])) {
+                    symbolsAt[i]++;
+                    total++;
+                }
+            }
+        }
+
+        double expected = (double) total / policy.getLength();
+        double chiSquare = 0;
+        for (int count : symbolsAt) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        // 15 degrees of freedom
+        assertTrue("chi-square " + chiSquare, chiSquare < 37.7);
+    }
+
+    @Test
+    public void passwordsSatisfyThePolicy() throws Exception {
+        PasswordPolicy policy = new PasswordPolicy(12, 2, PasswordPolicy.EXCLUDED, 4, 1, true);
+        PasswordGenerator generator = seededGenerator(3);
+        for (int n = 0; n < PASSWORDS; n++) {
+            char[] password = generator.generate(policy);
+            assertEquals(12, password.length);
+
+            int[] classCounts = new int[policy.getClassCount()];
+            for (char c : password) {
+                assertTrue("look-alike " + c, "Il1|O0o".indexOf(c) < 0);
+                boolean known = false;
+                for (int k = 0; k < classCounts.length; k++) {
+                    if (contains(policy.classAlphabet(k), c)) {
+                        classCounts[k]++;
+                        known = true;
+                    }
+                }
+                assertTrue("outside the alphabet " + c, known);
+            }
+            assertTrue(classCounts[PasswordPolicy.LOWER] >= 2);
+            assertEquals(0, classCounts[PasswordPolicy.UPPER]);
+            assertTrue(classCounts[PasswordPolicy.DIGIT] >= 4);
+            assertTrue(classCounts[PasswordPolicy.SYMBOL] >= 1);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPoliciesThatCannotBeSatisfied() {
+        new PasswordPolicy(8, 3, 3, 3, 0, false);
+    }
+
+    private static PasswordGenerator seededGenerator(long seed) throws Exception {
+        SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+        random.setSeed(seed);
+        return new PasswordGenerator(random);
+    }
+
+    private static boolean contains(char[] chars, char c) {
+        for (char x : chars) {
+            if (x == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
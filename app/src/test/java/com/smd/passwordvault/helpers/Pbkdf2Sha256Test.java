@@ -0,0 +1,61 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks Pbkdf2Sha256 against the PBKDF2-HMAC-SHA256 vectors of RFC 7914 section 11
+ * and against the JCA implementation of the host.
+ */
+public class Pbkdf2Sha256Test {
+
+    @Test
+    public void rfc7914_singleIteration() {
+        byte[] expected = HexCodec.fromHex(
+                "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+                        + "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+        byte[] actual = Pbkdf2Sha256.derive("passwd".toCharArray(),
+                "salt".getBytes(StandardCharsets.UTF_8), 1, 64);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void rfc7914_80000Iterations() {
+        byte[] expected = HexCodec.fromHex(
+                "4ddcd8f60b98be21830cee5ef22701f9641a4418d04c0414aeff08876b34ab56"
+                        + "a1d425a1225833549adb841b51c9b3176a272bdebba1d078478f62b397f33c8d");
+        byte[] actual = Pbkdf2Sha256.derive("Password".toCharArray(),
+                "NaCl".getBytes(StandardCharsets.UTF_8), 80000, 64);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void matchesJca_forKeysLongerThanABlockAndPartialOutputBlocks() throws Exception {
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        Random random = new Random(42);
+        for (int n = 0; n < 100; n++) {
+            char[] password = new char[random.nextInt(150)];
+            for (int i = 0; i < password.length; i++) {
+                password[i] = (char) (' ' + random.nextInt(95));
+            }
+            byte[] salt = new byte[1 + random.nextInt(130)];
+            random.nextBytes(salt);
+            int iterations = 1 + random.nextInt(20);
+            int length = 1 + random.nextInt(100);
+
+            byte[] expected = factory.generateSecret(
+                    new PBEKeySpec(password, salt, iterations, length * 8)).getEncoded();
+            byte[] actual = Pbkdf2Sha256.derive(password, salt, iterations, length);
+            assertEquals(length, actual.length);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
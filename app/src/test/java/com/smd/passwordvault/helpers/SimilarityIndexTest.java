@@ -0,0 +1,112 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that SimilarityIndex clusters variants of a password among unrelated
+ * ones, follows puts and removes, and that its signatures estimate the bigram
+ * similarity they are built from.
+ */
+public class SimilarityIndexTest {
+
+    @Test
+    public void clustersVariantsAmongRandomPasswords() {
+        SimilarityIndex index = new SimilarityIndex();
+        Random random = new Random(4);
+        for (int i = 100; i < 2100; i++) {
+            index.put(i, randomPassword(random, 12));
+        }
+        index.put(1, "Summer2023!");
+        index.put(2, "summer2024!");
+        index.put(3, "Summer2023!");
+        index.put(4, "Tr0ub4dor&3");
+        index.put(5, "tr0ub4dor&33");
+
+        assertArrayEquals(new long[]{1, 2, 3}, index.getCluster(2));
+        assertArrayEquals(new long[]{4, 5}, index.getCluster(4));
+        assertEquals(2, index.getClusters().size());
+        assertNull(index.getCluster(100));
+    }
+
+    @Test
+    public void followsPutsAndRemoves() {
+        SimilarityIndex index = new SimilarityIndex();
+        index.put(1, "correct horse battery");
+        index.put(2, "correct horse battery!");
+        assertArrayEquals(new long[]{1, 2}, index.getCluster(1));
+
+        index.put(2, "K9#vQ2!mzX7p");
+        assertNull(index.getCluster(1));
+
+        index.put(3, "Correct Horse Battery");
+        assertArrayEquals(new long[]{1, 3}, index.getCluster(3));
+
+        index.remove(1);
+        assertNull(index.getCluster(3));
+        assertEquals(2, index.size());
+
+        index.putIfAbsent(3, "K9#vQ2!mzX7p");
+        assertNull(index.getCluster(2));
+    }
+
+    @Test
+    public void signatureAgreementEstimatesBigramSimilarity() {
+        Random random = new Random(5);
+        int[] signatures = new int[2 * SimilarityIndex.HASHES];
+        double squaredError = 0;
+        int pairs = 2000;
+        for (int t = 0; t < pairs; t++) {
+            String a = randomPassword(random, 8 + random.nextInt(8));
+            String b = a.substring(0, random.nextInt(a.length())) + randomPassword(random, random.nextInt(6));
+            SimilarityIndex.signature(a, signatures, 0);
+            SimilarityIndex.signature(b, signatures, SimilarityIndex.HASHES);
+
+            int agree = 0;
+            for (int k = 0; k < SimilarityIndex.HASHES; k++) {
+                if (signatures[k] == signatures[SimilarityIndex.HASHES + k]) {
+                    agree++;
+                }
+            }
+            double error = (double) agree / SimilarityIndex.HASHES - jaccard(bigrams(a), bigrams(b));
+            squaredError += error * error;
+        }
+        // the error of an exact MinHash of 64 values has a standard deviation of at most 1 / (2 * sqrt(64))
+        assertTrue(Math.sqrt(squaredError / pairs) < 0.0625);
+    }
+
+    private static String[] bigrams(String password) {
+        String marked = "\0" + password.toLowerCase() + "\0";
+        String[] bigrams = new String[marked.length() - 1];
+        for (int i = 0; i < bigrams.length; i++) {
+            bigrams[i] = marked.substring(i, i + 2);
+        }
+        return bigrams;
+    }
+
+    private static double jaccard(String[] a, String[] b) {
+        Set<String> union = new HashSet<>(Arrays.asList(a));
+        Set<String> intersection = new HashSet<>(Arrays.asList(a));
+        union.addAll(Arrays.asList(b));
+        intersection.retainAll(Arrays.asList(b));
+        return (double) intersection.size() / union.size();
+    }
+
+    private static String randomPassword(Random random, int length) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%";
+        StringBuilder password = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            password.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return password.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the patterns StrengthEstimator recognises, and that reusing the state
+ * of the previous password gives the same estimate as starting over.
+ */
+public class StrengthEstimatorTest {
+
+    @Test
+    public void commonPatternsScoreLow() {
+        assertPattern("password", StrengthEstimator.PATTERN_PASSWORD, 0);
+        assertPattern("P@ssw0rd", StrengthEstimator.PATTERN_PASSWORD, 0);
+        assertPattern("Michael", StrengthEstimator.PATTERN_NAME, 0);
+        assertPattern("zaq1xsw2", StrengthEstimator.PATTERN_SPATIAL, 2);
+        assertPattern("lmnopq", StrengthEstimator.PATTERN_SEQUENCE, 0);
+        assertPattern("zzzzzzzz", StrengthEstimator.PATTERN_REPEAT, 0);
+        assertPattern("1987", StrengthEstimator.PATTERN_YEAR, 0);
+    }
+
+    @Test
+    public void randomPasswordsScoreHigh() {
+        StrengthEstimator.Strength strength = new StrengthEstimator().estimate("kX9#mQ2$vL7!pR4z");
+        assertEquals(4, strength.getScore());
+        assertEquals(StrengthEstimator.PATTERN_BRUTEFORCE, strength.getPattern());
+    }
+
+    @Test
+    public void incrementalEstimatesMatchFreshEstimates() {
+        String alphabet = "abcdeqwerty123450!@Pp$sword";
+        StrengthEstimator estimator = new StrengthEstimator();
+        StringBuilder password = new StringBuilder();
+        Random random = new Random(1);
+
+        for (int i = 0; i < 20000; i++) {
+            int edit = random.nextInt(4);
+            if (edit < 2 && password.length() < 64) {
+                // mostly typing at the end, sometimes in the middle
+                int at = random.nextInt(3) == 0 ? random.nextInt(password.length() + 1) : password.length();
+                password.insert(at, alphabet.charAt(random.nextInt(alphabet.length())));
+            } else if (edit == 2 && password.length() > 0) {
+                password.deleteCharAt(random.nextInt(password.length()));
+            } else if (password.length() > 0) {
+                password.setLength(random.nextInt(password.length()));
+            }
+
+            StrengthEstimator.Strength incremental = estimator.estimate(password);
+            StrengthEstimator.Strength fresh = new StrengthEstimator().estimate(password);
+            assertEquals(password.toString(), fresh.getGuessesLog10(), incremental.getGuessesLog10(), 0);
+            assertEquals(password.toString(), fresh.getPattern(), incremental.getPattern());
+        }
+    }
+
+    private static void assertPattern(String password, int pattern, int maxScore) {
+        StrengthEstimator.Strength strength = new StrengthEstimator().estimate(password);
+        assertEquals(password, pattern, strength.getPattern());
+        assertTrue(password + " scored " + strength.getScore(), strength.getScore() <= maxScore);
+    }
+}
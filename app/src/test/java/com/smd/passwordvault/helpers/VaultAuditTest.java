@@ -0,0 +1,93 @@
+package com.smd.passwordvault.helpers;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the counts of VaultAudit on a vault spanning several chunks, and that
+ * a cancelled audit stops taking passwords and reports nothing.
+ */
+public class VaultAuditTest {
+
+    private static final PasswordFingerprinter FINGERPRINTER = new PasswordFingerprinter(new byte[32]);
+
+    private static final VaultAudit.BreachCheck BREACHED_IF_PASSWORD = new VaultAudit.BreachCheck() {
+        @Override
+        public boolean isBreached(String password) {
+            return password.startsWith("password");
+        }
+    };
+
+    @Test
+    public void countsWeakBreachedReusedAndNearDuplicatePasswords() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            VaultAudit audit = new VaultAudit(pool, FINGERPRINTER, BREACHED_IF_PASSWORD, null);
+            int unique = VaultAudit.CHUNK_SIZE * 3 + 17;
+            Random random = new Random(3);
+            for (int i = 0; i < unique; i++) {
+                audit.add(randomPassword(random));
+            }
+            // three accounts share one password, two another
+            audit.add("Tr0ub4dor&3horse");
+            audit.add("Tr0ub4dor&3horse");
+            audit.add("Tr0ub4dor&3horse");
+            audit.add("correct-staple-41");
+            audit.add("correct-staple-41");
+            // variants of one password, one of them breached
+            audit.add("password2023!");
+            audit.add("Password2024!");
+            audit.add(null);
+
+            VaultAudit.Report report = audit.finish();
+            assertEquals(unique + 7, report.getAccounts());
+            assertEquals(1, report.getUnreadable());
+            assertEquals(2, report.getWeak());
+            assertEquals(1, report.getBreached());
+            assertEquals(5, report.getReused());
+            assertEquals(2, report.getReusedPasswords());
+            assertEquals(2, report.getNearDuplicates());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelledAuditThrows() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            VaultAudit audit = new VaultAudit(pool, FINGERPRINTER, null, null);
+            for (int i = 0; i < VaultAudit.CHUNK_SIZE * 2; i++) {
+                audit.add("password" + i);
+            }
+            audit.cancel();
+            try {
+                audit.add("one more");
+                fail("add after cancel");
+            } catch (CancellationException expected) {
+            }
+            try {
+                audit.finish();
+                fail("finish after cancel");
+            } catch (CancellationException expected) {
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String randomPassword(Random random) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%";
+        StringBuilder password = new StringBuilder();
+        for (int i = 0; i < 14; i++) {
+            password.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return password.toString();
+    }
+}
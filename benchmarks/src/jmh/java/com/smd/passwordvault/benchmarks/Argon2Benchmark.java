@@ -0,0 +1,50 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.Argon2id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Argon2id unlock cost by lane count, at the memory size the calibration starts from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class Argon2Benchmark {
+
+    private static final int MASTER_SECRET_BYTES = 32;
+
+    @Param({"32768"})
+    public int memoryKib;
+
+    @Param({"3"})
+    public int passes;
+
+    @Param({"1", "2", "4"})
+    public int lanes;
+
+    private char[] password;
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        password = Passwords.random(16, 1).toCharArray();
+        salt = new byte[16];
+        new Random(2).nextBytes(salt);
+    }
+
+    @Benchmark
+    public byte[] derive() {
+        return Argon2id.derive(password, salt, passes, memoryKib, lanes, MASTER_SECRET_BYTES);
+    }
+}
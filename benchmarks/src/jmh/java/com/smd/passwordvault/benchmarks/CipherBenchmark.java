@@ -0,0 +1,117 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.EncryptionUtil;
+import com.smd.passwordvault.helpers.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Cost of encrypting and decrypting single account passwords, compared with
+ * the key and Cipher lookup EncryptionUtil did on every call before
+ * CipherEngine.
+ */
+@State(Scope.Benchmark)
+public class CipherBenchmark {
+
+    @Param({"8", "16", "64"})
+    public int passwordLength;
+
+    // the shared legacy key EncryptionUtil encrypts with
+    private static final byte[] LEGACY_KEY = "R$HGSWDKEYPVSMD$".getBytes(StandardCharsets.US_ASCII);
+
+    private String password;
+    private String encPwd;
+    private byte[] encPwdBytes;
+
+    @Setup
+    public void setUp() {
+        password = Passwords.random(passwordLength, 2);
+        encPwd = EncryptionUtil.encryptPassword(password);
+        encPwdBytes = EncryptionUtil.encryptPasswordToBytes(password);
+    }
+
+    @Benchmark
+    public String encryptPassword() {
+        return EncryptionUtil.encryptPassword(password);
+    }
+
+    @Benchmark
+    public String decryptPassword() {
+        return EncryptionUtil.decryptPassword(encPwd);
+    }
+
+    @Benchmark
+    public byte[] encryptPasswordToBytes() {
+        return EncryptionUtil.encryptPasswordToBytes(password);
+    }
+
+    @Benchmark
+    public String decryptPasswordBytes() {
+        return EncryptionUtil.decryptPassword(encPwdBytes);
+    }
+
+    @Benchmark
+    public String encryptPasswordNewCipher() throws Exception {
+        Key aesKey = new SecretKeySpec(LEGACY_KEY, "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, aesKey);
+        return HexCodec.toHex(cipher.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String decryptPasswordNewCipher() throws Exception {
+        Key aesKey = new SecretKeySpec(LEGACY_KEY, "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, aesKey);
+        return new String(cipher.doFinal(HexCodec.fromHex(encPwd)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whole batches through the warm engine, as used when the vault is opened or re-keyed.
+     */
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        @Param({"1", "100", "10000"})
+        public int batchSize;
+
+        private final CipherEngine cipherEngine = EncryptionUtil.getCipherEngine();
+        private String[] passwords;
+        private String[] encPwds;
+        private String[] results;
+
+        @Setup
+        public void setUp() throws Exception {
+            passwords = new String[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                passwords[i] = Passwords.random(8 + i % 24, i);
+            }
+            encPwds = new String[batchSize];
+            cipherEngine.encryptAll(passwords, 0, batchSize, encPwds);
+            results = new String[batchSize];
+        }
+
+        @Benchmark
+        public String[] encryptAll() throws Exception {
+            cipherEngine.encryptAll(passwords, 0, batchSize, results);
+            return results;
+        }
+
+        @Benchmark
+        public String[] decryptAll() throws Exception {
+            cipherEngine.decryptAll(encPwds, 0, batchSize, results);
+            return results;
+        }
+    }
+}
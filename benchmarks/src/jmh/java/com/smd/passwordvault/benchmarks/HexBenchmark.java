@@ -0,0 +1,79 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.HexCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Hex encoding of hashes and cipher text, compared with the BigInteger
+ * based conversion EncryptionUtil used before HexCodec.
+ */
+@State(Scope.Benchmark)
+public class HexBenchmark {
+
+    @Param({"16", "24", "64"})
+    public int length;
+
+    private byte[] bytes;
+    private String hex;
+    private char[] charBuffer;
+    private byte[] byteBuffer;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[length];
+        new Random(3).nextBytes(bytes);
+        hex = HexCodec.toHex(bytes);
+        charBuffer = new char[length * 2];
+        byteBuffer = new byte[length];
+    }
+
+    @Benchmark
+    public String toHex() {
+        return HexCodec.toHex(bytes);
+    }
+
+    @Benchmark
+    public char[] encodeIntoBuffer() {
+        HexCodec.encode(bytes, 0, bytes.length, charBuffer, 0);
+        return charBuffer;
+    }
+
+    @Benchmark
+    public String toHexBigInteger() {
+        BigInteger bi = new BigInteger(1, bytes);
+        String result = bi.toString(16);
+        int paddingLength = (bytes.length * 2) - result.length();
+        if (paddingLength > 0)
+            return String.format("%0" + paddingLength + "d", 0) + result;
+        else
+            return result;
+    }
+
+    @Benchmark
+    public byte[] fromHex() {
+        return HexCodec.fromHex(hex);
+    }
+
+    @Benchmark
+    public byte[] decodeIntoBuffer() {
+        HexCodec.decode(hex, 0, hex.length(), byteBuffer, 0);
+        return byteBuffer;
+    }
+
+    @Benchmark
+    public byte[] fromHexParseInt() {
+        byte[] binary = new byte[hex.length() / 2];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return binary;
+    }
+}
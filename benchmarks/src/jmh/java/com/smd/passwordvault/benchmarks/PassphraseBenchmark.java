@@ -0,0 +1,51 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.PassphraseGenerator;
+import com.smd.passwordvault.helpers.WordList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passphrase generation from a packed word list the size of the EFF long list,
+ * and the cost of opening the list.
+ */
+@State(Scope.Benchmark)
+public class PassphraseBenchmark {
+
+    private static final int WORDS = 7776;
+
+    private ByteBuffer packed;
+    private WordList wordList;
+    private PassphraseGenerator generator;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> words = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            words.add(Passwords.random(3 + i % 7, i).toLowerCase().replaceAll("[^a-z]", "x") + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WordList.pack(words, out);
+        packed = ByteBuffer.wrap(out.toByteArray());
+        wordList = WordList.wrap(packed);
+        generator = new PassphraseGenerator();
+    }
+
+    @Benchmark
+    public WordList open() throws Exception {
+        return WordList.wrap(packed);
+    }
+
+    @Benchmark
+    public String sixWords() {
+        return generator.newPassphrase(wordList, PassphraseGenerator.DEFAULT_WORDS, '-');
+    }
+}
@@ -0,0 +1,34 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.PasswordGenerator;
+import com.smd.passwordvault.helpers.PasswordPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of one password suggestion from the local generator.
+ */
+@State(Scope.Benchmark)
+public class PasswordGeneratorBenchmark {
+
+    @Param({"12", "16", "64"})
+    public int length;
+
+    private PasswordGenerator generator;
+    private PasswordPolicy policy;
+
+    @Setup
+    public void setUp() {
+        generator = new PasswordGenerator();
+        policy = new PasswordPolicy(length, 1, 1, 1, 1, true);
+    }
+
+    @Benchmark
+    public char[] generate() {
+        return generator.generate(policy);
+    }
+}
@@ -0,0 +1,31 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.EncryptionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the one way hash computed at registration and login.
+ */
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+
+    @Param({"8", "16", "64"})
+    public int passwordLength;
+
+    private String password;
+
+    @Setup
+    public void setUp() {
+        password = Passwords.random(passwordLength, 1);
+    }
+
+    @Benchmark
+    public String createPasswordHash() throws Exception {
+        return EncryptionUtil.createPasswordHash(password);
+    }
+}
@@ -0,0 +1,24 @@
+package com.smd.passwordvault.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic password fixtures for the benchmarks.
+ */
+final class Passwords {
+
+    private static final String ALPHABET =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&*";
+
+    private Passwords() {
+    }
+
+    static String random(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
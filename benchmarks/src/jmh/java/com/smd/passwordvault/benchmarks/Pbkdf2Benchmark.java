@@ -0,0 +1,57 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.Pbkdf2Sha256;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import java.util.Random;
+
+/**
+ * Login KDF: the pure Java PBKDF2-HMAC-SHA256 against the JCA implementations,
+ * deriving the 32 byte master secret.
+ */
+@State(Scope.Benchmark)
+public class Pbkdf2Benchmark {
+
+    private static final int MASTER_SECRET_BYTES = 32;
+
+    @Param({"1000", "10000"})
+    public int iterations;
+
+    private char[] password;
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        password = Passwords.random(16, 1).toCharArray();
+        salt = new byte[16];
+        new Random(2).nextBytes(salt);
+    }
+
+    @Benchmark
+    public byte[] jcaHmacSha1() throws Exception {
+        return jca("PBKDF2WithHmacSHA1");
+    }
+
+    @Benchmark
+    public byte[] jcaHmacSha256() throws Exception {
+        return jca("PBKDF2WithHmacSHA256");
+    }
+
+    @Benchmark
+    public byte[] pureHmacSha256() {
+        return Pbkdf2Sha256.derive(password, salt, iterations, MASTER_SECRET_BYTES);
+    }
+
+    private byte[] jca(String algorithm) throws Exception {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, MASTER_SECRET_BYTES * 8);
+        return SecretKeyFactory.getInstance(algorithm).generateSecret(spec).getEncoded();
+    }
+}
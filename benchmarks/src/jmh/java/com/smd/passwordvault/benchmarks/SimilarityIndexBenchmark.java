@@ -0,0 +1,124 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.SimilarityIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Finding the clusters of near-identical passwords of a vault: building a
+ * SimilarityIndex and reading its clusters, against comparing every pair of
+ * passwords by edit distance.
+ *
+ * A tenth of the vault are variants of a few hundred base passwords (a digit
+ * changed, a year or a symbol appended, capitalized), the rest random.
+ */
+@State(Scope.Benchmark)
+public class SimilarityIndexBenchmark {
+
+    // edit distance at or below which the brute force calls two passwords similar
+    private static final int MAX_DISTANCE = 2;
+
+    @Param({"1000", "5000"})
+    public int accounts;
+
+    private String[] passwords;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(19);
+        String[] bases = new String[Math.max(10, accounts / 50)];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = Passwords.random(6 + i % 6, 1000 + i);
+        }
+
+        passwords = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            if (i % 10 == 0) {
+                String base = bases[random.nextInt(bases.length)];
+                switch (random.nextInt(3)) {
+                    case 0:
+                        passwords[i] = base + (2015 + random.nextInt(10));
+                        break;
+                    case 1:
+                        passwords[i] = base + random.nextInt(10) + "!";
+                        break;
+                    default:
+                        passwords[i] = base.toUpperCase(Locale.ROOT).charAt(0) + base.substring(1) + "1";
+                }
+            } else {
+                passwords[i] = Passwords.random(10 + i % 8, i);
+            }
+        }
+    }
+
+    @Benchmark
+    public int minHashIndex() {
+        SimilarityIndex index = new SimilarityIndex();
+        for (int i = 0; i < passwords.length; i++) {
+            index.put(i, passwords[i]);
+        }
+        return index.getClusters().size();
+    }
+
+    @Benchmark
+    public int pairwiseEditDistance() {
+        int[] parent = new int[passwords.length];
+        String[] lower = new String[passwords.length];
+        for (int i = 0; i < passwords.length; i++) {
+            parent[i] = i;
+            lower[i] = passwords[i].toLowerCase(Locale.ROOT);
+        }
+        int[] previous = new int[64];
+        int[] current = new int[64];
+        for (int i = 0; i < lower.length; i++) {
+            for (int j = i + 1; j < lower.length; j++) {
+                if (Math.abs(lower[i].length() - lower[j].length()) <= MAX_DISTANCE
+                        && editDistance(lower[i], lower[j], previous, current) <= MAX_DISTANCE) {
+                    parent[find(parent, j)] = find(parent, i);
+                }
+            }
+        }
+
+        int[] size = new int[parent.length];
+        int clusters = 0;
+        for (int i = 0; i < parent.length; i++) {
+            if (++size[find(parent, i)] == 2) {
+                clusters++;
+            }
+        }
+        return clusters;
+    }
+
+    // Levenshtein distance with two rows, the strings are at most 63 characters
+    private static int editDistance(String a, String b, int[] previous, int[] current) {
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] row = previous;
+            previous = current;
+            current = row;
+        }
+        return previous[b.length()];
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,92 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.StrengthEstimator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per keystroke cost of the strength meter: a corpus of passwords typed one
+ * character at a time, with the incremental estimator and with a fresh estimate
+ * of the whole text on every keystroke, and single keystrokes at 64 characters.
+ *
+ * The corpus is built the way people build passwords (base words and names,
+ * capitalized, l33ted, with digits, years and symbols appended, keyboard walks)
+ * plus random passwords; no leaked password list ships with the repository.
+ */
+@State(Scope.Benchmark)
+public class StrengthEstimatorBenchmark {
+
+    private static final String[] BASES = {
+            "password", "dragon", "monkey", "sunshine", "princess", "football", "jennifer",
+            "michael", "ashley", "summer", "qwerty", "letmein", "shadow", "batman"};
+    private static final String[] SUFFIXES = {"", "1", "123", "!", "2019", "1987", "69", "!!", "007"};
+    private static final String[] WALKS = {"qwertyuiop", "1qaz2wsx", "asdfghjkl", "zxcvbnm", "1q2w3e4r5t"};
+
+    private List<String> corpus;
+    private String long64;
+    private StrengthEstimator estimator;
+
+    @Setup
+    public void setUp() {
+        corpus = new ArrayList<>();
+        for (int i = 0; i < BASES.length; i++) {
+            String base = BASES[i];
+            String capitalized = Character.toUpperCase(base.charAt(0)) + base.substring(1);
+            String leet = base.replace('a', '@').replace('o', '0').replace('e', '3').replace('s', '$');
+            for (String suffix : SUFFIXES) {
+                corpus.add(base + suffix);
+                corpus.add(capitalized + suffix);
+                corpus.add(leet + suffix);
+            }
+            corpus.add(base + BASES[(i + 1) % BASES.length] + WALKS[i % WALKS.length]);
+        }
+        for (int i = 0; i < 32; i++) {
+            corpus.add(Passwords.random(8 + i % 17, i));
+        }
+        long64 = Passwords.random(24, 64) + "Jennifer1987" + "qwertyuiop" + "P@ssw0rd!" + Passwords.random(9, 65);
+        estimator = new StrengthEstimator();
+        estimator.estimate(long64);
+    }
+
+    @Benchmark
+    public int typeCorpusIncremental() {
+        int score = 0;
+        for (String password : corpus) {
+            StrengthEstimator typing = new StrengthEstimator();
+            for (int k = 1; k <= password.length(); k++) {
+                score += typing.estimate(password.subSequence(0, k)).getScore();
+            }
+        }
+        return score;
+    }
+
+    @Benchmark
+    public int typeCorpusFullRecompute() {
+        int score = 0;
+        for (String password : corpus) {
+            for (int k = 1; k <= password.length(); k++) {
+                score += new StrengthEstimator().estimate(password.subSequence(0, k)).getScore();
+            }
+        }
+        return score;
+    }
+
+    // deletes and retypes the 64th character: two keystrokes per invocation
+    @Benchmark
+    public int keystrokeAt64() {
+        int score = estimator.estimate(long64.subSequence(0, 63)).getScore();
+        return score + estimator.estimate(long64).getScore();
+    }
+
+    // the whole 64 character password at once, as when it is pasted
+    @Benchmark
+    public int estimate64() {
+        return new StrengthEstimator().estimate(long64).getScore();
+    }
+}
@@ -0,0 +1,159 @@
+package com.smd.passwordvault.benchmarks;
+
+import com.smd.passwordvault.helpers.BreachFilter;
+import com.smd.passwordvault.helpers.CipherEngine;
+import com.smd.passwordvault.helpers.PasswordFingerprinter;
+import com.smd.passwordvault.helpers.VaultAudit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Whole vault audits: the cipher texts of a vault are decrypted in chunks on a
+ * pool and fed to a VaultAudit analyzing on the same pool, as VaultAuditor does
+ * with the rows of PV_ACCOUNT, on all cores and on one thread.
+ *
+ * The vault mixes random passwords with reused ones, variants of a few base
+ * words and passwords from a small breach filter.
+ */
+@State(Scope.Benchmark)
+public class VaultAuditBenchmark {
+
+    private static final String[] BASES = {
+            "password", "dragon", "monkey", "sunshine", "princess", "football", "summer", "shadow"};
+    private static final String[] SUFFIXES = {"1", "123", "!", "2019", "2020", "1987", "!!", "007"};
+
+    // rows decrypted together, as in AccountBulkDecryptor
+    private static final int CHUNK_SIZE = 512;
+
+    @Param({"1000", "10000", "100000"})
+    public int accounts;
+
+    private byte[][] encrypted;
+    private CipherEngine cipherEngine;
+    private PasswordFingerprinter fingerprinter;
+    private VaultAudit.BreachCheck breachCheck;
+    private ForkJoinPool allCores;
+    private ForkJoinPool oneThread;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        Random random = new Random(18);
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        cipherEngine = new CipherEngine(key);
+        random.nextBytes(key);
+        fingerprinter = new PasswordFingerprinter(key);
+
+        BreachFilter.Builder breached = new BreachFilter.Builder(BASES.length * SUFFIXES.length, 0.001);
+        for (String base : BASES) {
+            for (String suffix : SUFFIXES) {
+                breached.add(base + suffix);
+            }
+        }
+        final BreachFilter filter = breached.build();
+        breachCheck = new VaultAudit.BreachCheck() {
+            @Override
+            public boolean isBreached(String password) {
+                return filter.mightContain(password);
+            }
+        };
+
+        encrypted = new byte[accounts][];
+        for (int i = 0; i < accounts; i++) {
+            String password;
+            switch (i % 10) {
+                case 0:
+                case 1:
+                    // a variant of a base word, often a breached one
+                    password = BASES[random.nextInt(BASES.length)] + SUFFIXES[random.nextInt(SUFFIXES.length)];
+                    break;
+                case 2:
+                    // the password of an earlier account
+                    password = Passwords.random(12, random.nextInt(i + 1) / 10);
+                    break;
+                default:
+                    password = Passwords.random(10 + i % 12, i);
+            }
+            encrypted[i] = cipherEngine.encryptToBytes(password);
+        }
+
+        allCores = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        oneThread = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        allCores.shutdown();
+        oneThread.shutdown();
+    }
+
+    @Benchmark
+    public VaultAudit.Report audit() {
+        return audit(allCores);
+    }
+
+    @Benchmark
+    public VaultAudit.Report auditOneThread() {
+        return audit(oneThread);
+    }
+
+    private VaultAudit.Report audit(ForkJoinPool pool) {
+        VaultAudit audit = new VaultAudit(pool, fingerprinter, breachCheck, null);
+        String[] decrypted = new String[CHUNK_SIZE];
+        for (int from = 0; from < accounts; from += CHUNK_SIZE) {
+            int to = Math.min(accounts, from + CHUNK_SIZE);
+            pool.invoke(new DecryptTask(from, to, decrypted));
+            for (int i = 0; i < to - from; i++) {
+                audit.add(decrypted[i]);
+            }
+        }
+        return audit.finish();
+    }
+
+    private class DecryptTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int base;
+        private final String[] decrypted;
+
+        DecryptTask(int from, int to, String[] decrypted) {
+            this(from, to, from, decrypted);
+        }
+
+        private DecryptTask(int from, int to, int base, String[] decrypted) {
+            this.from = from;
+            this.to = to;
+            this.base = base;
+            this.decrypted = decrypted;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 32) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        decrypted[i - base] = cipherEngine.decrypt(encrypted[i]);
+                    } catch (GeneralSecurityException e) {
+                        decrypted[i - base] = null;
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new DecryptTask(from, middle, base, decrypted), new DecryptTask(middle, to, base, decrypted));
+        }
+    }
+}
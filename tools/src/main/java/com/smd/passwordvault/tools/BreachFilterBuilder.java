@@ -0,0 +1,92 @@
+package com.smd.passwordvault.tools;
+
+import com.smd.passwordvault.helpers.BreachFilter;
+import com.smd.passwordvault.helpers.BreachedPasswords;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the Bloom filter read by BreachFilter from a Pwned Passwords SHA-1
+ * dump, in the same text format as BreachListConverter reads.
+ *
+ * The filter holds the first maxHashes hashes of the dump, so with the
+ * "ordered by prevalence" edition it holds the most common breached passwords
+ * and stays small enough to ship in the APK: 1 million hashes at a 0.1% false
+ * positive rate take 1.8 MB. The dump is streamed twice, once to count the
+ * hashes and once to add them, in constant memory besides the filter.
+ *
+ * Usage: BreachFilterBuilder &lt;pwned-passwords-sha1.txt&gt; &lt;breachfilter.bin&gt; [fpRate] [maxHashes]
+ */
+public final class BreachFilterBuilder {
+
+    private static final double DEFAULT_FP_RATE = 0.001;
+    private static final long DEFAULT_MAX_HASHES = 1000000;
+
+    private BreachFilterBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: BreachFilterBuilder <pwned-passwords-sha1.txt> <breachfilter.bin> [fpRate] [maxHashes]");
+            System.exit(2);
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        double fpRate = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_FP_RATE;
+        long maxHashes = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MAX_HASHES;
+
+        long count = addHashes(input, null, maxHashes);
+        BreachFilter.Builder builder = new BreachFilter.Builder(count, fpRate);
+        addHashes(input, builder, maxHashes);
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(output), 1 << 16);
+        try {
+            builder.write(out);
+        } finally {
+            out.close();
+        }
+
+        BreachFilter filter = builder.build();
+        System.out.println("Built a filter of " + count + " hashes, " + filter.getHashCount() + " hash functions, "
+                + filter.getBitCount() + " bits, into " + output + " (" + output.length() + " bytes)");
+    }
+
+    // adds up to maxHashes hashes to the builder, or only counts them when it is null
+    static long addHashes(File input, BreachFilter.Builder builder, long maxHashes) throws IOException {
+        byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+        long count = 0;
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(input), StandardCharsets.US_ASCII), 1 << 16);
+        try {
+            String line;
+            long lineNumber = 0;
+            while (count < maxHashes && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                BreachListConverter.parseHash(line, hash, lineNumber);
+                if (builder != null) {
+                    builder.addHash(hash);
+                }
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,123 @@
+package com.smd.passwordvault.tools;
+
+import com.smd.passwordvault.helpers.BreachedPasswords;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the Pwned Passwords SHA-1 text dump, ordered by hash, into the
+ * binary format read by BreachedPasswords.
+ *
+ * Each line is 40 hex digits, optionally followed by a colon and the breach
+ * count, which is dropped. The dump is streamed: one line is in memory at a
+ * time, so a 30 GB dump converts in constant memory. Since it cannot be
+ * sorted that way, a dump that is not in ascending hash order is rejected;
+ * download the "ordered by hash" edition.
+ *
+ * Usage: BreachListConverter &lt;pwned-passwords-sha1-ordered-by-hash.txt&gt; &lt;breached-sha1.bin&gt;
+ */
+public final class BreachListConverter {
+
+    private static final int PROGRESS_INTERVAL = 50000000;
+
+    private BreachListConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BreachListConverter <pwned-passwords-sha1-ordered-by-hash.txt> <breached-sha1.bin>");
+            System.exit(2);
+        }
+
+        File output = new File(args[1]);
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        long count;
+        FileOutputStream file = new FileOutputStream(output);
+        try {
+            OutputStream out = new BufferedOutputStream(file, 1 << 16);
+            // the count is only known at the end, the header is written again then
+            out.write(BreachedPasswords.header(0));
+            count = convert(new File(args[0]), out);
+            out.flush();
+            file.getChannel().write(ByteBuffer.wrap(BreachedPasswords.header(count)), 0);
+        } finally {
+            file.close();
+        }
+        System.out.println("Converted " + count + " hashes into " + output + " (" + output.length() + " bytes)");
+    }
+
+    static long convert(File input, OutputStream out) throws IOException {
+        byte[] hash = new byte[BreachedPasswords.RECORD_BYTES];
+        byte[] previous = new byte[BreachedPasswords.RECORD_BYTES];
+        long count = 0;
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(input), StandardCharsets.US_ASCII), 1 << 16);
+        try {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                parseHash(line, hash, lineNumber);
+                if (count > 0 && compare(previous, hash) >= 0) {
+                    throw new IOException("Hashes are not in ascending order on line " + lineNumber
+                            + "; use the dump ordered by hash");
+                }
+                out.write(hash);
+                System.arraycopy(hash, 0, previous, 0, hash.length);
+                count++;
+                if (count % PROGRESS_INTERVAL == 0) {
+                    System.out.println(count + " hashes");
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    static void parseHash(String line, byte[] hash, long lineNumber) throws IOException {
+        int end = line.indexOf(':');
+        if (end < 0) {
+            end = line.length();
+        }
+        if (end != hash.length * 2) {
+            throw new IOException("Not a SHA-1 hash on line " + lineNumber + ": " + line);
+        }
+        for (int i = 0; i < hash.length; i++) {
+            int high = Character.digit(line.charAt(2 * i), 16);
+            int low = Character.digit(line.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Not a SHA-1 hash on line " + lineNumber + ": " + line);
+            }
+            hash[i] = (byte) (high << 4 | low);
+        }
+    }
+
+    // unsigned, the order BreachedPasswords searches in
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.smd.passwordvault.tools;
+
+import com.smd.passwordvault.helpers.WordList;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Packs a text word list into the binary format read by WordList.
+ *
+ * Accepts one word per line, or the EFF dice format where each line is the
+ * dice roll, a tab and the word. Blank lines are skipped and duplicates are
+ * rejected, since they would make some words more likely than others.
+ *
+ * Usage: WordListPacker &lt;words.txt&gt; &lt;wordlist.bin&gt;
+ */
+public final class WordListPacker {
+
+    private WordListPacker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: WordListPacker <words.txt> <wordlist.bin>");
+            System.exit(2);
+        }
+
+        List<String> words = readWords(new File(args[0]));
+        File output = new File(args[1]);
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(output));
+        try {
+            WordList.pack(words, out);
+        } finally {
+            out.close();
+        }
+        System.out.println("Packed " + words.size() + " words into " + output + " (" + output.length() + " bytes)");
+    }
+
+    static List<String> readWords(File input) throws IOException {
+        Set<String> words = new LinkedHashSet<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                String word = tab >= 0 ? line.substring(tab + 1).trim() : line;
+                if (!words.add(word)) {
+                    throw new IOException("Duplicate word on line " + lineNumber + ": " + word);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new ArrayList<>(words);
+    }
+}